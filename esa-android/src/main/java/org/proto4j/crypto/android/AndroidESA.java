@@ -6,6 +6,9 @@ import io.github.proto4j.crypto.ICipher;
 import io.github.proto4j.esa.ESAFile;
 import io.github.proto4j.esa.JarConfiguration;
 import io.github.proto4j.esa.ESABase;
+import io.github.proto4j.esa.api.CharSequenceInputStream;
+import io.github.proto4j.esa.api.ESAHeader;
+import io.github.proto4j.esa.api.EntryContainer;
 import io.github.proto4j.crypto.provider.KeyProvider;
 
 import javax.crypto.Cipher;
@@ -13,6 +16,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.GeneralSecurityException;
 import java.util.HashMap;
 import java.util.Map;
@@ -58,28 +62,85 @@ public final class AndroidESA extends ESABase {
         if (aesContent == null) {
             return;
         }
+        aesContent = readHeader(aesContent);
 
         Context context = getConfiguration().getContext();
-        byte[] encryptedJar = aesContent.getEncoded().getBytes();
         File cacheDir = context.getCacheDir();
         if ((cacheDir == null) && (cacheDir = context.getDir("dex", 0)) == null) {
             throw new IOException("Could not create cache directory");
         }
 
-        String filename = formatFilename(cacheDir, aesContent.getFilename(), "jar");
-        File jarFile = new File(filename);
+        File dexFile = new File(formatFilename(cacheDir, aesContent.getFilename(), "dex"));
+        File jarFile = null;
+        boolean container = getHeader() != null
+                ? getHeader().isContainer()
+                : aesContent.getSegmentCount() > 0 && EntryContainer.isContainer(aesContent.getSegment(0));
+        if (container) {
+            // Only the DEX file has to be decrypted
+            if (!dexFile.exists()) {
+                writeContainerDexFile(EntryContainer.read(aesContent, getHeader()), dexFile);
+            }
+        } else {
+            jarFile = new File(formatFilename(cacheDir, aesContent.getFilename(), "jar"));
+            writeJarFile(aesContent, jarFile);
+            writeDexFile(jarFile, dexFile);
+        }
+
+        classLoader = new DexClassLoader(
+                dexFile.getAbsolutePath(), cacheDir.getAbsolutePath(),
+                null, context.getClassLoader());
+
+        // cleanup
+        context.deleteFile(dexFile.getAbsolutePath());
+        if (jarFile != null) {
+            context.deleteFile(jarFile.getAbsolutePath());
+        }
+
+        setLoaded();
+        System.gc();
+    }
+
+
+    private void writeJarFile(ESAFile aesContent, File jarFile) throws IOException {
         if (!jarFile.exists()) {
             if (!jarFile.createNewFile()) {
                 throw new IOException("Could not create cached file!");
             }
 
-            prepareCipher(Cipher.DECRYPT_MODE);
+            ESAHeader header = getHeader();
+            if (header != null && header.getCodec() != ESAHeader.CODEC_NONE) {
+                throw new IOException("Unsupported codec for JAR files: " + header.getCodec());
+            }
+
+            // The decrypted segments are joined in the cached JAR file
             try (FileOutputStream fos = new FileOutputStream(jarFile)) {
-                fos.write(cipher.doFinal(encryptedJar));
+                byte[] buffer = new byte[8192];
+                int count = aesContent.getSegmentCount();
+                for (int i = 0; i < count; i++) {
+                    String segment = aesContent.getSegment(i);
+                    if (segment == null) {
+                        throw new IOException("Missing segment " + i);
+                    }
+                    byte[] aad = ESAFile.getSegmentAAD(i, count);
+                    if (header != null) {
+                        header.checkEncoding(segment);
+                        aad = header.getAssociatedData(aad);
+                    }
+
+                    prepareCipher(Cipher.DECRYPT_MODE);
+                    cipher.updateAAD(aad);
+                    try (InputStream is = cipher.newInputStream(new CharSequenceInputStream(segment))) {
+                        int len;
+                        while ((len = is.read(buffer)) != -1) {
+                            fos.write(buffer, 0, len);
+                        }
+                    }
+                }
             }
         }
+    }
 
-        File dexFile = new File(formatFilename(cacheDir, aesContent.getFilename(), "dex"));
+    private void writeDexFile(File jarFile, File dexFile) throws IOException {
         if (!dexFile.exists()) {
             if (!dexFile.createNewFile()) {
                 throw new IOException("Could not create cache DEX file");
@@ -106,20 +167,28 @@ public final class AndroidESA extends ESABase {
                 fos.write(dexContent);
             }
         }
+    }
 
-        classLoader = new DexClassLoader(
-                dexFile.getAbsolutePath(), cacheDir.getAbsolutePath(),
-                null, context.getClassLoader());
-
-        // cleanup
-        context.deleteFile(dexFile.getAbsolutePath());
-        context.deleteFile(jarFile.getAbsolutePath());
+    private void writeContainerDexFile(EntryContainer container, File dexFile) throws IOException {
+        EntryContainer.Entry entry = container.getEntry("classes.dex");
+        if (entry == null) {
+            throw new IOException("Invalid ESA container");
+        }
+        if (!dexFile.createNewFile()) {
+            throw new IOException("Could not create cache DEX file");
+        }
 
-        setLoaded();
-        System.gc();
+        prepareCipher(Cipher.DECRYPT_MODE);
+        try (InputStream is = container.open(entry, cipher);
+             FileOutputStream fos = new FileOutputStream(dexFile)) {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                fos.write(buffer, 0, len);
+            }
+        }
     }
 
-
     @Override
     public DexClassLoader getClassLoader() {
         return (DexClassLoader) super.getClassLoader();
@@ -25,13 +25,11 @@ public final class AndroidESABuilder
         Objects.requireNonNull(configuration, "config");
         Objects.requireNonNull(keyProvider, "provider");
         Objects.requireNonNull(content, "content");
-        Objects.requireNonNull(cipher, "cipher");
-
-        ESA jar = new AndroidESA(keyProvider, cipher, configuration);
 
         if (!(content instanceof ESAFile)) {
             throw new ClassFormatError("Invalid output object of type " + content.getClass().getName());
         }
+        ESA jar = new AndroidESA(keyProvider, getCipher((ESAFile) content), configuration);
 
         try {
             jar.load((ESAFile) content);
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 17.10.2026
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name decryption throughput of a shared {@link CipherSession} from 1 to 64
+ * threads. The {@code pooled} session of the {@link DefaultAESCipher} keeps
+ * initialized ciphers per caller, while the {@code locking} session
+ * initializes the shared cipher under its lock for every operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CipherSessionBenchmark {
+
+    @Param({"pooled", "locking"})
+    public String session;
+
+    private CipherSession decryption;
+    private byte[] name;
+
+    @Setup(Level.Trial)
+    public void setUp() throws GeneralSecurityException {
+        SecretKey key = new SecretKeySpec("Proto4jBenchKey!".getBytes(StandardCharsets.US_ASCII), "AES");
+        ICipher cipher = ICipher.newDefaultInstance();
+        cipher.init(Cipher.ENCRYPT_MODE, key);
+        name = cipher.doFinal("io.github.proto4j.esa.SharedNumbers".getBytes(StandardCharsets.UTF_8));
+
+        decryption = "locking".equals(session)
+                ? new LockingCipherSession(cipher, Cipher.DECRYPT_MODE, key)
+                : cipher.newSession(Cipher.DECRYPT_MODE, key);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        decryption.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public byte[] decrypt_01() throws GeneralSecurityException {
+        return decryption.doFinal(name);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] decrypt_04() throws GeneralSecurityException {
+        return decryption.doFinal(name);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public byte[] decrypt_16() throws GeneralSecurityException {
+        return decryption.doFinal(name);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public byte[] decrypt_64() throws GeneralSecurityException {
+        return decryption.doFinal(name);
+    }
+}
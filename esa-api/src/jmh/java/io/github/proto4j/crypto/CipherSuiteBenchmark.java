@@ -0,0 +1,84 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 17.10.2026
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decryption throughput of the built-in {@link CipherSuite cipher suites}
+ * on the local CPU. Processors without AES instructions should show a
+ * clear advantage of {@code chacha20-poly1305} over the AES suites. The
+ * benchmark fails for suites the runtime does not support.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CipherSuiteBenchmark {
+
+    @Param({"cbc", "ctr", "gcm", "chacha20-poly1305"})
+    public String suite;
+
+    @Param({"4096", "1048576"})
+    public int size;
+
+    private ICipher cipher;
+    private SecretKey key;
+    private byte[] encrypted;
+
+    @Setup(Level.Trial)
+    public void setUp() throws GeneralSecurityException {
+        CipherSuite cipherSuite = CipherSuite.forName(suite);
+        if (!cipherSuite.isAvailable()) {
+            throw new GeneralSecurityException("Cipher suite not supported by this runtime: " + suite);
+        }
+        cipher = cipherSuite.newCipher(PayloadEncoding.BASE128);
+        key    = new SecretKeySpec("Proto4jBenchKey!".getBytes(StandardCharsets.US_ASCII), "AES");
+
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        cipher.init(Cipher.ENCRYPT_MODE, key);
+        encrypted = cipher.doFinal(content);
+    }
+
+    @Benchmark
+    public byte[] decrypt() throws GeneralSecurityException {
+        cipher.init(Cipher.DECRYPT_MODE, key);
+        return cipher.doFinal(encrypted);
+    }
+}
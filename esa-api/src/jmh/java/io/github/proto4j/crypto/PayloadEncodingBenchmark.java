@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 17.10.2026
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding time of encrypted content per {@link PayloadEncoding}. The setup
+ * prints the size of the encoded payload and of the {@code String} constant
+ * that stores it in the output class (modified UTF-8).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadEncodingBenchmark {
+
+    @Param({"BASE64", "BASE128"})
+    public PayloadEncoding encoding;
+
+    @Param({"49104", "1048576"})
+    public int size;
+
+    private byte[] encoded;
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        encoded = encoding.encode(content);
+        buffer  = new byte[8192];
+
+        System.out.printf("%n%s: %d bytes encoded to %d characters, %d bytes in the class file (+%.1f%%)%n",
+                          encoding, size, encoded.length, getConstantSize(encoded),
+                          100.0 * (getConstantSize(encoded) - size) / size);
+    }
+
+    private static long getConstantSize(byte[] encoded) {
+        long length = 0;
+        for (byte b : encoded) {
+            int c = b & 0xFF;
+            length += c >= 0x01 && c <= 0x7F ? 1 : 2;
+        }
+        return length;
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return PayloadEncoding.decode(encoded);
+    }
+
+    @Benchmark
+    public int decodeStream() throws IOException {
+        int total = 0;
+        try (InputStream in = PayloadEncoding.decode(new ByteArrayInputStream(encoded))) {
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                total += n;
+            }
+        }
+        return total;
+    }
+}
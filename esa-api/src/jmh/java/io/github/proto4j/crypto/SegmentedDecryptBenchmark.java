@@ -0,0 +1,94 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 17.10.2026
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decryption time of a multi-MB payload with the sequential
+ * {@code AES/CBC} cipher and the segmented {@code AES/CTR} cipher, which
+ * decrypts its segments on a pool with the given parallelism. The CBC
+ * cipher always runs on the calling thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentedDecryptBenchmark {
+
+    @Param({"cbc", "ctr"})
+    public String cipher;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"4194304", "16777216"})
+    public int size;
+
+    private ForkJoinPool pool;
+    private ICipher engine;
+    private SecretKey key;
+    private byte[] encrypted;
+
+    @Setup(Level.Trial)
+    public void setUp() throws GeneralSecurityException {
+        pool   = new ForkJoinPool(parallelism);
+        engine = "ctr".equals(cipher)
+                ? new SegmentedAESCipher(PayloadEncoding.BASE128, SegmentedAESCipher.DEFAULT_SEGMENT_SIZE, pool)
+                : new DefaultAESCipher(PayloadEncoding.BASE128);
+        key    = new SecretKeySpec("Proto4jBenchKey!".getBytes(StandardCharsets.US_ASCII), "AES");
+
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        engine.init(Cipher.ENCRYPT_MODE, key);
+        encrypted = engine.doFinal(content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public byte[] decrypt() throws GeneralSecurityException {
+        engine.init(Cipher.DECRYPT_MODE, key);
+        return engine.doFinal(encrypted);
+    }
+}
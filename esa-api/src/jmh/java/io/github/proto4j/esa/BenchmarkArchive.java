@@ -0,0 +1,187 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa; //@date 17.10.2026
+
+import io.github.proto4j.crypto.ICipher;
+import io.github.proto4j.crypto.provider.KeyProvider;
+import io.github.proto4j.crypto.provider.PlainTextKeyProvider;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Creates encrypted ESA files for the benchmarks, the same way the Gradle
+ * plugin does for a single segment with the default cipher.
+ */
+public final class BenchmarkArchive {
+
+    /**
+     * The AES key all benchmark archives and names are encrypted with.
+     */
+    public static final String KEY = "Proto4jBenchKey!";
+
+    private BenchmarkArchive() {}
+
+    /**
+     * Loads an ESA file that contains the given classes. The classes are
+     * loaded child-first, so the ESA class loader defines its own copies.
+     *
+     * @param classes the classes to store in the ESA file
+     * @return the loaded ESA
+     * @throws IOException if the class files could not be read
+     * @throws GeneralSecurityException if the ESA file could not be encrypted
+     */
+    public static ESA load(Class<?>... classes) throws IOException, GeneralSecurityException {
+        return load(new JarConfiguration() {}.getNameCacheSize(), classes);
+    }
+
+    /**
+     * Loads an ESA file that contains the given classes with the given size
+     * of the decrypted name cache.
+     *
+     * @param nameCacheSize the decrypted name cache size, {@code 0} decrypts
+     *         every name on lookup
+     * @param classes the classes to store in the ESA file
+     * @return the loaded ESA
+     * @throws IOException if the class files could not be read
+     * @throws GeneralSecurityException if the ESA file could not be encrypted
+     * @see JarConfiguration#getNameCacheSize()
+     */
+    public static ESA load(int nameCacheSize, Class<?>... classes) throws IOException, GeneralSecurityException {
+        JarConfiguration configuration = new JarConfiguration() {
+            @Override
+            public boolean isChildFirst() {
+                return true;
+            }
+
+            @Override
+            public int getNameCacheSize() {
+                return nameCacheSize;
+            }
+        };
+        return new DefaultBuilder()
+                .configure(configuration)
+                .setOutputObject(createFile(createJar(classes)))
+                .setProvider(newKeyProvider())
+                .setCipher(ICipher.newDefaultInstance())
+                .finish();
+    }
+
+    /**
+     * Creates a JAR file with the class files of the given classes.
+     *
+     * @param classes the classes to store
+     * @return the content of the JAR file
+     * @throws IOException if a class file could not be read
+     */
+    public static byte[] createJar(Class<?>... classes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Class<?> cls : classes) {
+                String name = cls.getName().replace('.', '/') + ".class";
+                zip.putNextEntry(new ZipEntry(name));
+                try (InputStream in = cls.getClassLoader().getResourceAsStream(name)) {
+                    if (in == null) {
+                        throw new IOException("Could not find class file: " + name);
+                    }
+                    byte[] buffer = new byte[4096];
+                    for (int n; (n = in.read(buffer)) != -1; ) {
+                        zip.write(buffer, 0, n);
+                    }
+                }
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Creates a JAR file with the given class files.
+     *
+     * @param classFiles the class files mapped to their binary class names
+     * @return the content of the JAR file
+     * @throws IOException if the JAR file could not be written
+     */
+    public static byte[] createJar(Map<String, byte[]> classFiles) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, byte[]> entry : classFiles.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey().replace('.', '/') + ".class"));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Encrypts the given JAR file into a single-segment ESA file.
+     *
+     * @param jar the content of the JAR file
+     * @return the ESA file
+     * @throws GeneralSecurityException if the JAR file could not be encrypted
+     */
+    public static ESAFile createFile(byte[] jar) throws GeneralSecurityException {
+        ICipher cipher = ICipher.newDefaultInstance();
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY.getBytes(StandardCharsets.US_ASCII), "AES"));
+        cipher.updateAAD(ESAFile.getSegmentAAD(0, 1));
+
+        String encoded = new String(cipher.doFinal(jar), StandardCharsets.ISO_8859_1);
+        return new ESAFile() {
+            @Override
+            public String getEncoded() {
+                return encoded;
+            }
+
+            @Override
+            public String getFilename() {
+                return "benchmark.esa";
+            }
+        };
+    }
+
+    /**
+     * Encrypts a class or member name, as the Gradle plugin does for
+     * {@code @Encrypt} annotated values.
+     *
+     * @param name the plain name
+     * @return the encrypted name
+     * @throws GeneralSecurityException if the name could not be encrypted
+     */
+    public static String encryptName(String name) throws GeneralSecurityException {
+        ICipher cipher = ICipher.newDefaultInstance();
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY.getBytes(StandardCharsets.US_ASCII), "AES"));
+        return new String(cipher.doFinal(name.getBytes(StandardCharsets.UTF_8)), StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Creates a provider for the benchmark key.
+     *
+     * @return the key provider
+     */
+    public static KeyProvider newKeyProvider() {
+        return new PlainTextKeyProvider(KEY, "AES");
+    }
+}
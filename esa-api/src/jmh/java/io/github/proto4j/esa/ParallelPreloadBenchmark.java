@@ -0,0 +1,100 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa; //@date 17.10.2026
+
+import io.github.proto4j.crypto.ICipher;
+import io.github.proto4j.esa.api.GeneratedClasses;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup time of an ESA file with several hundred classes, loaded with the
+ * serial {@link LoadingMode#EAGER} mode and with {@link LoadingMode#PARALLEL}
+ * on preload pools of different sizes. Both modes decrypt the file on the
+ * preload pool, only the parallel mode inflates and defines the classes on
+ * it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelPreloadBenchmark {
+
+    @Param({"EAGER", "PARALLEL"})
+    public LoadingMode mode;
+
+    @Param({"1", "2", "4", "8"})
+    public int poolSize;
+
+    @Param({"500"})
+    public int classCount;
+
+    private ESAFile file;
+    private ForkJoinPool pool;
+    private JarConfiguration configuration;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        file = BenchmarkArchive.createFile(BenchmarkArchive.createJar(
+                GeneratedClasses.generate("bench.preload.C", classCount, 20)));
+        pool = new ForkJoinPool(poolSize);
+        configuration = new JarConfiguration() {
+            @Override
+            public LoadingMode getLoadingMode() {
+                return mode;
+            }
+
+            @Override
+            public ForkJoinPool getPreloadPool() {
+                return pool;
+            }
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public ESA load() {
+        ESA esa = new DefaultBuilder()
+                .configure(configuration)
+                .setOutputObject(file)
+                .setProvider(BenchmarkArchive.newKeyProvider())
+                .setCipher(ICipher.newDefaultInstance())
+                .finish();
+        esa.close();
+        return esa;
+    }
+}
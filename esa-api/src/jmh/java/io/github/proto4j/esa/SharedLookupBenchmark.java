@@ -0,0 +1,117 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa; //@date 17.10.2026
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of encrypted name decryption and shared method lookups from
+ * 1 to 64 threads. All threads share one {@link ESA} and therefore its key
+ * provider and name cipher session. With a name cache size of {@code 0},
+ * every operation decrypts the names again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SharedLookupBenchmark {
+
+    @Param({"0", "256"})
+    public int nameCacheSize;
+
+    private ESA esa;
+    private String className;
+    private String methodName;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        esa        = BenchmarkArchive.load(nameCacheSize, SharedNumbers.class);
+        className  = BenchmarkArchive.encryptName(SharedNumbers.class.getName());
+        methodName = BenchmarkArchive.encryptName("square");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        esa.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String[] decryptNames_01() throws Exception {
+        return esa.decryptNames(className, methodName);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String[] decryptNames_04() throws Exception {
+        return esa.decryptNames(className, methodName);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String[] decryptNames_16() throws Exception {
+        return esa.decryptNames(className, methodName);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String[] decryptNames_64() throws Exception {
+        return esa.decryptNames(className, methodName);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Method lookup_01() throws Exception {
+        return esa.getSharedMethod(className, methodName, int.class);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Method lookup_04() throws Exception {
+        return esa.getSharedMethod(className, methodName, int.class);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Method lookup_16() throws Exception {
+        return esa.getSharedMethod(className, methodName, int.class);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Method lookup_64() throws Exception {
+        return esa.getSharedMethod(className, methodName, int.class);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa; //@date 17.10.2026
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stress test for concurrent lookups with encrypted names. The {@link ESA}
+ * and its key provider are created on the main thread, every lookup runs on
+ * pool threads that start at the same time. The name cache is disabled, so
+ * each lookup decrypts the names through the shared key provider.
+ * <p>
+ * Usage: {@code SharedLookupStress [threads] [iterations]}. The process
+ * exits with status {@code 1} if any lookup failed or returned a wrong
+ * result.
+ */
+public final class SharedLookupStress {
+
+    private SharedLookupStress() {}
+
+    public static void main(String[] args) throws Exception {
+        int threads    = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        ESA esa = BenchmarkArchive.load(0, SharedNumbers.class);
+        String className  = BenchmarkArchive.encryptName(SharedNumbers.class.getName());
+        String methodName = BenchmarkArchive.encryptName("square");
+        String greetName  = BenchmarkArchive.encryptName("greet");
+
+        AtomicInteger failures = new AtomicInteger();
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    try {
+                        Method square = esa.getSharedMethod(className, methodName, int.class);
+                        if (!Integer.valueOf(i * i).equals(square.invoke(null, i))) {
+                            throw new IllegalStateException("Unexpected result of square(" + i + ")");
+                        }
+
+                        String[] names = esa.decryptNames(className, greetName);
+                        if (!SharedNumbers.class.getName().equals(names[0]) || !"greet".equals(names[1])) {
+                            throw new IllegalStateException("Unexpected names: " + String.join(", ", names));
+                        }
+                    } catch (Throwable e) {
+                        failures.incrementAndGet();
+                        firstFailure.compareAndSet(null, e);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long millis = (System.nanoTime() - begin) / 1_000_000;
+        pool.shutdown();
+        esa.close();
+
+        System.out.printf("%d threads x %d iterations in %d ms, %d failures%n",
+                          threads, iterations, millis, failures.get());
+        if (firstFailure.get() != null) {
+            firstFailure.get().printStackTrace();
+            System.exit(1);
+        }
+    }
+}
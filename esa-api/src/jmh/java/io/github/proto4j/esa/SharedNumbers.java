@@ -0,0 +1,51 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa; //@date 17.10.2026
+
+/**
+ * Shared class used by the benchmarks. {@link BenchmarkArchive} stores it in
+ * an ESA file that is loaded child-first, so the benchmarks call the copy
+ * defined by the ESA class loader.
+ */
+public class SharedNumbers {
+
+    private final int factor;
+
+    public SharedNumbers() {
+        this(3);
+    }
+
+    public SharedNumbers(int factor) {
+        this.factor = factor;
+    }
+
+    public static int square(int value) {
+        return value * value;
+    }
+
+    public static long sum(long a, long b) {
+        return a + b;
+    }
+
+    public static String greet(String name) {
+        return "Hello " + name;
+    }
+
+    public int scale(int value) {
+        return value * factor;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.api; //@date 17.10.2026
+
+import org.objectweb.asm.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to load a set of classes from several threads at once. Every
+ * operation uses a new class loader, and all threads load all classes
+ * starting at different offsets. The parallel capable
+ * {@link TypeClassLoader} locks per class name, while the
+ * {@link SingleLockClassLoader} baseline is not parallel capable, so the
+ * JVM serializes all of its {@code loadClass} calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassLoadingContentionBenchmark {
+
+    private static final int CLASS_COUNT = 512;
+
+    @Param({"per-name", "single-lock"})
+    public String locking;
+
+    @Param({"1", "4", "16", "32"})
+    public int threads;
+
+    private Map<String, byte[]> classes;
+    private String[] names;
+    private ExecutorService pool;
+    private ClassLoader loader;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        classes = GeneratedClasses.generate("bench.contention.C", CLASS_COUNT);
+        names   = classes.keySet().toArray(new String[0]);
+        pool    = Executors.newFixedThreadPool(threads);
+    }
+
+    // A new loader for every operation, otherwise the classes would
+    // already be defined. The setup time is not measured.
+    @Setup(Level.Invocation)
+    public void newLoader() {
+        ClassLoader parent = ClassLoadingContentionBenchmark.class.getClassLoader();
+        if ("single-lock".equals(locking)) {
+            loader = new SingleLockClassLoader(parent, classes);
+            return;
+        }
+
+        TypeClassLoader typeLoader = new TypeClassLoader(parent, true, 0);
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            typeLoader.put(Type.getObjectType(entry.getKey().replace('.', '/')), entry.getValue());
+        }
+        loader = typeLoader;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public ClassLoader loadClasses() throws Exception {
+        ClassLoader loader = this.loader;
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            // Every thread starts at a different class and loads all of
+            // them, so the threads also race for the same names.
+            int first = t * CLASS_COUNT / threads;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < CLASS_COUNT; i++) {
+                    loader.loadClass(names[(first + i) % CLASS_COUNT]);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return loader;
+    }
+
+    /**
+     * A class loader that is not registered as parallel capable, so the
+     * JVM uses the loader instance as the lock for all class names.
+     */
+    static final class SingleLockClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> classes;
+
+        SingleLockClassLoader(ClassLoader parent, Map<String, byte[]> classes) {
+            super(parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> cls = findLoadedClass(name);
+                if (cls == null) {
+                    cls = classes.containsKey(name) ? findClass(name) : super.loadClass(name, false);
+                }
+                if (resolve) {
+                    resolveClass(cls);
+                }
+                return cls;
+            }
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] content = classes.get(name);
+            if (content == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, content, 0, content.length);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.api; //@date 17.10.2026
+
+import org.objectweb.asm.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a class lookup in the {@link TypeClassLoader} depending on the
+ * number of classes it stores. Lookups are indexed by the binary class name,
+ * so the cost should stay flat as the class count grows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassLookupBenchmark {
+
+    /**
+     * The number of lookup names, a power of two.
+     */
+    private static final int NAMES = 1024;
+
+    @Param({"16", "1024", "16384"})
+    public int classCount;
+
+    private TypeClassLoader loader;
+    private String[] names;
+    private String[] missingNames;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ClassNotFoundException {
+        loader = new TypeClassLoader(ClassLookupBenchmark.class.getClassLoader(), true, NAMES * 2);
+        Map<String, byte[]> classes = GeneratedClasses.generate("bench.lookup.C", classCount);
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            loader.put(Type.getObjectType(entry.getKey().replace('.', '/')), entry.getValue());
+        }
+
+        Random random = new Random(42);
+        names        = new String[NAMES];
+        missingNames = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            names[i]        = "bench.lookup.C" + random.nextInt(classCount);
+            missingNames[i] = "bench.lookup.Missing" + i;
+            loader.loadClass(names[i]);
+        }
+    }
+
+    private int next() {
+        return index++ & (NAMES - 1);
+    }
+
+    @Benchmark
+    public boolean containsClass() {
+        return loader.containsClass(names[next()]);
+    }
+
+    @Benchmark
+    public Class<?> loadClass() throws ClassNotFoundException {
+        return loader.loadClass(names[next()]);
+    }
+
+    @Benchmark
+    public boolean containsMissingClass() {
+        return loader.containsClass(missingNames[next()]);
+    }
+}
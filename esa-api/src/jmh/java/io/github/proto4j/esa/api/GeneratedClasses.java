@@ -0,0 +1,77 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.api; //@date 17.10.2026
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Generates classes for the class loader and loading benchmarks.
+ */
+public final class GeneratedClasses {
+
+    private GeneratedClasses() {}
+
+    /**
+     * Generates the given number of empty classes named {@code prefix + index}.
+     *
+     * @param prefix the binary name prefix of all classes
+     * @param count the number of classes
+     * @return the class files mapped to their binary class names
+     */
+    public static Map<String, byte[]> generate(String prefix, int count) {
+        return generate(prefix, count, 0);
+    }
+
+    /**
+     * Generates the given number of classes named {@code prefix + index},
+     * each with the given number of static methods, so that the class
+     * files have a realistic size.
+     *
+     * @param prefix the binary name prefix of all classes
+     * @param count the number of classes
+     * @param methods the number of methods per class
+     * @return the class files mapped to their binary class names
+     */
+    public static Map<String, byte[]> generate(String prefix, int count, int methods) {
+        Map<String, byte[]> classes = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String name = prefix + i;
+            ClassWriter writer = new ClassWriter(0);
+            writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name.replace('.', '/'),
+                         null, "java/lang/Object", null);
+            for (int m = 0; m < methods; m++) {
+                MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "method" + m,
+                                                      "(I)I", null, null);
+                mv.visitCode();
+                mv.visitVarInsn(Opcodes.ILOAD, 0);
+                mv.visitLdcInsn(i * 31 + m);
+                mv.visitInsn(Opcodes.IADD);
+                mv.visitInsn(Opcodes.IRETURN);
+                mv.visitMaxs(2, 1);
+                mv.visitEnd();
+            }
+            writer.visitEnd();
+            classes.put(name, writer.toByteArray());
+        }
+        return classes;
+    }
+}
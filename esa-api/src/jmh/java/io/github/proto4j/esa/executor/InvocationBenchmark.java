@@ -0,0 +1,116 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.executor; //@date 17.10.2026
+
+import io.github.proto4j.esa.BenchmarkArchive;
+import io.github.proto4j.esa.ESA;
+import io.github.proto4j.esa.SharedNumbers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares calling a shared method through the synchronized
+ * {@link SharedMethodExecutor}, through {@link Method#invoke(Object, Object...)}
+ * and through a {@link PreparedInvocation}, for a static and an instance
+ * method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvocationBenchmark {
+
+    private ESA esa;
+    private Object receiver;
+    private Method staticMethod;
+    private Method instanceMethod;
+    private SharedMethodExecutor<Integer> executor;
+    private PreparedInvocation<Integer> staticInvocation;
+    private PreparedInvocation<Integer> instanceInvocation;
+    private PreparedInvocation<Integer> boundInvocation;
+    private int value;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String className = SharedNumbers.class.getName();
+        esa            = BenchmarkArchive.load(SharedNumbers.class);
+        receiver       = esa.getInstance(className);
+        staticMethod   = esa.getSharedMethod(className, "square", int.class);
+        instanceMethod = esa.getSharedMethod(className, "scale", int.class);
+
+        executor = new SharedMethodExecutor<Integer>(esa, Integer.class, "square", className,
+                                                      new Class<?>[]{int.class}) {
+            @Override
+            protected Object invokeMethod(Method target) throws Exception {
+                return target.invoke(null, value++);
+            }
+        };
+        staticInvocation   = esa.prepareInvocation(className, "square", Integer.class, int.class);
+        instanceInvocation = esa.prepareInvocation(className, "scale", Integer.class, int.class);
+        boundInvocation    = instanceInvocation.bindTo(receiver);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        esa.close();
+    }
+
+    @Benchmark
+    public Integer executor() throws Exception {
+        return executor.call();
+    }
+
+    @Benchmark
+    public Object reflectionStatic() throws Exception {
+        return staticMethod.invoke(null, value++);
+    }
+
+    @Benchmark
+    public Object reflectionInstance() throws Exception {
+        return instanceMethod.invoke(receiver, value++);
+    }
+
+    @Benchmark
+    public Integer preparedStatic() throws Exception {
+        return staticInvocation.invoke(value++);
+    }
+
+    @Benchmark
+    public Integer preparedBound() throws Exception {
+        return boundInvocation.invoke(value++);
+    }
+
+    @Benchmark
+    public Integer preparedInstance() throws Exception {
+        return instanceInvocation.invokeOn(receiver, value++);
+    }
+}
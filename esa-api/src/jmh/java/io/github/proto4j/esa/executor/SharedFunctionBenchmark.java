@@ -0,0 +1,110 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.executor; //@date 17.10.2026
+
+import io.github.proto4j.esa.BenchmarkArchive;
+import io.github.proto4j.esa.ESA;
+import io.github.proto4j.esa.SharedNumbers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Compares shared functions bound with {@link ESA#getSharedFunction} against
+ * reflection, a {@link PreparedInvocation} and a direct call. Run it with
+ * the GC profiler ({@code -prof gc}, enabled by default in the {@code jmh}
+ * task) to see that the shared functions do not allocate, while the
+ * reflective calls box their arguments and results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SharedFunctionBenchmark {
+
+    private ESA esa;
+    private Method square;
+    private PreparedInvocation<Integer> squareInvocation;
+    private IntUnaryOperator squareFunction;
+    private IntUnaryOperator scaleFunction;
+    private LongBinaryOperator sumFunction;
+    private int value;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String className = SharedNumbers.class.getName();
+        esa              = BenchmarkArchive.load(SharedNumbers.class);
+        square           = esa.getSharedMethod(className, "square", int.class);
+        squareInvocation = esa.prepareInvocation(className, "square", Integer.class, int.class);
+        squareFunction   = esa.getSharedFunction(IntUnaryOperator.class, className, "square", int.class);
+        sumFunction      = esa.getSharedFunction(LongBinaryOperator.class, className, "sum", long.class, long.class);
+        scaleFunction    = esa.prepareInvocation(className, "scale", Integer.class, int.class)
+                              .bindTo(esa.getInstance(className))
+                              .asFunction(IntUnaryOperator.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        esa.close();
+    }
+
+    @Benchmark
+    public int direct() {
+        return SharedNumbers.square(value++);
+    }
+
+    @Benchmark
+    public int reflection() throws Exception {
+        return (Integer) square.invoke(null, value++);
+    }
+
+    @Benchmark
+    public int prepared() throws Exception {
+        return squareInvocation.invoke(value++);
+    }
+
+    @Benchmark
+    public int function() {
+        return squareFunction.applyAsInt(value++);
+    }
+
+    @Benchmark
+    public int boundFunction() {
+        return scaleFunction.applyAsInt(value++);
+    }
+
+    @Benchmark
+    public long longFunction() {
+        return sumFunction.applyAsLong(value++, 1L);
+    }
+}
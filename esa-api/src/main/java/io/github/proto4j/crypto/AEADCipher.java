@@ -0,0 +1,368 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 16.10.2026
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.security.auth.DestroyFailedException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+
+/**
+ * Base class of cipher engines using an AEAD construction, which decrypts
+ * and authenticates the content in a single pass. The encrypted content is
+ * stored as follows and encoded with Base64 or {@link Base128}:
+ * <pre>
+ * +--------------+---------------------------+---------------+
+ * | iv: byte[12] | encrypted content: byte[] | tag: byte[16] |
+ * +--------------+---------------------------+---------------+
+ * </pre>
+ * Every segment of an ESA file and every entry of a container is encrypted
+ * on its own, so each of them carries its own tag and can be verified in
+ * parallel. Additional authenticated data set with {@link #updateAAD(byte[])}
+ * binds the content to its position.
+ * <p>
+ * The tag can only be verified after all content has been read. Therefore,
+ * {@link #newInputStream(InputStream)} does not return any data unless the
+ * whole content has been authenticated.
+ *
+ * @see AuthenticatedAESCipher
+ * @see ChaCha20Poly1305Cipher
+ */
+abstract class AEADCipher implements ICipher {
+
+    /**
+     * The length of the IV (or nonce) in front of the encrypted content.
+     */
+    static final int IV_LENGTH = 12;
+
+    /**
+     * The length of the authentication tag in bytes.
+     */
+    static final int TAG_LENGTH = 16;
+
+    /**
+     * The transformation used to de- and encrypt.
+     */
+    private final String transformation;
+
+    /**
+     * The encoding applied to encrypted content.
+     */
+    private final PayloadEncoding encoding;
+
+    /**
+     * Used to create the initialization vectors.
+     */
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * The current cipher state.
+     */
+    private volatile int mode;
+
+    /**
+     * The {@link SecretKey} of the next operation.
+     */
+    private SecretKey key;
+
+    /**
+     * The additional authenticated data for the next operation.
+     */
+    private byte[] aad;
+
+    AEADCipher(String transformation, PayloadEncoding encoding) {
+        this.transformation = transformation;
+        this.encoding       = encoding;
+    }
+
+    /**
+     * Creates the algorithm parameters for the given IV.
+     *
+     * @param iv the buffer containing the IV
+     * @param offset the offset of the IV in the buffer
+     * @return the algorithm parameters
+     */
+    abstract AlgorithmParameterSpec getParameterSpec(byte[] iv, int offset);
+
+    /**
+     * Returns the key that is passed to the JCE cipher for the given key.
+     * The returned key is also used by sessions, which destroy it when they
+     * are closed. A key other than the given one is destroyed after every
+     * operation.
+     *
+     * @param key the key this cipher has been initialized with
+     * @return the key to use
+     * @throws InvalidKeyException if the key can not be used
+     */
+    abstract SecretKey getCipherKey(SecretKey key) throws InvalidKeyException;
+
+    @Override
+    public int getMode() {
+        return mode;
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return true;
+    }
+
+    @Override
+    public synchronized void init(int mode, Key key, SecureRandom random) throws InvalidKeyException {
+        if (key == null) {
+            throw new InvalidKeyException("key is null");
+        }
+        if (!(key instanceof SecretKey)) {
+            throw new InvalidKeyException("Key is not a secret key");
+        }
+        if (mode != Cipher.ENCRYPT_MODE && mode != Cipher.DECRYPT_MODE) {
+            throw new UnsupportedOperationException("Cipher mode not supported");
+        }
+        this.mode = mode;
+        this.key = (SecretKey) key;
+        this.aad = null;
+    }
+
+    @Override
+    public void init(int mode, Key key) throws InvalidKeyException {
+        init(mode, key, (SecureRandom) null);
+    }
+
+    @Override
+    public void init(int mode, Key key, AlgorithmParameterSpec spec) throws InvalidKeyException {
+        init(mode, key);
+    }
+
+    @Override
+    public synchronized void updateAAD(byte[] aad) {
+        this.aad = aad.clone();
+    }
+
+    @Override
+    public byte[] doFinal(byte[] input) throws IllegalBlockSizeException {
+        return doFinal(input, 0, input.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the content could not be
+     *                               authenticated
+     */
+    @Override
+    public byte[] doFinal(byte[] input, int offset, int length) throws IllegalBlockSizeException {
+        State state = consume();
+        try {
+            Cipher cipher = Cipher.getInstance(transformation);
+            if (state.mode == Cipher.ENCRYPT_MODE) {
+                return encrypt(cipher, state.key, state.aad, input, offset, length);
+            }
+
+            byte[] decoded = PayloadEncoding.decode(offset == 0 && length == input.length
+                    ? input : Arrays.copyOfRange(input, offset, offset + length));
+            return decrypt(cipher, state.key, state.aad, decoded);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            state.destroy();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The session keeps a pool of JCE ciphers and does not use additional
+     * authenticated data.
+     */
+    @Override
+    public CipherSession newSession(int mode, Key key) throws InvalidKeyException {
+        if (!(key instanceof SecretKey)) {
+            throw new InvalidKeyException("Key is not a secret key");
+        }
+        return new PooledCipherSession(transformation, mode, getCipherKey((SecretKey) key),
+                (cipher, opmode, secretKey, input) -> opmode == Cipher.DECRYPT_MODE
+                        ? decrypt(cipher, secretKey, null, PayloadEncoding.decode(input))
+                        : encrypt(cipher, secretKey, null, input, 0, input.length));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In decryption mode, the content is authenticated and decrypted
+     * directly into the output buffer, which has to be large enough for the
+     * whole content.
+     */
+    @Override
+    public int doFinal(ByteBuffer input, ByteBuffer output) throws IllegalBlockSizeException, ShortBufferException {
+        if (mode != Cipher.DECRYPT_MODE) {
+            return ICipher.super.doFinal(input, output);
+        }
+
+        State state = consume();
+        try {
+            return CipherBuffers.decrypt(input, output, IV_LENGTH, iv -> {
+                Cipher cipher = Cipher.getInstance(transformation);
+                cipher.init(Cipher.DECRYPT_MODE, state.key, getParameterSpec(iv, 0));
+                if (state.aad != null) {
+                    cipher.updateAAD(state.aad);
+                }
+                return cipher;
+            });
+        } finally {
+            state.destroy();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In decryption mode, the whole content is read and authenticated before
+     * the returned stream is created.
+     *
+     * @throws IOException {@inheritDoc}, for instance if the content could
+     *                     not be authenticated
+     */
+    @Override
+    public InputStream newInputStream(InputStream in) throws IOException {
+        if (mode != Cipher.DECRYPT_MODE) {
+            return ICipher.super.newInputStream(in);
+        }
+
+        State state;
+        try {
+            state = consume();
+        } catch (IllegalBlockSizeException e) {
+            throw new IOException(e);
+        }
+
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            try (InputStream decoded = PayloadEncoding.decode(in)) {
+                int len;
+                while ((len = decoded.read(buffer)) != -1) {
+                    bos.write(buffer, 0, len);
+                }
+            }
+
+            Cipher cipher = Cipher.getInstance(transformation);
+            return new ByteArrayInputStream(decrypt(cipher, state.key, state.aad, bos.toByteArray()));
+        } catch (AEADBadTagException e) {
+            throw new IOException("Content could not be authenticated", e);
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        } finally {
+            state.destroy();
+        }
+    }
+
+    /**
+     * Takes the key and additional authenticated data of the current
+     * operation, so they are used only once. The returned state has to be
+     * destroyed when the operation is finished.
+     */
+    private synchronized State consume() throws IllegalBlockSizeException {
+        SecretKey secretKey = key;
+        byte[] data = aad;
+        key = null;
+        aad = null;
+        if (secretKey == null) {
+            throw new IllegalBlockSizeException("key is null");
+        }
+        try {
+            SecretKey cipherKey = getCipherKey(secretKey);
+            return new State(mode, cipherKey, cipherKey != secretKey, data);
+        } catch (InvalidKeyException e) {
+            throw new IllegalBlockSizeException(e.getMessage());
+        }
+    }
+
+    /**
+     * Encrypts the given content with a random IV, which is stored in front
+     * of the encoded result.
+     */
+    private byte[] encrypt(Cipher cipher, SecretKey key, byte[] aad, byte[] input, int offset, int length)
+            throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+
+        cipher.init(Cipher.ENCRYPT_MODE, key, getParameterSpec(iv, 0));
+        if (aad != null) {
+            cipher.updateAAD(aad);
+        }
+        byte[] result = new byte[IV_LENGTH + cipher.getOutputSize(length)];
+        System.arraycopy(iv, 0, result, 0, IV_LENGTH);
+        cipher.doFinal(input, offset, length, result, IV_LENGTH);
+        return encoding.encode(result);
+    }
+
+    /**
+     * Decrypts and authenticates the given decoded content.
+     */
+    private byte[] decrypt(Cipher cipher, SecretKey key, byte[] aad, byte[] decoded)
+            throws GeneralSecurityException {
+        if (decoded.length < IV_LENGTH + TAG_LENGTH) {
+            throw new AEADBadTagException("Content.length < " + (IV_LENGTH + TAG_LENGTH));
+        }
+
+        cipher.init(Cipher.DECRYPT_MODE, key, getParameterSpec(decoded, 0));
+        if (aad != null) {
+            cipher.updateAAD(aad);
+        }
+        return cipher.doFinal(decoded, IV_LENGTH, decoded.length - IV_LENGTH);
+    }
+
+    /**
+     * The state of a single operation. A key derived for the operation is
+     * owned by the state and destroyed with it.
+     */
+    private static final class State {
+        private final int mode;
+        private final SecretKey key;
+        private final boolean derived;
+        private final byte[] aad;
+
+        State(int mode, SecretKey key, boolean derived, byte[] aad) {
+            this.mode    = mode;
+            this.key     = key;
+            this.derived = derived;
+            this.aad     = aad;
+        }
+
+        void destroy() {
+            if (derived && !key.isDestroyed()) {
+                try {
+                    key.destroy();
+                } catch (DestroyFailedException ignored) {
+                    // keys like SecretKeySpec can not be destroyed
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 16.10.2026
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.InputStream;
+import java.security.InvalidKeyException;
+import java.security.spec.AlgorithmParameterSpec;
+
+/**
+ * Cipher engine using {@code AES/GCM/NoPadding}, which decrypts and
+ * authenticates the content in a single pass. See {@link AEADCipher} for
+ * the layout of the encrypted content.
+ * <p>
+ * The tag can only be verified after all content has been read. Therefore,
+ * {@link #newInputStream(InputStream)} does not return any data unless the
+ * whole content has been authenticated.
+ *
+ * @see ICipher#newAuthenticatedInstance(PayloadEncoding)
+ */
+final class AuthenticatedAESCipher extends AEADCipher {
+
+    /**
+     * The transformation used to de- and encrypt.
+     */
+    static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    AuthenticatedAESCipher(PayloadEncoding encoding) {
+        super(TRANSFORMATION, encoding);
+    }
+
+    @Override
+    AlgorithmParameterSpec getParameterSpec(byte[] iv, int offset) {
+        return new GCMParameterSpec(TAG_LENGTH * 8, iv, offset, IV_LENGTH);
+    }
+
+    @Override
+    SecretKey getCipherKey(SecretKey key) throws InvalidKeyException {
+        return DefaultAESCipher.checkKey(key);
+    }
+}
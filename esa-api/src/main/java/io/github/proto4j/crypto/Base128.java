@@ -0,0 +1,204 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 16.10.2026
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A compact binary-to-text encoding that stores seven bits per character.
+ * <p>
+ * All encoded characters are in the range {@code 0x00-0x7F}, so the encoded
+ * content can be stored in a {@code String} constant of a class file, where
+ * these characters take only one byte in the modified UTF-8 format (except
+ * for {@code 0x00}, which takes two). Compared to Base64, which stores six
+ * bits per character, the encoded content is about 14% smaller and can be
+ * decoded without a lookup table.
+ * <p>
+ * Encoded content always starts with the {@link #MARKER} character, which is
+ * not part of the Base64 alphabet. Thus, both encodings can be told apart
+ * when decoding.
+ *
+ * @see PayloadEncoding#BASE128
+ */
+public final class Base128 {
+
+    /**
+     * The first character of all Base128 encoded contents.
+     */
+    public static final byte MARKER = 0x7F;
+
+    private Base128() {}
+
+    /**
+     * Returns whether the given content is Base128 encoded.
+     *
+     * @param content the encoded content
+     * @return whether the content starts with the {@link #MARKER}
+     */
+    public static boolean isEncoded(byte[] content) {
+        return content.length > 0 && content[0] == MARKER;
+    }
+
+    /**
+     * Encodes the given bytes including the leading {@link #MARKER}.
+     *
+     * @param data the bytes to encode
+     * @return the encoded content
+     */
+    public static byte[] encode(byte[] data) {
+        byte[] result = new byte[1 + (int) (((long) data.length * 8 + 6) / 7)];
+        result[0] = MARKER;
+
+        int position = 1;
+        int buffer = 0;
+        int bits = 0;
+        for (byte value : data) {
+            buffer = (buffer << 8) | (value & 0xFF);
+            bits += 8;
+            while (bits >= 7) {
+                bits -= 7;
+                result[position++] = (byte) ((buffer >>> bits) & 0x7F);
+            }
+        }
+        if (bits > 0) {
+            result[position] = (byte) ((buffer << (7 - bits)) & 0x7F);
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the given content, which has to start with the {@link #MARKER}.
+     *
+     * @param content the encoded content
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the content is not Base128 encoded
+     */
+    public static byte[] decode(byte[] content) {
+        if (!isEncoded(content)) {
+            throw new IllegalArgumentException("Missing Base128 marker");
+        }
+
+        byte[] result = new byte[(int) ((long) (content.length - 1) * 7 / 8)];
+        int position = 0;
+        int buffer = 0;
+        int bits = 0;
+        for (int i = 1; i < content.length; i++) {
+            int value = content[i];
+            if ((value & 0x80) != 0) {
+                throw new IllegalArgumentException("Illegal Base128 character at " + i);
+            }
+
+            buffer = (buffer << 7) | value;
+            bits += 7;
+            if (bits >= 8) {
+                bits -= 8;
+                result[position++] = (byte) (buffer >>> bits);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Wraps the given stream, so the Base128 encoded content is decoded
+     * while it is read. The leading {@link #MARKER} must have been consumed
+     * already.
+     *
+     * @param in the encoded stream
+     * @return the decoding stream
+     */
+    public static InputStream wrap(InputStream in) {
+        return new DecoderInputStream(in);
+    }
+
+    private static final class DecoderInputStream extends FilterInputStream {
+
+        private final byte[] chunk = new byte[1024];
+
+        private int buffer;
+        private int bits;
+
+        DecoderInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] value = new byte[1];
+            int len = read(value, 0, 1);
+            return len == -1 ? -1 : value[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            // Every 8 characters decode to 7 bytes, so at most 8/7 * len
+            // characters (plus the remaining bits) can be read at once.
+            int limit = Math.max(1, Math.min(chunk.length, (int) ((long) len * 8 / 7)));
+            int position = off;
+            while (position == off) {
+                int count = in.read(chunk, 0, limit);
+                if (count == -1) {
+                    return -1;
+                }
+
+                for (int i = 0; i < count; i++) {
+                    int value = chunk[i];
+                    if ((value & 0x80) != 0) {
+                        throw new IOException("Illegal Base128 character");
+                    }
+
+                    buffer = (buffer << 7) | value;
+                    bits += 7;
+                    if (bits >= 8) {
+                        bits -= 8;
+                        b[position++] = (byte) (buffer >>> bits);
+                    }
+                }
+            }
+            return position - off;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] skipped = new byte[512];
+            long remaining = n;
+            while (remaining > 0) {
+                int len = read(skipped, 0, (int) Math.min(skipped.length, remaining));
+                if (len == -1) {
+                    break;
+                }
+                remaining -= len;
+            }
+            return n - remaining;
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
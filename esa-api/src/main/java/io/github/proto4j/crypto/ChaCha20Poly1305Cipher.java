@@ -0,0 +1,193 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 16.10.2026
+
+import io.github.proto4j.crypto.key.DestroyableSecretKey;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.security.auth.DestroyFailedException;
+import javax.security.auth.Destroyable;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.nio.charset.StandardCharsets;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+
+/**
+ * Cipher engine using ChaCha20-Poly1305 (RFC 8439). It stores the content
+ * in the same way as {@link AuthenticatedAESCipher}, but is considerably
+ * faster on processors without AES instructions, for instance on older ARM
+ * devices.
+ * <p>
+ * ChaCha20 requires a 256-bit key. A dedicated {@code ChaCha20} key of 256
+ * bits is used directly. The cipher key is derived from any other key with
+ * HKDF-SHA256 (RFC 5869) and the label {@value #KEY_LABEL}, so the same key
+ * can be used for every cipher suite without reusing its material. The
+ * algorithm is available since Java 11 and Android 9 (API level 28).
+ *
+ * @see CipherSuite#CHACHA20_POLY1305
+ */
+final class ChaCha20Poly1305Cipher extends AEADCipher {
+
+    /**
+     * The transformation used by Java and by Android, respectively.
+     */
+    private static final String[] TRANSFORMATIONS = {
+            "ChaCha20-Poly1305", "ChaCha20/Poly1305/NoPadding"
+    };
+
+    /**
+     * The name of the key algorithm.
+     */
+    private static final String ALGORITHM = "ChaCha20";
+
+    /**
+     * The info label of the HKDF expansion, which binds derived keys to this
+     * cipher suite.
+     */
+    static final String KEY_LABEL = "proto4j-esa chacha20-poly1305 key";
+
+    /**
+     * The MAC used to derive keys.
+     */
+    private static final String HMAC = "HmacSHA256";
+
+    /**
+     * The length of a ChaCha20 key and of a single HKDF-SHA256 block.
+     */
+    private static final int KEY_LENGTH = 32;
+
+    /**
+     * The supported transformation, or {@code null} if the algorithm is not
+     * available.
+     */
+    static final String TRANSFORMATION = findTransformation();
+
+    ChaCha20Poly1305Cipher(PayloadEncoding encoding) {
+        super(TRANSFORMATION, encoding);
+        if (TRANSFORMATION == null) {
+            throw new UnsupportedOperationException("ChaCha20-Poly1305 is not supported");
+        }
+    }
+
+    private static String findTransformation() {
+        for (String transformation : TRANSFORMATIONS) {
+            try {
+                Cipher.getInstance(transformation);
+                return transformation;
+            } catch (NoSuchAlgorithmException | NoSuchPaddingException ignored) {
+            }
+        }
+        return null;
+    }
+
+    @Override
+    AlgorithmParameterSpec getParameterSpec(byte[] iv, int offset) {
+        return new IvParameterSpec(iv, offset, IV_LENGTH);
+    }
+
+    @Override
+    SecretKey getCipherKey(SecretKey key) throws InvalidKeyException {
+        byte[] encoded = key.getEncoded();
+        if (encoded == null || encoded.length == 0) {
+            throw new InvalidKeyException("Key is empty");
+        }
+        if (encoded.length == KEY_LENGTH && ALGORITHM.equalsIgnoreCase(key.getAlgorithm())) {
+            Arrays.fill(encoded, (byte) 0);
+            return key;
+        }
+
+        byte[] derived = null;
+        try {
+            derived = deriveKey(encoded);
+            return new DestroyableSecretKey(derived, ALGORITHM);
+        } catch (GeneralSecurityException | DestroyFailedException e) {
+            throw new InvalidKeyException("Could not derive the ChaCha20 key", e);
+        } finally {
+            Arrays.fill(encoded, (byte) 0);
+            if (derived != null) {
+                Arrays.fill(derived, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Derives a 256-bit key from the given key material with HKDF-SHA256.
+     * No salt is used, as the input is a secret key rather than a password.
+     * The output is a single block, so the expansion takes one step.
+     *
+     * @param material the input key material
+     * @return the derived key
+     * @throws GeneralSecurityException if HMAC-SHA256 is not available
+     * @throws DestroyFailedException if an intermediate key could not be
+     *                                destroyed
+     */
+    static byte[] deriveKey(byte[] material) throws GeneralSecurityException, DestroyFailedException {
+        Mac mac = Mac.getInstance(HMAC);
+        DestroyableSecretKey salt = new DestroyableSecretKey(new byte[KEY_LENGTH], HMAC);
+        DestroyableSecretKey prk = null;
+        try {
+            // extract
+            mac.init(salt);
+            byte[] pseudoRandomKey = mac.doFinal(material);
+            try {
+                prk = new DestroyableSecretKey(pseudoRandomKey, HMAC);
+            } finally {
+                Arrays.fill(pseudoRandomKey, (byte) 0);
+            }
+
+            // expand: T(1) = HMAC(PRK, info | 0x01)
+            mac.init(prk);
+            mac.update(KEY_LABEL.getBytes(StandardCharsets.US_ASCII));
+            mac.update((byte) 1);
+            return mac.doFinal();
+        } finally {
+            salt.destroy();
+            if (prk != null) {
+                prk.destroy();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the key has to be converted, the session owns the converted key and
+     * the given key is destroyed immediately.
+     */
+    @Override
+    public CipherSession newSession(int mode, Key key) throws InvalidKeyException {
+        if (!(key instanceof SecretKey)) {
+            throw new InvalidKeyException("Key is not a secret key");
+        }
+        SecretKey cipherKey = getCipherKey((SecretKey) key);
+        if (cipherKey != key && key instanceof Destroyable) {
+            try {
+                ((Destroyable) key).destroy();
+            } catch (DestroyFailedException ignored) {
+                // keys like SecretKeySpec can not be destroyed
+            }
+        }
+        return super.newSession(mode, cipherKey);
+    }
+}
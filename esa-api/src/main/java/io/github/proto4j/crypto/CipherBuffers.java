@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 16.10.2026
+
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * Helper methods to decrypt encoded content from and into {@link ByteBuffer}s.
+ */
+final class CipherBuffers {
+
+    /**
+     * Initializes a cipher with the IV stored in front of the content.
+     */
+    interface Initializer {
+        Cipher init(byte[] iv) throws GeneralSecurityException;
+    }
+
+    private CipherBuffers() {}
+
+    /**
+     * Decodes the remaining content of the given buffer, which can be encoded
+     * with any of the supported encodings. The buffer is not modified.
+     *
+     * @param input the encoded content
+     * @return a new buffer with the decoded content
+     * @throws IllegalArgumentException if the content is not encoded properly
+     */
+    static ByteBuffer decode(ByteBuffer input) {
+        if (input.hasRemaining() && input.get(input.position()) == Base128.MARKER) {
+            byte[] content = new byte[input.remaining()];
+            input.duplicate().get(content);
+            return ByteBuffer.wrap(Base128.decode(content));
+        }
+        return Base64.getDecoder().decode(input.duplicate());
+    }
+
+    /**
+     * Decodes and decrypts the remaining content of the input buffer into
+     * the output buffer. The input buffer is consumed only if the content
+     * has been decrypted.
+     *
+     * @param input the encoded content
+     * @param output the buffer for the decrypted content
+     * @param ivLength the length of the IV stored in front of the content
+     * @param initializer creates the cipher for the IV
+     * @return the number of bytes stored in the output buffer
+     * @throws IllegalBlockSizeException if the content is too short
+     * @throws ShortBufferException if the output buffer is too small
+     * @throws IllegalStateException if the content could not be decrypted
+     */
+    static int decrypt(ByteBuffer input, ByteBuffer output, int ivLength, Initializer initializer)
+            throws IllegalBlockSizeException, ShortBufferException {
+        try {
+            ByteBuffer decoded = decode(input);
+            if (decoded.remaining() < ivLength) {
+                throw new IllegalBlockSizeException("Content.length < " + ivLength);
+            }
+
+            byte[] iv = new byte[ivLength];
+            decoded.get(iv);
+            int length = doFinal(initializer.init(iv), decoded, output);
+            input.position(input.limit());
+            return length;
+        } catch (IllegalBlockSizeException | ShortBufferException e) {
+            throw e;
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Finishes the operation of the given cipher. Ciphers with padding
+     * report the size of the padded content as output size, so the result
+     * is written to a temporary buffer if the output buffer is smaller.
+     *
+     * @param cipher the initialized cipher
+     * @param input the input
+     * @param output the output
+     * @return the number of bytes stored in the output buffer
+     * @throws GeneralSecurityException if the content could not be processed
+     */
+    static int doFinal(Cipher cipher, ByteBuffer input, ByteBuffer output) throws GeneralSecurityException {
+        if (output.remaining() >= cipher.getOutputSize(input.remaining())) {
+            return cipher.doFinal(input, output);
+        }
+
+        byte[] content = new byte[input.remaining()];
+        input.duplicate().get(content);
+        byte[] result = cipher.doFinal(content);
+        if (output.remaining() < result.length) {
+            throw new ShortBufferException("Output buffer too small: " + output.remaining()
+                    + " < " + result.length);
+        }
+        input.position(input.limit());
+        output.put(result);
+        return result.length;
+    }
+}
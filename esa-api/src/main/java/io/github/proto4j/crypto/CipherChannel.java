@@ -0,0 +1,113 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 16.10.2026
+
+import javax.crypto.Cipher;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.security.GeneralSecurityException;
+
+/**
+ * A channel that decrypts the content of a (decoded) stream with an
+ * initialized JCE {@link Cipher}. Decrypted data is written directly into
+ * the buffer passed to {@link #read(ByteBuffer)}, which can also be a direct
+ * buffer. Only if that buffer is too small for the next decrypted chunk, the
+ * chunk is kept in an internal buffer.
+ */
+final class CipherChannel implements ReadableByteChannel {
+
+    private final InputStream source;
+    private final Cipher cipher;
+    private final byte[] chunk = new byte[8192];
+
+    private ByteBuffer pending = ByteBuffer.allocate(0);
+    private boolean finished;
+    private boolean open = true;
+
+    CipherChannel(InputStream source, Cipher cipher) {
+        this.source = source;
+        this.cipher = cipher;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+
+        int start = dst.position();
+        while (dst.hasRemaining() && dst.position() == start) {
+            if (pending.hasRemaining()) {
+                int length = Math.min(pending.remaining(), dst.remaining());
+                ByteBuffer part = pending.duplicate();
+                part.limit(part.position() + length);
+                dst.put(part);
+                pending.position(pending.position() + length);
+                continue;
+            }
+            if (finished) {
+                return -1;
+            }
+
+            int length = source.read(chunk);
+            finished = length == -1;
+            process(ByteBuffer.wrap(chunk, 0, Math.max(length, 0)), dst);
+        }
+        return dst.position() - start;
+    }
+
+    private void process(ByteBuffer input, ByteBuffer dst) throws IOException {
+        try {
+            int size = cipher.getOutputSize(input.remaining());
+            ByteBuffer output = dst;
+            if (dst.remaining() < size) {
+                if (pending.capacity() < size) {
+                    pending = ByteBuffer.allocate(size);
+                }
+                pending.clear();
+                output = pending;
+            }
+
+            if (finished) {
+                cipher.doFinal(input, output);
+            } else {
+                cipher.update(input, output);
+            }
+            if (output == pending) {
+                pending.flip();
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (open) {
+            open = false;
+            source.close();
+        }
+    }
+}
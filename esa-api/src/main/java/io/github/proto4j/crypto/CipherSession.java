@@ -0,0 +1,58 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 16.10.2026
+
+import javax.crypto.IllegalBlockSizeException;
+
+/**
+ * A cipher bound to a key and an operation mode, which can be used for any
+ * number of operations by any number of threads. In contrast to an
+ * {@link ICipher}, a session does not have to be initialized before every
+ * operation, and it does not serialize concurrent callers.
+ * <p>
+ * Sessions keep the key until they are closed, so they should be closed as
+ * soon as they are not needed anymore.
+ *
+ * @see ICipher#newSession(int, java.security.Key)
+ */
+public interface CipherSession extends AutoCloseable {
+
+    /**
+     * Gets the operating mode of this session.
+     *
+     * @return the opmode
+     */
+    public int getMode();
+
+    /**
+     * Encrypts or decrypts the given data in a single-part operation,
+     * depending on the mode of this session.
+     *
+     * @param input the input buffer
+     * @return the new buffer with the result
+     * @throws IllegalBlockSizeException if the input could not be processed
+     * @throws IllegalStateException if this session has been closed
+     * @see ICipher#doFinal(byte[])
+     */
+    public byte[] doFinal(byte[] input) throws IllegalBlockSizeException;
+
+    /**
+     * Closes this session and destroys the key if possible.
+     */
+    @Override
+    public void close();
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 16.10.2026
+
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A cipher suite combines an {@link ICipher} implementation with a numeric
+ * id, which is stored together with the encrypted ESA file. The runtime uses
+ * the id to create the cipher that is able to decrypt the file, so the suite
+ * can be chosen when building the ESA file.
+ * <p>
+ * The built-in suites are registered automatically. Custom implementations
+ * can be added with {@link #register(CipherSuite)}, ids below {@code 128}
+ * are reserved for built-in suites:
+ * <table>
+ *     <caption>Built-in cipher suites</caption>
+ *     <tr><th>Id</th><th>Name</th><th>Cipher</th></tr>
+ *     <tr><td>0</td><td>cbc</td><td>{@code AES/CBC/PKCS5Padding} (default)</td></tr>
+ *     <tr><td>1</td><td>ctr</td><td>{@code AES/CTR/NoPadding} in parallel segments</td></tr>
+ *     <tr><td>2</td><td>gcm</td><td>{@code AES/GCM/NoPadding}</td></tr>
+ *     <tr><td>3</td><td>chacha20-poly1305</td><td>ChaCha20-Poly1305, for processors
+ *     without AES instructions</td></tr>
+ * </table>
+ *
+ * @see io.github.proto4j.esa.ESAFile#getCipherSuite()
+ */
+public final class CipherSuite {
+
+    /**
+     * The id of the legacy {@code AES/CBC/PKCS5Padding} suite.
+     */
+    public static final int AES_CBC = 0;
+
+    /**
+     * The id of the segmented {@code AES/CTR/NoPadding} suite.
+     */
+    public static final int AES_CTR = 1;
+
+    /**
+     * The id of the authenticated {@code AES/GCM/NoPadding} suite.
+     */
+    public static final int AES_GCM = 2;
+
+    /**
+     * The id of the authenticated ChaCha20-Poly1305 suite.
+     */
+    public static final int CHACHA20_POLY1305 = 3;
+
+    /**
+     * The first id that can be used by custom suites.
+     */
+    public static final int FIRST_CUSTOM_ID = 128;
+
+    /**
+     * The largest valid id, so that an id fits into a single byte.
+     */
+    public static final int MAX_ID = 255;
+
+    private static final Map<Integer, CipherSuite> SUITES = new ConcurrentHashMap<>();
+
+    static {
+        add(new CipherSuite(AES_CBC, "cbc", DefaultAESCipher::new));
+        add(new CipherSuite(AES_CTR, "ctr", SegmentedAESCipher::new));
+        add(new CipherSuite(AES_GCM, "gcm", AuthenticatedAESCipher::new));
+        add(new CipherSuite(CHACHA20_POLY1305, "chacha20-poly1305", ChaCha20Poly1305Cipher::new));
+    }
+
+    private final int id;
+    private final String name;
+    private final Function<PayloadEncoding, ? extends ICipher> factory;
+
+    /**
+     * Creates a new cipher suite.
+     *
+     * @param id the id of the suite, from {@code 0} to {@link #MAX_ID}
+     * @param name the (case-insensitive) name of the suite
+     * @param factory creates a new cipher that encodes encrypted content
+     *         with the given encoding
+     * @throws IllegalArgumentException if the id is out of range
+     */
+    public CipherSuite(int id, String name, Function<PayloadEncoding, ? extends ICipher> factory) {
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException("Invalid cipher suite id: " + id);
+        }
+        this.id      = id;
+        this.name    = Objects.requireNonNull(name).toLowerCase(Locale.ROOT);
+        this.factory = Objects.requireNonNull(factory);
+    }
+
+    /**
+     * Registers a custom cipher suite, so that ESA files using its id can
+     * be decrypted.
+     *
+     * @param suite the suite to register
+     * @return the given suite
+     * @throws IllegalArgumentException if the id is reserved or if another
+     *                                  suite uses the same id or name
+     */
+    public static CipherSuite register(CipherSuite suite) {
+        if (suite.getId() < FIRST_CUSTOM_ID) {
+            throw new IllegalArgumentException("Cipher suite id is reserved: " + suite.getId());
+        }
+        return add(suite);
+    }
+
+    private static synchronized CipherSuite add(CipherSuite suite) {
+        for (CipherSuite other : SUITES.values()) {
+            if (other.getName().equals(suite.getName())) {
+                throw new IllegalArgumentException("Duplicate cipher suite name: " + suite.getName());
+            }
+        }
+        if (SUITES.putIfAbsent(suite.getId(), suite) != null) {
+            throw new IllegalArgumentException("Duplicate cipher suite id: " + suite.getId());
+        }
+        return suite;
+    }
+
+    /**
+     * Returns the suite with the given id.
+     *
+     * @param id the id of the suite
+     * @return the registered suite
+     * @throws NoSuchAlgorithmException if there is no suite with the given id
+     */
+    public static CipherSuite forId(int id) throws NoSuchAlgorithmException {
+        CipherSuite suite = SUITES.get(id);
+        if (suite == null) {
+            throw new NoSuchAlgorithmException("Unknown cipher suite: " + id);
+        }
+        return suite;
+    }
+
+    /**
+     * Returns the suite with the given (case-insensitive) name.
+     *
+     * @param name the name of the suite, for instance {@code gcm}
+     * @return the registered suite
+     * @throws NoSuchAlgorithmException if there is no suite with the given
+     *                                  name
+     */
+    public static CipherSuite forName(String name) throws NoSuchAlgorithmException {
+        String key = Objects.requireNonNull(name).trim().toLowerCase(Locale.ROOT);
+        for (CipherSuite suite : SUITES.values()) {
+            if (suite.getName().equals(key)) {
+                return suite;
+            }
+        }
+        throw new NoSuchAlgorithmException("Unknown cipher suite: " + name);
+    }
+
+    /**
+     * Returns all registered suites ordered by their id.
+     *
+     * @return the registered suites
+     */
+    public static Collection<CipherSuite> getSuites() {
+        List<CipherSuite> suites = new ArrayList<>(SUITES.values());
+        suites.sort(Comparator.comparingInt(CipherSuite::getId));
+        return Collections.unmodifiableList(suites);
+    }
+
+    /**
+     * @return the id of this suite
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the lower-case name of this suite
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Creates a new cipher of this suite. Encrypted content is encoded with
+     * Base64; the encoding is detected automatically when decrypting.
+     *
+     * @return the created cipher
+     * @throws UnsupportedOperationException if this suite is not supported
+     *                                       by the current platform
+     */
+    public ICipher newCipher() {
+        return newCipher(PayloadEncoding.BASE64);
+    }
+
+    /**
+     * Creates a new cipher of this suite.
+     *
+     * @param encoding the encoding of encrypted content
+     * @return the created cipher
+     * @throws UnsupportedOperationException if this suite is not supported
+     *                                       by the current platform
+     */
+    public ICipher newCipher(PayloadEncoding encoding) {
+        return factory.apply(Objects.requireNonNull(encoding));
+    }
+
+    /**
+     * Returns whether this suite is supported by the current platform. For
+     * instance, ChaCha20-Poly1305 requires Java 11 or Android 9.
+     *
+     * @return whether ciphers of this suite can be created
+     */
+    public boolean isAvailable() {
+        try {
+            return newCipher() != null;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + id + ")";
+    }
+}
@@ -19,10 +19,14 @@ package io.github.proto4j.crypto; //@date 23.01.2023
 import javax.crypto.*;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.security.*;
 import java.security.spec.AlgorithmParameterSpec;
-import java.util.Base64;
+import java.util.Arrays;
 
 /**
  * Basic implementation of a {@code java.security} cipher engine. Is it using
@@ -52,6 +56,15 @@ import java.util.Base64;
  * | decrypted JAR: byte[] |
  * +-----------------------+
  * </pre>
+ * Decryption can also be done in chunks with {@link #newInputStream(InputStream)},
+ * which chains the Base64 decoder and {@link Cipher#update(byte[])} without
+ * creating a copy of the whole content.
+ * {@link #newChannel(java.nio.channels.ReadableByteChannel)} and
+ * {@link #doFinal(ByteBuffer, ByteBuffer)} decrypt directly into the given
+ * (possibly direct) buffers.
+ * <p>
+ * Instead of Base64, the encrypted content can be encoded with the more compact
+ * {@link Base128} encoding. Both encodings are detected when decrypting.
  *
  * @see ICipher
  */
@@ -85,6 +98,19 @@ final class DefaultAESCipher implements ICipher {
      */
     private SecretKey key;
 
+    /**
+     * The encoding applied to encrypted content.
+     */
+    private final PayloadEncoding encoding;
+
+    DefaultAESCipher() {
+        this(PayloadEncoding.BASE64);
+    }
+
+    DefaultAESCipher(PayloadEncoding encoding) {
+        this.encoding = encoding;
+    }
+
     /**
      * Returns the initialization vector (IV) in a new buffer.
      *
@@ -104,9 +130,7 @@ final class DefaultAESCipher implements ICipher {
         if (key == null) {
             throw new InvalidKeyException("key is null");
         }
-        if (!(key instanceof SecretKey)) {
-            throw new InvalidKeyException("Key is not a secret key");
-        }
+        SecretKey secretKey = checkKey(key);
 
         this.mode = mode;
         if (mode != Cipher.ENCRYPT_MODE && mode != Cipher.DECRYPT_MODE) {
@@ -119,7 +143,7 @@ final class DefaultAESCipher implements ICipher {
                     this.aes = Cipher.getInstance("AES/CBC/PKCS5Padding");
                 }
             }
-            this.key = (SecretKey) key;
+            this.key = secretKey;
         } catch (NoSuchPaddingException | NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
@@ -148,34 +172,15 @@ final class DefaultAESCipher implements ICipher {
      * @throws IllegalBlockSizeException if the decoded content is smaller than 16 bytes
      */
     private synchronized byte[] doDecrypt(byte[] bytes) throws IllegalBlockSizeException {
-        byte[] result;
-        byte[] iv;
-        byte[] content;
-        byte[] secretKey = key.getEncoded();
-
-        if (secretKey.length != 16) {
-            throw new IllegalBlockSizeException("Key.length != 16");
+        if (key == null) {
+            throw new IllegalBlockSizeException("Cipher not initialized");
         }
-
         try {
-            byte[] decoded = Base64.getDecoder().decode(bytes);
-            if (decoded.length <= 16) {
-                throw new BadPaddingException("Content.length <= 16");
-            }
-
-            ByteBuffer buffer = ByteBuffer.allocate(decoded.length);
-            buffer.put(decoded).flip();
-
-            iv = new byte[16];
-            content = new byte[decoded.length - 16];
-            buffer.get(iv);
-            buffer.get(content);
-
             synchronized (aesInitLock) {
-                aes.init(mode, key, new IvParameterSpec(iv));
-                result = aes.doFinal(content);
+                return decrypt(aes, key, bytes);
             }
-            return result;
+        } catch (IllegalBlockSizeException e) {
+            throw e;
         } catch (GeneralSecurityException e) {
             throw new IllegalStateException(e);
         }
@@ -189,40 +194,75 @@ final class DefaultAESCipher implements ICipher {
      * @throws IllegalBlockSizeException if the key length is not 16 bytes
      */
     private synchronized byte[] doEncrypt(byte[] bytes) throws IllegalBlockSizeException {
-        byte[] result;
-        byte[] iv;
-        byte[] secretKey = key.getEncoded();
-
-        if (secretKey.length != 16) {
-            throw new IllegalBlockSizeException("Key.length != 16");
+        if (key == null) {
+            throw new IllegalBlockSizeException("Cipher not initialized");
         }
-
         try {
             synchronized (aesInitLock) {
-                aes.init(mode, key, (SecureRandom) null);
-                result = aes.doFinal(bytes);
-                iv = getIV();
+                return encrypt(aes, key, bytes, encoding);
             }
-
-            int len = result.length + iv.length;
-            ByteBuffer buffer = ByteBuffer.allocate(len);
-            buffer.put(iv);
-            buffer.put(result).flip();
-
-            byte[] finalResult = new byte[len];
-            buffer.get(finalResult);
-            return Base64.getEncoder().encode(finalResult);
+        } catch (IllegalBlockSizeException e) {
+            throw e;
         } catch (GeneralSecurityException e) {
             throw new IllegalStateException(e);
         }
     }
 
+    /**
+     * Decrypts the given Base64 or Base128 encoded content with the given
+     * cipher instance, which is initialized with the IV stored in front of
+     * the content.
+     */
+    static byte[] decrypt(Cipher aes, SecretKey key, byte[] bytes) throws GeneralSecurityException {
+        byte[] decoded = PayloadEncoding.decode(bytes);
+        if (decoded.length <= 16) {
+            throw new BadPaddingException("Content.length <= 16");
+        }
+
+        aes.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(decoded, 0, 16));
+        return aes.doFinal(decoded, 16, decoded.length - 16);
+    }
+
+    /**
+     * Encrypts the given content with the given cipher instance and a random
+     * IV, which is stored in front of the encoded result.
+     */
+    static byte[] encrypt(Cipher aes, SecretKey key, byte[] bytes, PayloadEncoding encoding)
+            throws GeneralSecurityException {
+        aes.init(Cipher.ENCRYPT_MODE, key, (SecureRandom) null);
+        byte[] iv = aes.getIV();
+        byte[] result = new byte[iv.length + aes.getOutputSize(bytes.length)];
+        System.arraycopy(iv, 0, result, 0, iv.length);
+        int len = aes.doFinal(bytes, 0, bytes.length, result, iv.length);
+        if (iv.length + len != result.length) {
+            result = Arrays.copyOf(result, iv.length + len);
+        }
+        return encoding.encode(result);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The session keeps a pool of {@code AES/CBC/PKCS5Padding} ciphers, so
+     * concurrent operations do not have to wait for each other.
+     */
+    @Override
+    public CipherSession newSession(int mode, Key key) throws InvalidKeyException {
+        return new PooledCipherSession("AES/CBC/PKCS5Padding", mode, checkKey(key),
+                (aes, opmode, secretKey, input) -> opmode == Cipher.DECRYPT_MODE
+                        ? decrypt(aes, secretKey, input)
+                        : encrypt(aes, secretKey, input, encoding));
+    }
+
     public byte[] doFinal(byte[] input) throws IllegalBlockSizeException {
         return doFinal(input, 0, input.length);
     }
 
     public byte[] doFinal(byte[] input, int inputOffset, int inputLen) throws IllegalBlockSizeException {
         byte[] result = new byte[0];
+        if (inputOffset != 0 || inputLen != input.length) {
+            input = Arrays.copyOfRange(input, inputOffset, inputOffset + inputLen);
+        }
 
         if (mode == Cipher.DECRYPT_MODE) {
             result = doDecrypt(input);
@@ -234,4 +274,129 @@ final class DefaultAESCipher implements ICipher {
         return result;
     }
 
+    /**
+     * Checks that the given key is a 128-bit secret key. The length is only
+     * checked when a cipher or a session is initialized, so the key material
+     * is not copied on every operation.
+     *
+     * @param key the key to check
+     * @return the given key
+     * @throws InvalidKeyException if the key is not a 128-bit secret key
+     */
+    static SecretKey checkKey(Key key) throws InvalidKeyException {
+        if (!(key instanceof SecretKey)) {
+            throw new InvalidKeyException("Key is not a secret key");
+        }
+        byte[] encoded = key.getEncoded();
+        if (encoded == null || encoded.length != 16) {
+            throw new InvalidKeyException("Key.length != 16");
+        }
+        Arrays.fill(encoded, (byte) 0);
+        return (SecretKey) key;
+    }
+
+    /**
+     * Reads the 16 byte initialization vector that is stored in front of
+     * the encrypted content.
+     *
+     * @param decoded the decoded stream
+     * @return the initialization vector
+     * @throws IOException if the stream ends before the IV has been read
+     */
+    static byte[] readIV(InputStream decoded) throws IOException {
+        byte[] iv = new byte[16];
+        int count = 0;
+        while (count < iv.length) {
+            int len = decoded.read(iv, count, iv.length - count);
+            if (len == -1) {
+                throw new IOException("Content.length <= 16");
+            }
+            count += len;
+        }
+        return iv;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In decryption mode, the given stream has to return the Base64 or
+     * Base128 encoded content. It is decoded and decrypted in chunks by a separate cipher
+     * instance, so no lock is held while the returned stream is read.
+     *
+     * @param in {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public InputStream newInputStream(InputStream in) throws IOException {
+        if (mode != Cipher.DECRYPT_MODE) {
+            return ICipher.super.newInputStream(in);
+        }
+
+        InputStream decoded = PayloadEncoding.decode(in);
+        return new CipherInputStream(decoded, newStreamCipher(decoded));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In decryption mode, the content is decrypted directly into the buffers
+     * passed to the returned channel.
+     */
+    @Override
+    public ReadableByteChannel newChannel(ReadableByteChannel in) throws IOException {
+        if (mode != Cipher.DECRYPT_MODE) {
+            return ICipher.super.newChannel(in);
+        }
+
+        InputStream decoded = PayloadEncoding.decode(Channels.newInputStream(in));
+        return new CipherChannel(decoded, newStreamCipher(decoded));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In decryption mode, the content is decrypted by a separate cipher
+     * instance directly into the output buffer.
+     */
+    @Override
+    public int doFinal(ByteBuffer input, ByteBuffer output) throws IllegalBlockSizeException, ShortBufferException {
+        if (mode != Cipher.DECRYPT_MODE) {
+            return ICipher.super.doFinal(input, output);
+        }
+
+        SecretKey secretKey = key;
+        key = null;
+        if (secretKey == null) {
+            throw new IllegalBlockSizeException("Cipher not initialized");
+        }
+        return CipherBuffers.decrypt(input, output, 16, iv -> {
+            Cipher aes = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            aes.init(Cipher.DECRYPT_MODE, secretKey, new IvParameterSpec(iv));
+            return aes;
+        });
+    }
+
+    /**
+     * Creates a separate cipher instance for the stored key and the IV read
+     * from the given stream, so no lock is held while the content is
+     * decrypted. The key is consumed by this call.
+     */
+    private Cipher newStreamCipher(InputStream decoded) throws IOException {
+        SecretKey secretKey = key;
+        key = null;
+        if (secretKey == null) {
+            throw new IOException("Cipher not initialized");
+        }
+
+        byte[] iv = readIV(decoded);
+        try {
+            Cipher stream = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            stream.init(Cipher.DECRYPT_MODE, secretKey, new IvParameterSpec(iv));
+            return stream;
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
 }
@@ -17,6 +17,14 @@
 package io.github.proto4j.crypto;//@date 23.01.2023
 
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.SecureRandom;
@@ -27,6 +35,7 @@ import java.security.spec.AlgorithmParameterSpec;
  * encrypt ESA files.
  *
  * @see DefaultAESCipher
+ * @see CipherSuite
  */
 public interface ICipher {
 
@@ -39,6 +48,42 @@ public interface ICipher {
         return new DefaultAESCipher();
     }
 
+    /**
+     * Creates a new {@link DefaultAESCipher} instance that encodes encrypted
+     * content with the given encoding.
+     *
+     * @param encoding the encoding of encrypted content
+     * @return the created cipher
+     */
+    public static ICipher newDefaultInstance(PayloadEncoding encoding) {
+        return new DefaultAESCipher(encoding);
+    }
+
+    /**
+     * Creates a new cipher instance that uses AES in counter mode. Large
+     * inputs are split into segments, which are encrypted and decrypted
+     * in parallel on the common {@code ForkJoinPool}.
+     *
+     * @param encoding the encoding of encrypted content
+     * @return the created cipher
+     * @see SegmentedAESCipher
+     */
+    public static ICipher newSegmentedInstance(PayloadEncoding encoding) {
+        return new SegmentedAESCipher(encoding);
+    }
+
+    /**
+     * Creates a new cipher instance that uses AES in Galois/Counter mode,
+     * which authenticates the content while decrypting it.
+     *
+     * @param encoding the encoding of encrypted content
+     * @return the created cipher
+     * @see AuthenticatedAESCipher
+     */
+    public static ICipher newAuthenticatedInstance(PayloadEncoding encoding) {
+        return new AuthenticatedAESCipher(encoding);
+    }
+
     /**
      * Gets the current operating mode.
      *
@@ -132,4 +177,142 @@ public interface ICipher {
      */
     public byte[] doFinal(byte[] input, int offset, int length)
             throws IllegalBlockSizeException;
+
+    /**
+     * Encrypts or decrypts all remaining bytes of the input buffer in a
+     * single-part operation and stores the result in the output buffer,
+     * starting at its position. Both buffers can be direct buffers.
+     * <p>
+     * On success, the position of the input buffer is equal to its limit
+     * and the position of the output buffer is advanced by the number of
+     * stored bytes. Like {@link #doFinal(byte[])}, this method completes the
+     * operation, so this cipher has to be initialized again afterwards,
+     * even if an exception has been thrown.
+     * <p>
+     * The default implementation calls {@link #doFinal(byte[], int, int)}
+     * and copies the result. Implementations should override this method
+     * to process the buffers without intermediate copies.
+     *
+     * @param input the input buffer
+     * @param output the output buffer
+     * @return the number of bytes stored in the output buffer
+     * @throws IllegalBlockSizeException if the input could not be processed
+     * @throws ShortBufferException if the output buffer is too small to hold
+     *                              the result
+     */
+    public default int doFinal(ByteBuffer input, ByteBuffer output)
+            throws IllegalBlockSizeException, ShortBufferException {
+        byte[] result;
+        if (input.hasArray()) {
+            result = doFinal(input.array(), input.arrayOffset() + input.position(), input.remaining());
+        } else {
+            byte[] content = new byte[input.remaining()];
+            input.duplicate().get(content);
+            result = doFinal(content);
+        }
+
+        if (output.remaining() < result.length) {
+            throw new ShortBufferException("Output buffer too small: " + output.remaining()
+                    + " < " + result.length);
+        }
+        input.position(input.limit());
+        output.put(result);
+        return result.length;
+    }
+
+    /**
+     * Returns whether this cipher authenticates the content, so that modified
+     * or truncated content is rejected when decrypting.
+     *
+     * @return whether the content is authenticated
+     */
+    public default boolean isAuthenticated() {
+        return false;
+    }
+
+    /**
+     * Sets additional authenticated data (AAD) for the next operation. The
+     * data is not encrypted, but it has to be the same when encrypting and
+     * decrypting. It is reset when the cipher is initialized again.
+     * <p>
+     * The default implementation ignores the data, because only
+     * authenticated ciphers can verify it.
+     *
+     * @param aad the additional authenticated data
+     * @see #isAuthenticated()
+     */
+    public default void updateAAD(byte[] aad) {
+    }
+
+    /**
+     * Creates a session that is bound to the given mode and key and can be
+     * used for any number of operations by any number of threads. The state
+     * of this cipher is not changed.
+     * <p>
+     * The default implementation initializes this cipher before every
+     * operation of the session while holding the lock of this cipher.
+     * Implementations should override this method to process concurrent
+     * operations independently.
+     *
+     * @param mode the operation mode of the session (this is one of
+     *         the following: <code>ENCRYPT_MODE</code>, <code>DECRYPT_MODE</code>
+     * @param key the key used by the session, which is destroyed when the
+     *         session is closed (if possible)
+     * @return the created session
+     * @throws InvalidKeyException if the given key is inappropriate for
+     *                             this cipher
+     */
+    public default CipherSession newSession(int mode, Key key) throws InvalidKeyException {
+        if (key == null) {
+            throw new InvalidKeyException("key is null");
+        }
+        return new LockingCipherSession(this, mode, key);
+    }
+
+    /**
+     * Returns an {@code InputStream} that reads the data of the given stream
+     * and encrypts or decrypts it, depending on how this cipher was
+     * initialized. The returned stream completes the operation, so this
+     * cipher has to be initialized again afterwards.
+     * <p>
+     * The default implementation reads the whole input and calls
+     * {@link #doFinal(byte[])}. Implementations should override this method
+     * to process the data in bounded chunks instead.
+     *
+     * @param in the source stream
+     * @return the stream returning the processed data
+     * @throws IOException if the source stream could not be read or if the
+     *                     data could not be processed
+     */
+    public default InputStream newInputStream(InputStream in) throws IOException {
+        byte[] buffer = new byte[4096];
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                bos.write(buffer, 0, len);
+            }
+            return new ByteArrayInputStream(doFinal(bos.toByteArray()));
+        } catch (IllegalBlockSizeException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Returns a channel that reads the data of the given channel and encrypts
+     * or decrypts it, depending on how this cipher was initialized. Like
+     * {@link #newInputStream(InputStream)}, the returned channel completes
+     * the operation.
+     * <p>
+     * The default implementation adapts {@link #newInputStream(InputStream)}.
+     * Implementations should override this method to write the processed
+     * data directly into the buffers passed to the returned channel.
+     *
+     * @param in the source channel
+     * @return the channel returning the processed data
+     * @throws IOException if the source channel could not be read or if the
+     *                     data could not be processed
+     */
+    public default ReadableByteChannel newChannel(ReadableByteChannel in) throws IOException {
+        return Channels.newChannel(newInputStream(Channels.newInputStream(in)));
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 16.10.2026
+
+import javax.crypto.IllegalBlockSizeException;
+import javax.security.auth.DestroyFailedException;
+import javax.security.auth.Destroyable;
+import java.security.InvalidKeyException;
+import java.security.Key;
+
+/**
+ * The default {@link CipherSession} for {@link ICipher} implementations that
+ * do not provide their own sessions. It initializes the cipher before every
+ * operation while holding the lock of the cipher.
+ */
+final class LockingCipherSession implements CipherSession {
+
+    private final ICipher cipher;
+    private final int mode;
+    private volatile Key key;
+
+    LockingCipherSession(ICipher cipher, int mode, Key key) {
+        this.cipher = cipher;
+        this.mode   = mode;
+        this.key    = key;
+    }
+
+    @Override
+    public int getMode() {
+        return mode;
+    }
+
+    @Override
+    public byte[] doFinal(byte[] input) throws IllegalBlockSizeException {
+        Key secretKey = key;
+        if (secretKey == null) {
+            throw new IllegalStateException("Session closed");
+        }
+
+        synchronized (cipher) {
+            try {
+                cipher.init(mode, secretKey);
+            } catch (InvalidKeyException e) {
+                throw new IllegalStateException(e);
+            }
+            return cipher.doFinal(input);
+        }
+    }
+
+    @Override
+    public void close() {
+        Key secretKey = key;
+        key = null;
+        if (secretKey instanceof Destroyable && !((Destroyable) secretKey).isDestroyed()) {
+            try {
+                ((Destroyable) secretKey).destroy();
+            } catch (DestroyFailedException ignored) {
+                // keys like SecretKeySpec can not be destroyed
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 16.10.2026
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Base64;
+
+/**
+ * The text encoding that is applied to encrypted content, so it can be stored
+ * in a {@code String} constant. Decryption detects the encoding automatically.
+ *
+ * @see ICipher#newDefaultInstance(PayloadEncoding)
+ */
+public enum PayloadEncoding {
+
+    /**
+     * Standard Base64 encoding (6 bits per character). This is the default.
+     */
+    BASE64,
+
+    /**
+     * The compact {@link Base128} encoding (7 bits per character).
+     */
+    BASE128;
+
+    /**
+     * Encodes the given content with this encoding.
+     *
+     * @param content the binary content
+     * @return the encoded content
+     */
+    byte[] encode(byte[] content) {
+        return this == BASE128
+                ? Base128.encode(content)
+                : Base64.getEncoder().encode(content);
+    }
+
+    /**
+     * Decodes the given content, which can be encoded with any of the
+     * supported encodings.
+     *
+     * @param content the encoded content
+     * @return the binary content
+     * @throws IllegalArgumentException if the content is not encoded properly
+     */
+    static byte[] decode(byte[] content) {
+        return Base128.isEncoded(content)
+                ? Base128.decode(content)
+                : Base64.getDecoder().decode(content);
+    }
+
+    /**
+     * Wraps the given stream, which can return content in any of the
+     * supported encodings, into a decoding stream.
+     *
+     * @param in the encoded stream
+     * @return the decoding stream
+     * @throws IOException if the first byte could not be read
+     */
+    static InputStream decode(InputStream in) throws IOException {
+        PushbackInputStream source = new PushbackInputStream(in, 1);
+        int first = source.read();
+        if (first != -1 && first != Base128.MARKER) {
+            source.unread(first);
+        }
+        return first == Base128.MARKER
+                ? Base128.wrap(source)
+                : Base64.getDecoder().wrap(source);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 16.10.2026
+
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.SecretKey;
+import javax.security.auth.DestroyFailedException;
+import javax.security.auth.Destroyable;
+import java.security.GeneralSecurityException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A {@link CipherSession} that keeps a pool of JCE {@link Cipher} instances.
+ * Every operation takes an instance from the pool (or creates a new one if
+ * the pool is empty) and returns it afterwards, so the number of instances
+ * is bounded by the number of concurrent callers and no lock is held while
+ * processing the data.
+ */
+final class PooledCipherSession implements CipherSession {
+
+    /**
+     * A single operation on a cipher instance that has been taken from the
+     * pool.
+     */
+    interface Operation {
+        byte[] apply(Cipher cipher, int mode, SecretKey key, byte[] input)
+                throws GeneralSecurityException;
+    }
+
+    private final Queue<Cipher> pool = new ConcurrentLinkedQueue<>();
+    private final String transformation;
+    private final int mode;
+    private final SecretKey key;
+    private final Operation operation;
+
+    private volatile boolean closed;
+
+    PooledCipherSession(String transformation, int mode, SecretKey key, Operation operation) {
+        if (mode != Cipher.ENCRYPT_MODE && mode != Cipher.DECRYPT_MODE) {
+            throw new UnsupportedOperationException("Cipher mode not supported");
+        }
+        this.transformation = transformation;
+        this.mode           = mode;
+        this.key            = key;
+        this.operation      = operation;
+    }
+
+    @Override
+    public int getMode() {
+        return mode;
+    }
+
+    @Override
+    public byte[] doFinal(byte[] input) throws IllegalBlockSizeException {
+        if (closed) {
+            throw new IllegalStateException("Session closed");
+        }
+
+        Cipher cipher = pool.poll();
+        try {
+            if (cipher == null) {
+                cipher = Cipher.getInstance(transformation);
+            }
+            byte[] result = operation.apply(cipher, mode, key, input);
+            if (!closed) {
+                pool.offer(cipher);
+            }
+            return result;
+        } catch (IllegalBlockSizeException e) {
+            throw e;
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        pool.clear();
+        if (key instanceof Destroyable && !((Destroyable) key).isDestroyed()) {
+            try {
+                ((Destroyable) key).destroy();
+            } catch (DestroyFailedException ignored) {
+                // keys like SecretKeySpec can not be destroyed
+            }
+        }
+    }
+}
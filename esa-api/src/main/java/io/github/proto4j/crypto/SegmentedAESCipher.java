@@ -0,0 +1,434 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto; //@date 16.10.2026
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Cipher engine using {@code AES/CTR/NoPadding}. The encrypted content is
+ * stored in the same layout as of the {@link DefaultAESCipher}: the IV
+ * followed by the ciphertext, encoded with Base64 or {@link Base128}.
+ * <p>
+ * In counter mode, the counter of every block can be derived from the IV
+ * and the block index. Therefore, large inputs are split into segments of
+ * {@link #getSegmentSize()} bytes, which are encrypted or decrypted in
+ * parallel on a {@link ForkJoinPool}, each with its own {@link Cipher}:
+ * <pre>
+ * +--------------+------------+------------+-----+
+ * | iv: byte[16] | segment 0  | segment 1  | ... |
+ * +--------------+-----+------+-----+------+-----+
+ *                      |            |
+ *        counter = iv + 0     counter = iv + segmentSize / 16
+ * </pre>
+ * Note that counter mode does not authenticate the content, and the same
+ * key must not be used with a repeated IV.
+ *
+ * @see ICipher#newSegmentedInstance(PayloadEncoding)
+ */
+final class SegmentedAESCipher implements ICipher {
+
+    /**
+     * The default number of bytes per segment.
+     */
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+
+    /**
+     * The AES block size.
+     */
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * The transformation used for every segment.
+     */
+    private static final String TRANSFORMATION = "AES/CTR/NoPadding";
+
+    /**
+     * The number of bytes per segment (a multiple of the block size).
+     */
+    private final int segmentSize;
+
+    /**
+     * The pool the segments are processed on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The encoding applied to encrypted content.
+     */
+    private final PayloadEncoding encoding;
+
+    /**
+     * Used to create the initialization vectors.
+     */
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * The current cipher state.
+     */
+    private volatile int mode;
+
+    /**
+     * The {@link SecretKey} for the AES algorithm.
+     */
+    private SecretKey key;
+
+    SegmentedAESCipher(PayloadEncoding encoding) {
+        this(encoding, DEFAULT_SEGMENT_SIZE, ForkJoinPool.commonPool());
+    }
+
+    SegmentedAESCipher(PayloadEncoding encoding, int segmentSize, ForkJoinPool pool) {
+        if (segmentSize <= 0 || segmentSize % BLOCK_SIZE != 0) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+        this.encoding = encoding;
+        this.segmentSize = segmentSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the number of bytes that are processed by one task.
+     *
+     * @return the segment size
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    @Override
+    public int getMode() {
+        return mode;
+    }
+
+    @Override
+    public synchronized void init(int mode, Key key, SecureRandom random) throws InvalidKeyException {
+        if (key == null) {
+            throw new InvalidKeyException("key is null");
+        }
+        if (mode != Cipher.ENCRYPT_MODE && mode != Cipher.DECRYPT_MODE) {
+            throw new UnsupportedOperationException("Cipher mode not supported");
+        }
+        SecretKey secretKey = DefaultAESCipher.checkKey(key);
+        this.mode = mode;
+        this.key = secretKey;
+    }
+
+    @Override
+    public void init(int mode, Key key) throws InvalidKeyException {
+        init(mode, key, (SecureRandom) null);
+    }
+
+    @Override
+    public void init(int mode, Key key, AlgorithmParameterSpec spec) throws InvalidKeyException {
+        init(mode, key);
+    }
+
+    @Override
+    public byte[] doFinal(byte[] input) throws IllegalBlockSizeException {
+        return doFinal(input, 0, input.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The key is consumed by this call, so the segments are processed
+     * without holding the lock of this cipher.
+     */
+    @Override
+    public byte[] doFinal(byte[] input, int offset, int length) throws IllegalBlockSizeException {
+        SecretKey secretKey;
+        int opmode;
+        synchronized (this) {
+            secretKey = key;
+            opmode = mode;
+            key = null;
+        }
+        if (secretKey == null) {
+            throw new IllegalBlockSizeException("Cipher not initialized");
+        }
+
+        if (opmode == Cipher.ENCRYPT_MODE) {
+            byte[] iv = new byte[BLOCK_SIZE];
+            random.nextBytes(iv);
+
+            byte[] result = new byte[BLOCK_SIZE + length];
+            System.arraycopy(iv, 0, result, 0, BLOCK_SIZE);
+            process(secretKey, iv, ByteBuffer.wrap(input, offset, length), ByteBuffer.wrap(result, BLOCK_SIZE, length));
+            return encoding.encode(result);
+        }
+
+        byte[] decoded;
+        try {
+            decoded = PayloadEncoding.decode(offset == 0 && length == input.length
+                    ? input : Arrays.copyOfRange(input, offset, offset + length));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException(e);
+        }
+        if (decoded.length < BLOCK_SIZE) {
+            throw new IllegalStateException("Content.length < 16");
+        }
+
+        byte[] iv = new byte[BLOCK_SIZE];
+        System.arraycopy(decoded, 0, iv, 0, BLOCK_SIZE);
+        byte[] result = new byte[decoded.length - BLOCK_SIZE];
+        process(secretKey, iv, ByteBuffer.wrap(decoded, BLOCK_SIZE, result.length), ByteBuffer.wrap(result));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The session keeps a pool of {@code AES/CTR/NoPadding} ciphers and
+     * processes every input on the calling thread, as sessions are meant
+     * for many small operations.
+     */
+    @Override
+    public CipherSession newSession(int mode, Key key) throws InvalidKeyException {
+        return new PooledCipherSession(TRANSFORMATION, mode, DefaultAESCipher.checkKey(key), (aes, opmode, secretKey, input) -> {
+            if (opmode == Cipher.ENCRYPT_MODE) {
+                byte[] iv = new byte[BLOCK_SIZE];
+                random.nextBytes(iv);
+                byte[] result = Arrays.copyOf(iv, BLOCK_SIZE + input.length);
+                aes.init(Cipher.ENCRYPT_MODE, secretKey, new IvParameterSpec(iv));
+                aes.doFinal(input, 0, input.length, result, BLOCK_SIZE);
+                return encoding.encode(result);
+            }
+
+            byte[] decoded = PayloadEncoding.decode(input);
+            if (decoded.length < BLOCK_SIZE) {
+                throw new IllegalBlockSizeException("Content.length < 16");
+            }
+            aes.init(Cipher.DECRYPT_MODE, secretKey, new IvParameterSpec(decoded, 0, BLOCK_SIZE));
+            return aes.doFinal(decoded, BLOCK_SIZE, decoded.length - BLOCK_SIZE);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In decryption mode, the content is decrypted sequentially while the
+     * returned stream is read. Callers that decrypt several streams (for
+     * instance the segments of an ESA file) can read them in parallel.
+     */
+    @Override
+    public InputStream newInputStream(InputStream in) throws IOException {
+        if (mode != Cipher.DECRYPT_MODE) {
+            return ICipher.super.newInputStream(in);
+        }
+
+        SecretKey secretKey;
+        synchronized (this) {
+            secretKey = key;
+            key = null;
+        }
+        if (secretKey == null) {
+            throw new IOException("Cipher not initialized");
+        }
+
+        InputStream decoded = PayloadEncoding.decode(in);
+        byte[] iv = DefaultAESCipher.readIV(decoded);
+        try {
+            Cipher stream = Cipher.getInstance(TRANSFORMATION);
+            stream.init(Cipher.DECRYPT_MODE, secretKey, new IvParameterSpec(iv));
+            return new CipherInputStream(decoded, stream);
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In decryption mode, the content is decrypted directly into the buffers
+     * passed to the returned channel.
+     */
+    @Override
+    public ReadableByteChannel newChannel(ReadableByteChannel in) throws IOException {
+        if (mode != Cipher.DECRYPT_MODE) {
+            return ICipher.super.newChannel(in);
+        }
+
+        SecretKey secretKey;
+        synchronized (this) {
+            secretKey = key;
+            key = null;
+        }
+        if (secretKey == null) {
+            throw new IOException("Cipher not initialized");
+        }
+
+        InputStream decoded = PayloadEncoding.decode(Channels.newInputStream(in));
+        byte[] iv = DefaultAESCipher.readIV(decoded);
+        try {
+            Cipher stream = Cipher.getInstance(TRANSFORMATION);
+            stream.init(Cipher.DECRYPT_MODE, secretKey, new IvParameterSpec(iv));
+            return new CipherChannel(decoded, stream);
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In decryption mode, the segments are decrypted in parallel directly
+     * into the output buffer.
+     */
+    @Override
+    public int doFinal(ByteBuffer input, ByteBuffer output) throws IllegalBlockSizeException, ShortBufferException {
+        SecretKey secretKey;
+        synchronized (this) {
+            if (mode != Cipher.DECRYPT_MODE) {
+                return ICipher.super.doFinal(input, output);
+            }
+            secretKey = key;
+            key = null;
+        }
+        if (secretKey == null) {
+            throw new IllegalBlockSizeException("Cipher not initialized");
+        }
+
+        ByteBuffer decoded;
+        try {
+            decoded = CipherBuffers.decode(input);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException(e);
+        }
+        if (decoded.remaining() < BLOCK_SIZE) {
+            throw new IllegalBlockSizeException("Content.length < 16");
+        }
+
+        byte[] iv = new byte[BLOCK_SIZE];
+        decoded.get(iv);
+        int length = decoded.remaining();
+        if (output.remaining() < length) {
+            throw new ShortBufferException("Output buffer too small: " + output.remaining() + " < " + length);
+        }
+
+        process(secretKey, iv, decoded, output);
+        input.position(input.limit());
+        output.position(output.position() + length);
+        return length;
+    }
+
+    /**
+     * Encrypts or decrypts the remaining content of the input buffer into
+     * the output buffer. Inputs larger than one segment are split into
+     * segments that are processed in parallel. The positions of the given
+     * buffers are not changed.
+     */
+    private void process(SecretKey secretKey, byte[] iv, ByteBuffer input, ByteBuffer output) {
+        int count = (input.remaining() + segmentSize - 1) / segmentSize;
+        SegmentAction action = new SegmentAction(secretKey, iv, input, output, 0, count);
+        if (count <= 1) {
+            action.compute();
+        } else {
+            pool.invoke(action);
+        }
+    }
+
+    /**
+     * Returns the counter block for the block with the given index, which is
+     * the IV incremented by the index (as a 128-bit big-endian number).
+     *
+     * @param iv the initialization vector
+     * @param block the block index
+     * @return the counter block
+     */
+    static byte[] getCounter(byte[] iv, long block) {
+        byte[] counter = iv.clone();
+        long carry = block;
+        for (int i = counter.length - 1; i >= 0 && carry != 0; i--) {
+            long sum = (counter[i] & 0xFF) + (carry & 0xFF);
+            counter[i] = (byte) sum;
+            carry = (carry >>> 8) + (sum >>> 8);
+        }
+        return counter;
+    }
+
+    /**
+     * Processes a range of segments, splitting it until a single segment is
+     * left.
+     */
+    @SuppressWarnings("serial") // fork-join tasks are never serialized
+    private final class SegmentAction extends RecursiveAction {
+
+        private final SecretKey secretKey;
+        private final byte[] iv;
+        private final ByteBuffer input;
+        private final ByteBuffer output;
+        private final int from;
+        private final int to;
+
+        SegmentAction(SecretKey secretKey, byte[] iv, ByteBuffer input, ByteBuffer output, int from, int to) {
+            this.secretKey = secretKey;
+            this.iv = iv;
+            this.input = input;
+            this.output = output;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SegmentAction(secretKey, iv, input, output, from, mid),
+                        new SegmentAction(secretKey, iv, input, output, mid, to));
+                return;
+            }
+
+            try {
+                Cipher aes = Cipher.getInstance(TRANSFORMATION);
+                for (int i = from; i < to; i++) {
+                    int start = i * segmentSize;
+                    int len = Math.min(segmentSize, input.remaining() - start);
+
+                    // every segment works on its own views of the buffers
+                    ByteBuffer in = input.duplicate();
+                    in.position(input.position() + start);
+                    in.limit(in.position() + len);
+                    ByteBuffer out = output.duplicate();
+                    out.position(output.position() + start);
+
+                    aes.init(Cipher.ENCRYPT_MODE, secretKey,
+                            new IvParameterSpec(getCounter(iv, start / BLOCK_SIZE)));
+                    aes.doFinal(in, out);
+                }
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -24,7 +24,9 @@ import java.util.Locale;
 
 /**
  * Reimplementation of the {@link javax.crypto.spec.SecretKeySpec} by Java that
- * destroys the stored secret key upon calling {@link #destroy()}.
+ * destroys the stored secret key upon calling {@link #destroy()}. A destroyed
+ * key throws an {@code IllegalStateException} when its encoded form is
+ * requested.
  *
  * @see javax.crypto.spec.SecretKeySpec
  */
@@ -32,6 +34,7 @@ public class DestroyableSecretKey implements SecretKey {
 
     private final byte[] key;
     private final String algorithm;
+    private volatile boolean destroyed;
 
     public DestroyableSecretKey(SecureSecretKey.Accessor accessor, String algorithm) {
         this(accessor.getEncoded(), algorithm);
@@ -77,6 +80,9 @@ public class DestroyableSecretKey implements SecretKey {
     }
 
     public byte[] getEncoded() {
+        if (destroyed) {
+            throw new IllegalStateException("Key destroyed");
+        }
         return (byte[]) this.key.clone();
     }
 
@@ -116,6 +122,12 @@ public class DestroyableSecretKey implements SecretKey {
             return;
         }
 
+        destroyed = true;
         Arrays.fill(key, (byte)0);
     }
+
+    @Override
+    public boolean isDestroyed() {
+        return destroyed;
+    }
 }
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.crypto.provider; //@date 16.10.2026
+
+import io.github.proto4j.crypto.CipherSession;
+import io.github.proto4j.crypto.key.SecureSecretKey;
+
+import javax.crypto.SecretKey;
+import javax.security.auth.DestroyFailedException;
+import java.security.Key;
+import java.security.KeyException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A key provider that caches the key of another provider, so expensive
+ * providers (for instance, a {@link NativeKeyProvider} or a provider that
+ * derives the key) are not called on every decryption.
+ * <p>
+ * The key material is stored in a single buffer, which is wiped when the
+ * configured time to live has passed, when the key has been requested the
+ * configured number of times or when this provider is closed. The next
+ * request loads the key from the wrapped provider again. Closing an
+ * {@code ESA} closes its key provider as well.
+ * <p>
+ * Each returned key belongs to the material that was cached when it was
+ * requested. As required by {@link Key#getEncoded()}, every call returns a
+ * new copy of the material, which should be wiped by the caller. Once the
+ * material has been wiped, the key is destroyed and throws an
+ * {@code IllegalStateException} instead of loading the key again. Cipher
+ * sessions that keep a copy of the key can be
+ * {@link #attach(Key, CipherSession) attached}, so they are closed together
+ * with the wiping of the cached material.
+ * <pre>
+ *     KeyProvider provider = new CachingKeyProvider(
+ *             new FooLibKeyProvider(), 5, TimeUnit.MINUTES, 10_000);
+ * </pre>
+ * Instances of this class are thread-safe.
+ */
+public final class CachingKeyProvider extends KeyProvider implements AutoCloseable {
+
+    /**
+     * Wipes expired keys. The thread is created on first use and does not
+     * prevent the VM from exiting.
+     */
+    private static volatile ScheduledExecutorService wiper;
+
+    private final KeyProvider delegate;
+    private final long ttlNanos;
+    private final int maxUses;
+
+    /**
+     * Sessions with a copy of the cached key, which are closed when it is
+     * wiped.
+     */
+    private final List<CipherSession> sessions = new ArrayList<>();
+
+    private CachedKey key;
+    private int uses;
+    private boolean closed;
+
+    /**
+     * Creates a new caching provider.
+     *
+     * @param delegate the provider to load the key from
+     * @param ttl the time the key is cached, or {@code 0} to cache it until
+     *         this provider is closed
+     * @param unit the unit of the time to live
+     * @param maxUses the number of requests after which the key is loaded
+     *         again, or {@code 0} for no limit
+     */
+    public CachingKeyProvider(KeyProvider delegate, long ttl, TimeUnit unit, int maxUses) {
+        if (ttl < 0 || maxUses < 0) {
+            throw new IllegalArgumentException("Negative time to live or usage count");
+        }
+        this.delegate = Objects.requireNonNull(delegate);
+        this.ttlNanos = unit.toNanos(ttl);
+        this.maxUses  = maxUses;
+    }
+
+    /**
+     * Returns the cached key. The key is loaded from the wrapped provider if
+     * it is not cached or if it has expired.
+     *
+     * @return a key that reads the cached material
+     * @throws KeyException if the key could not be loaded or if this
+     *                      provider has been closed
+     */
+    @Override
+    public synchronized SecretKey getSecretKey() throws KeyException {
+        if (closed) {
+            throw new KeyException("Key provider closed");
+        }
+        if (key == null || key.isExpired() || (maxUses > 0 && uses >= maxUses)) {
+            load();
+        }
+        uses++;
+        return key;
+    }
+
+    /**
+     * Closes the given session, which owns a copy of a key returned by this
+     * provider, as soon as the cached material is wiped. If the material of
+     * the given key has already been wiped, the session is closed
+     * immediately.
+     *
+     * @param key the key returned by this provider
+     * @param session the session with a copy of the key
+     */
+    public synchronized void attach(Key key, CipherSession session) {
+        Objects.requireNonNull(session);
+        if (key == this.key && !this.key.isExpired()) {
+            sessions.add(session);
+        } else {
+            session.close();
+        }
+    }
+
+    /**
+     * Wipes the cached key material. The next request loads the key from
+     * the wrapped provider again.
+     */
+    public synchronized void expire() {
+        wipe();
+    }
+
+    /**
+     * Wipes the cached key material. Afterwards, this provider and all keys
+     * returned by it can not be used anymore.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        wipe();
+    }
+
+    /**
+     * @return whether this provider has been closed
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private void load() throws KeyException {
+        wipe();
+
+        Key source = delegate.getSecretKey();
+        if (source == null) {
+            throw new KeyException("No key provided");
+        }
+
+        byte[] encoded;
+        if (source instanceof SecureSecretKey) {
+            SecureSecretKey.Accessor accessor = ((SecureSecretKey) source).getAccessor();
+            try {
+                encoded = accessor.getEncoded().clone();
+            } finally {
+                destroy(accessor);
+            }
+        } else {
+            encoded = source.getEncoded();
+        }
+        if (encoded == null || encoded.length == 0) {
+            throw new KeyException("Key does not support encoding");
+        }
+
+        CachedKey current = new CachedKey(encoded, source.getAlgorithm(), System.nanoTime() + ttlNanos);
+        key  = current;
+        uses = 0;
+        if (ttlNanos > 0) {
+            getWiper().schedule(() -> expire(current), ttlNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Destroys the given accessor the way {@link SecureSecretKey.Accessor#close()}
+     * does, but reports a failure as a {@link KeyException}.
+     */
+    private static void destroy(SecureSecretKey.Accessor accessor) throws KeyException {
+        if (accessor.isDestroyed()) {
+            return;
+        }
+        try {
+            accessor.destroy();
+        } catch (DestroyFailedException e) {
+            throw new KeyException(e);
+        }
+    }
+
+    private synchronized void expire(CachedKey expired) {
+        if (key == expired) {
+            wipe();
+        }
+    }
+
+    private void wipe() {
+        if (key != null) {
+            key.wipe();
+            key = null;
+        }
+        for (CipherSession session : sessions) {
+            session.close();
+        }
+        sessions.clear();
+    }
+
+    private static ScheduledExecutorService getWiper() {
+        ScheduledExecutorService executor = wiper;
+        if (executor == null) {
+            synchronized (CachingKeyProvider.class) {
+                executor = wiper;
+                if (executor == null) {
+                    wiper = executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread thread = new Thread(r, "esa-key-wiper");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * The key returned by this provider, which copies the cached material
+     * when its encoded form is requested. It is destroyed when the material
+     * is wiped.
+     */
+    @SuppressWarnings("serial") // the cached material must not leave this provider
+    private final class CachedKey implements SecretKey {
+        private final byte[] material;
+        private final String algorithm;
+        private final long expiresAt;
+        private boolean wiped;
+
+        CachedKey(byte[] material, String algorithm, long expiresAt) {
+            this.material  = material;
+            this.algorithm = algorithm;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        @Override
+        public String getFormat() {
+            return "RAW";
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            synchronized (CachingKeyProvider.this) {
+                if (closed) {
+                    throw new IllegalStateException("Key provider closed");
+                }
+                if (isExpired()) {
+                    throw new IllegalStateException("Key expired");
+                }
+                return material.clone();
+            }
+        }
+
+        @Override
+        public boolean isDestroyed() {
+            synchronized (CachingKeyProvider.this) {
+                return isExpired();
+            }
+        }
+
+        private boolean isExpired() {
+            return wiped || (ttlNanos > 0 && System.nanoTime() - expiresAt >= 0);
+        }
+
+        private void wipe() {
+            Arrays.fill(material, (byte) 0);
+            wiped = true;
+        }
+    }
+}
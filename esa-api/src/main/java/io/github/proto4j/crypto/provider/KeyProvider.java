@@ -38,6 +38,9 @@ import java.security.KeyException;
  * For instance, Android projects might use a custom implementation of this
  * class whereby the {@link #getSecretKey()} method requests the secret key
  * on the internal <code>KeyStore</code> each time its called.
+ * <p>
+ * An ESA calls {@link #getSecretKey()} on every thread that loads classes
+ * or resolves encrypted names, so implementations have to be thread-safe.
  */
 public abstract class KeyProvider {
 
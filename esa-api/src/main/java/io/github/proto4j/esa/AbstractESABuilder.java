@@ -16,9 +16,15 @@
 
 package io.github.proto4j.esa; //@date 28.01.2023
 
+import io.github.proto4j.crypto.CipherSuite;
+import io.github.proto4j.crypto.PayloadEncoding;
 import io.github.proto4j.crypto.provider.KeyProvider;
 import io.github.proto4j.crypto.ICipher;
+import io.github.proto4j.esa.api.ESAHeader;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.NoSuchAlgorithmException;
 import java.util.Objects;
 
 public abstract class AbstractESABuilder<T extends AbstractESABuilder<T>>
@@ -79,4 +85,32 @@ public abstract class AbstractESABuilder<T extends AbstractESABuilder<T>>
         this.cipher = cipher;
         return this0();
     }
+
+    /**
+     * Returns the configured cipher or creates a cipher of the suite the
+     * given ESA file has been encrypted with. The cipher uses the encoding
+     * declared by the {@link ESAHeader} of the file.
+     *
+     * @param file the ESA file to decrypt
+     * @return the cipher to use
+     * @throws IllegalStateException if the cipher suite is unknown
+     * @throws UncheckedIOException if the header is invalid
+     * @throws UnsupportedOperationException if the cipher suite is not
+     *                                       supported by this platform
+     * @see ESAFile#getCipherSuite()
+     */
+    protected ICipher getCipher(ESAFile file) {
+        if (cipher != null) {
+            return cipher;
+        }
+        try {
+            ESAHeader header = ESAHeader.read(file);
+            PayloadEncoding encoding = header != null ? header.getEncoding() : PayloadEncoding.BASE64;
+            return CipherSuite.forId(file.getCipherSuite()).newCipher(encoding);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
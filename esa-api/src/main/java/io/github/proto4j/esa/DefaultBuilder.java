@@ -16,32 +16,17 @@
 
 package io.github.proto4j.esa; //@date 27.01.2023
 
-import io.github.proto4j.crypto.ICipher;
-
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.security.GeneralSecurityException;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 public class DefaultBuilder extends AbstractESABuilder<DefaultBuilder> {
 
-    public DefaultBuilder() {
-        setCipher(ICipher.newDefaultInstance());
-    }
-
     @Override
     public ESA finish() {
-        Objects.requireNonNull(configuration, "config");
-        Objects.requireNonNull(keyProvider, "provider");
-        Objects.requireNonNull(content, "content");
-        Objects.requireNonNull(cipher, "cipher");
-
-        ESA jar = new DefaultESA(keyProvider, cipher, configuration);
-
-        if (!(content instanceof ESAFile)) {
-            throw new ClassFormatError("Invalid output object of type " + content.getClass().getName());
-        }
-
+        ESA jar = create();
         try {
             jar.load((ESAFile) content);
         } catch (GeneralSecurityException e) {
@@ -52,6 +37,22 @@ public class DefaultBuilder extends AbstractESABuilder<DefaultBuilder> {
         return jar;
     }
 
+    @Override
+    public CompletableFuture<ESA> finishAsync() {
+        return create().loadAsync((ESAFile) content);
+    }
+
+    private ESA create() {
+        Objects.requireNonNull(configuration, "config");
+        Objects.requireNonNull(keyProvider, "provider");
+        Objects.requireNonNull(content, "content");
+
+        if (!(content instanceof ESAFile)) {
+            throw new ClassFormatError("Invalid output object of type " + content.getClass().getName());
+        }
+        return new DefaultESA(keyProvider, getCipher((ESAFile) content), configuration);
+    }
+
     @Override
     protected DefaultBuilder this0() {
         return this;
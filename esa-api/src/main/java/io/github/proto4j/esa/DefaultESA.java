@@ -18,30 +18,90 @@ package io.github.proto4j.esa; //@date 27.01.2023
 
 import io.github.proto4j.crypto.ICipher;
 import io.github.proto4j.crypto.provider.KeyProvider;
+import io.github.proto4j.esa.api.ArchiveIndex;
 import io.github.proto4j.esa.api.ByteCodeClassLoader;
+import io.github.proto4j.esa.api.CharSequenceInputStream;
+import io.github.proto4j.esa.api.ESAHeader;
+import io.github.proto4j.esa.api.EntryContainer;
 import io.github.proto4j.esa.api.TypeClassLoader;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
 
 import javax.crypto.Cipher;
 import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.security.GeneralSecurityException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 
 final class DefaultESA extends ESABase {
 
-    private final Map<String, Class<?>> loadedClasses = new HashMap<>();
+    /**
+     * The initial size of the buffer used to read class files.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Map<String, Class<?>> loadedClasses = new ConcurrentHashMap<>();
+
+    /**
+     * The load that is currently running or has been completed. Concurrent
+     * callers of {@link #load(ESAFile)} and {@link #loadAsync(ESAFile)} wait
+     * for this load instead of decrypting the ESA file again.
+     */
+    private final AtomicReference<CompletableFuture<ESA>> loading = new AtomicReference<>();
+
+    /**
+     * Completes when the classes of the current asynchronous load have been
+     * defined in the background, or with the error that stopped it.
+     */
+    private volatile CompletableFuture<ESA> preloading;
 
     DefaultESA(KeyProvider provider, ICipher cipher, JarConfiguration configuration) {
-        super(provider, cipher, configuration, new TypeClassLoader());
+        super(provider, cipher, configuration, new TypeClassLoader(
+                configuration.isChildFirst(), configuration.getNegativeCacheSize()));
     }
 
     @Override
     protected Class<?> getClass(String className) {
-        return loadedClasses.getOrDefault(className, null);
+        Class<?> cls = loadedClasses.get(className);
+        if (cls != null) {
+            return cls;
+        }
+
+        awaitLoading();
+        // Classes that have not been defined yet (lazy loading) are only
+        // requested if they are stored in this ESA. Otherwise, unknown or
+        // encrypted names would be searched on the parent class path.
+        if (!getClassLoader().containsClass(className)) {
+            return null;
+        }
+
+        try {
+            cls = getClassLoader().loadClass(className);
+            loadedClasses.putIfAbsent(className, cls);
+            return cls;
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
     }
 
     @Override
@@ -53,35 +113,634 @@ final class DefaultESA extends ESABase {
     public void load(ESAFile aesContent) throws GeneralSecurityException, IOException {
         if (isLoaded()) return;
 
-        prepareCipher(Cipher.DECRYPT_MODE);
-        byte[] file = cipher.doFinal(aesContent.getEncoded().getBytes());
-        if (file == null) return;
+        CompletableFuture<ESA> future = new CompletableFuture<>();
+        CompletableFuture<ESA> current = begin(future);
+        if (current != future) {
+            await(current);
+            return;
+        }
+
+        preloading = null;
+        try {
+            loadNow(readHeader(aesContent));
+        } catch (IOException | RuntimeException | Error e) {
+            fail(future, e);
+            throw e;
+        }
+        if (!isLoaded()) {
+            // nothing was loaded, so the next call may try again
+            loading.compareAndSet(future, null);
+        }
+        future.complete(this);
+    }
+
+    /**
+     * Decrypts the ESA file on the pool returned by
+     * {@link JarConfiguration#getPreloadPool()}. Shared classes can be
+     * accessed as soon as all classes have been registered. Unless the
+     * {@link LoadingMode#LAZY} mode is used, the remaining classes are then
+     * defined in the background. A class requested before the background
+     * task reaches it is defined by the requesting thread, so it never waits
+     * behind the rest of the archive.
+     * <p>
+     * The returned future completes when all classes have been defined. If
+     * a class could not be decrypted or defined in the background, it
+     * completes exceptionally with that error.
+     */
+    @Override
+    public CompletableFuture<ESA> loadAsync(ESAFile aesContent) {
+        CompletableFuture<ESA> future = new CompletableFuture<>();
+        CompletableFuture<ESA> current = begin(future);
+        if (current != future) {
+            return current.thenCompose(esa -> getPreloading());
+        }
+
+        preloading = null;
+        try {
+            aesContent = readHeader(aesContent);
+            if (isContainer(aesContent)) {
+                // Classes of a container are decrypted on first access, so
+                // only the remaining classes are preloaded in the background.
+                EntryContainer container = EntryContainer.read(aesContent, getHeader());
+                registerContainer(container);
+                CompletableFuture<ESA> preload = new CompletableFuture<>();
+                preloading = preload;
+                setLoaded();
+                future.complete(this);
+
+                if (getConfiguration().getLoadingMode() == LoadingMode.LAZY) {
+                    preload.complete(this);
+                } else {
+                    getConfiguration().getPreloadPool().execute(() -> preloadContainer(container, preload));
+                }
+                return preload;
+            }
+
+            // The cipher streams are created here, so that errors are
+            // reported to the caller, and read in the background.
+            ReadableByteChannel[] segments = openSegments(aesContent);
+            if (segments == null) {
+                loading.compareAndSet(future, null);
+                future.complete(this);
+                return future;
+            }
+
+            int[] sizeHints = getSizeHints(aesContent);
+            CompletableFuture<ESA> preload = new CompletableFuture<>();
+            preloading = preload;
+            getConfiguration().getPreloadPool().execute(() -> preload(segments, sizeHints, future, preload));
+            return preload;
+        } catch (IOException | RuntimeException | Error e) {
+            fail(future, e);
+            CompletableFuture<ESA> preload = preloading;
+            if (preload != null) {
+                // The preload pool rejected the task, so it would never be completed
+                preload.completeExceptionally(e);
+                return preload;
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Returns the future of the background preload started by the current
+     * load. A load that did not start one is completed already.
+     */
+    private CompletableFuture<ESA> getPreloading() {
+        CompletableFuture<ESA> preload = preloading;
+        return preload != null ? preload : CompletableFuture.completedFuture(this);
+    }
+
+    private void preload(ReadableByteChannel[] segments, int[] sizeHints,
+                         CompletableFuture<ESA> future, CompletableFuture<ESA> preload) {
+        List<String> classNames;
+        try {
+            ArchiveIndex index;
+            if (segments.length == 1) {
+                try (InputStream is = Channels.newInputStream(segments[0])) {
+                    index = readIndex(is, sizeHints[0]);
+                }
+            } else {
+                byte[] archive = readSegments(segments, sizeHints);
+                index = ArchiveIndex.read(archive, archive.length, getIndexOffset());
+            }
+            classNames = loadIndex(index);
+        } catch (IOException | RuntimeException | Error e) {
+            fail(future, e);
+            preload.completeExceptionally(e);
+            return;
+        }
+        setLoaded();
+        future.complete(this);
+
+        try {
+            if (getConfiguration().getLoadingMode() != LoadingMode.LAZY) {
+                for (String internalName : classNames) {
+                    define(internalName);
+                }
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            preload.completeExceptionally(e);
+            return;
+        }
+        preload.complete(this);
+    }
+
+    /**
+     * Installs the given future as the current load, or returns the load that
+     * is already running or has been completed.
+     */
+    private CompletableFuture<ESA> begin(CompletableFuture<ESA> future) {
+        while (true) {
+            if (loading.compareAndSet(null, future)) {
+                return future;
+            }
+            CompletableFuture<ESA> current = loading.get();
+            if (current != null) {
+                return current;
+            }
+        }
+    }
+
+    private void fail(CompletableFuture<ESA> future, Throwable cause) {
+        // A failed load can be retried by the next caller
+        loading.compareAndSet(future, null);
+        future.completeExceptionally(cause);
+    }
+
+    private static void await(CompletableFuture<ESA> future) throws GeneralSecurityException, IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the ESA file");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof GeneralSecurityException) throw (GeneralSecurityException) cause;
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Waits until a running load has registered all classes. A failed load
+     * is reported to the caller of the load itself.
+     */
+    private void awaitLoading() {
+        CompletableFuture<ESA> current = loading.get();
+        if (current != null && !current.isDone()) {
+            try {
+                current.join();
+            } catch (CompletionException | CancellationException e) {
+                // ignore
+            }
+        }
+    }
+
+    private void loadNow(ESAFile aesContent) throws IOException {
+        if (isContainer(aesContent)) {
+            loadContainer(EntryContainer.read(aesContent, getHeader()));
+            setLoaded();
+            return;
+        }
+
+        ReadableByteChannel[] segments = openSegments(aesContent);
+        if (segments == null) return;
+
+        if (segments.length == 1) {
+            // The encoded content is decrypted while it is read, so there is no
+            // full copy of the encrypted or decrypted JAR file on the heap (except
+            // for the lazy and parallel modes, which need the central directory).
+            try (InputStream is = Channels.newInputStream(segments[0])) {
+                if (getConfiguration().getLoadingMode() == LoadingMode.EAGER) {
+                    loadAll(is);
+                } else {
+                    loadIndexed(readIndex(is, getSizeHints(aesContent)[0]));
+                }
+            }
+        } else {
+            byte[] archive = readSegments(segments, getSizeHints(aesContent));
+            if (getConfiguration().getLoadingMode() == LoadingMode.EAGER) {
+                loadAll(new ByteArrayInputStream(archive));
+            } else {
+                loadIndexed(ArchiveIndex.read(archive, archive.length, getIndexOffset()));
+            }
+        }
+        setLoaded();
+    }
 
-        try (JarInputStream jis = new JarInputStream(new ByteArrayInputStream(file))) {
+    private boolean isContainer(ESAFile aesContent) {
+        ESAHeader header = getHeader();
+        if (header != null) {
+            return header.isContainer();
+        }
+        // ESA files without a header are recognized by the container magic
+        return aesContent.getSegmentCount() > 0 && EntryContainer.isContainer(aesContent.getSegment(0));
+    }
+
+    /**
+     * Returns the offset of the end of the central directory stored in the
+     * header, or {@code -1} if it has to be searched.
+     */
+    private int getIndexOffset() {
+        ESAHeader header = getHeader();
+        return header != null && header.getIndexOffset() > 0 ? header.getIndexOffset() : -1;
+    }
+
+    /**
+     * Loads the classes of an ESA container. Only the requested entries are
+     * decrypted in the lazy mode. Otherwise, all classes are decrypted and
+     * defined while loading.
+     *
+     * @param container the container
+     * @throws IOException if an entry could not be decrypted
+     */
+    private void loadContainer(EntryContainer container) throws IOException {
+        switch (getConfiguration().getLoadingMode()) {
+            case LAZY:
+                registerContainer(container);
+                break;
+            case PARALLEL:
+                List<ParallelPreloader.ClassSource> sources = new ArrayList<>();
+                for (EntryContainer.Entry entry : container.getEntries()) {
+                    if (entry.isClass()) {
+                        sources.add(() -> readEntry(container, entry));
+                    }
+                }
+                new ParallelPreloader(getConfiguration().getPreloadPool(), getClassLoader())
+                        .preload(sources, this::define);
+                break;
+            default:
+                List<String> classNames = new ArrayList<>(container.size());
+                for (EntryContainer.Entry entry : container.getEntries()) {
+                    if (!entry.isClass()) continue;
+
+                    byte[] content = readEntry(container, entry);
+                    String internalName = new ClassReader(content).getClassName();
+                    getClassLoader().put(Type.getObjectType(internalName), content, 0, content.length);
+                    classNames.add(internalName);
+                }
+                for (String internalName : classNames) {
+                    define(internalName);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Lets the class loader resolve classes by looking up the hash of their
+     * name in the container index. An entry is decrypted when its class is
+     * defined, and the decrypted class name is compared with the requested
+     * one.
+     */
+    private void registerContainer(EntryContainer container) {
+        getClassLoader().setResolver(name -> {
+            String internalName = name.replace('.', '/');
+            EntryContainer.Entry entry = container.getEntry(internalName + ".class");
+            if (entry == null || !entry.isClass()) {
+                return null;
+            }
+
+            return () -> {
+                byte[] content = readEntry(container, entry);
+                if (!internalName.equals(new ClassReader(content).getClassName())) {
+                    throw new IOException("Class " + name + " does not match the container index");
+                }
+                return ByteBuffer.wrap(content);
+            };
+        });
+    }
+
+    /**
+     * Decrypts and defines all classes of the given container in the
+     * background. Classes that have already been resolved by a requesting
+     * thread are not registered again. The first error stops the preload
+     * and completes the given future exceptionally.
+     *
+     * @param container the container
+     * @param preload the future to complete
+     */
+    private void preloadContainer(EntryContainer container, CompletableFuture<ESA> preload) {
+        try {
+            for (EntryContainer.Entry entry : container.getEntries()) {
+                if (!entry.isClass()) continue;
+
+                byte[] content = readEntry(container, entry);
+                String internalName = new ClassReader(content).getClassName();
+                getClassLoader().putIfAbsent(Type.getObjectType(internalName), content, 0, content.length);
+                define(internalName);
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            preload.completeExceptionally(e);
+            return;
+        }
+        preload.complete(this);
+    }
+
+    /**
+     * Decrypts and inflates a single container entry.
+     *
+     * @param container the container
+     * @param entry the entry to read
+     * @return the plain entry content
+     * @throws IOException if the entry could not be decrypted
+     */
+    private byte[] readEntry(EntryContainer container, EntryContainer.Entry entry) throws IOException {
+        InputStream is;
+        // The key is consumed when the stream is created, so only this part
+        // has to be synchronized. Entries are decrypted concurrently.
+        synchronized (cipher) {
+            prepareCipher(Cipher.DECRYPT_MODE);
+            is = container.open(entry, cipher);
+        }
+
+        try (InputStream in = is) {
+            byte[] content = new byte[entry.getSize()];
+            int length = 0;
+            while (length < content.length) {
+                int len = in.read(content, length, content.length - length);
+                if (len == -1) {
+                    throw new EOFException("Truncated container entry");
+                }
+                length += len;
+            }
+            return content;
+        }
+    }
+
+    private void loadIndexed(ArchiveIndex index) throws IOException {
+        if (getConfiguration().getLoadingMode() == LoadingMode.PARALLEL) {
+            new ParallelPreloader(getConfiguration().getPreloadPool(), getClassLoader())
+                    .preload(index, this::define);
+        } else {
+            loadIndex(index);
+        }
+    }
+
+    /**
+     * Creates a decrypting stream for each segment of the given ESA file. The
+     * streams can be read on any thread.
+     *
+     * @param aesContent the ESA file
+     * @return the segment streams, or {@code null} if the ESA file is empty
+     * @throws IOException if a segment could not be decrypted
+     */
+    private ReadableByteChannel[] openSegments(ESAFile aesContent) throws IOException {
+        int count = aesContent.getSegmentCount();
+        if (count < 1 || aesContent.getSegment(0) == null) {
+            return null;
+        }
+
+        ESAHeader header = getHeader();
+        if (header != null && header.getCodec() != ESAHeader.CODEC_NONE) {
+            throw new IOException("Unsupported codec for JAR files: " + header.getCodec());
+        }
+
+        ReadableByteChannel[] segments = new ReadableByteChannel[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                String segment = aesContent.getSegment(i);
+                if (segment == null) {
+                    throw new IOException("Missing segment " + i);
+                }
+                byte[] aad = ESAFile.getSegmentAAD(i, count);
+                if (header != null) {
+                    header.checkEncoding(segment);
+                    aad = header.getAssociatedData(aad);
+                }
+
+                synchronized (cipher) {
+                    prepareCipher(Cipher.DECRYPT_MODE);
+                    cipher.updateAAD(aad);
+                    segments[i] = cipher.newChannel(Channels.newChannel(new CharSequenceInputStream(segment)));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (ReadableByteChannel segment : segments) {
+                if (segment != null) {
+                    segment.close();
+                }
+            }
+            throw e;
+        }
+        return segments;
+    }
+
+    /**
+     * Returns the expected size of every decrypted segment. It is taken from
+     * the header if possible. Otherwise, the length of the encoded segment is
+     * used, which is an upper bound when using the built-in ciphers.
+     */
+    private int[] getSizeHints(ESAFile aesContent) {
+        ESAHeader header = getHeader();
+        int[] sizeHints = new int[aesContent.getSegmentCount()];
+        for (int i = 0; i < sizeHints.length; i++) {
+            sizeHints[i] = header != null && header.getSegmentSize() > 0
+                    ? header.getSegmentSize()
+                    : aesContent.getSegment(i).length();
+        }
+        return sizeHints;
+    }
+
+    /**
+     * Decrypts the given segments in parallel on the pool returned by
+     * {@link JarConfiguration#getPreloadPool()} and joins them. Every
+     * segment is decrypted directly into a buffer of its size hint.
+     *
+     * @param segments the segment channels
+     * @param sizeHints the expected size of every segment
+     * @return the decrypted JAR file
+     * @throws IOException if a segment could not be decrypted
+     */
+    private byte[] readSegments(ReadableByteChannel[] segments, int[] sizeHints) throws IOException {
+        List<CompletableFuture<ByteBuffer>> tasks = new ArrayList<>(segments.length);
+        for (int i = 0; i < segments.length; i++) {
+            ReadableByteChannel segment = segments[i];
+            int sizeHint = sizeHints[i];
+            tasks.add(CompletableFuture.supplyAsync(() -> {
+                try (ReadableByteChannel channel = segment) {
+                    return readFully(channel, sizeHint);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, getConfiguration().getPreloadPool()));
+        }
+
+        ByteBuffer[] parts = new ByteBuffer[segments.length];
+        int length = 0;
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = tasks.get(i).join();
+                length += parts[i].remaining();
+            }
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) throw ((UncheckedIOException) cause).getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+
+        ByteBuffer archive = ByteBuffer.allocate(length);
+        for (ByteBuffer part : parts) {
+            archive.put(part);
+        }
+        return archive.array();
+    }
+
+    private static ByteBuffer readFully(ReadableByteChannel channel, int sizeHint) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(sizeHint, 16));
+        ByteBuffer probe = ByteBuffer.allocate(1);
+        while (true) {
+            if (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) break;
+                continue;
+            }
+
+            // The size hint may be exact, so the buffer only grows if there
+            // is more data (custom ciphers may return more than expected).
+            probe.clear();
+            if (channel.read(probe) == -1) break;
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer).put((ByteBuffer) probe.flip());
+            buffer = larger;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads the whole decrypted JAR file and builds an index of its central
+     * directory.
+     *
+     * @param is the decrypted JAR file stream
+     * @param sizeHint the expected size of the JAR file
+     * @return the index of the JAR file
+     * @throws IOException if the central directory could not be read
+     */
+    private ArchiveIndex readIndex(InputStream is, int sizeHint) throws IOException {
+        byte[] file = new byte[Math.max(sizeHint, BUFFER_SIZE)];
+        int length = 0;
+        int len;
+        while ((len = is.read(file, length, file.length - length)) != -1) {
+            length += len;
+            if (length == file.length) {
+                // the size hint may be exact, so only grow if there is more data
+                int next = is.read();
+                if (next == -1) break;
+                file = Arrays.copyOf(file, file.length * 2);
+                file[length++] = (byte) next;
+            }
+        }
+        return ArchiveIndex.read(file, length, getIndexOffset());
+    }
+
+    /**
+     * Registers all classes of the given JAR file without inflating them. The
+     * classes are defined by the class loader on first access.
+     *
+     * @param index the index of the decrypted JAR file
+     * @return the internal names of all registered classes
+     */
+    private List<String> loadIndex(ArchiveIndex index) {
+        List<String> classNames = new ArrayList<>(index.size());
+        for (ArchiveIndex.Entry entry : index.getEntries()) {
+            String name = entry.getName();
+            if (!name.endsWith(".class")) continue;
+
+            String internalName = name.substring(0, name.length() - ".class".length());
+            getClassLoader().put(Type.getObjectType(internalName), () -> ByteBuffer.wrap(index.read(entry)));
+            classNames.add(internalName);
+        }
+        return classNames;
+    }
+
+    /**
+     * Registers and defines all classes of the given JAR file while it is
+     * read. Each entry is inflated into one reusable buffer and copied into
+     * the off-heap class arena. A class is defined as soon as its supertypes
+     * are available. All other classes are
+     * defined after the whole file has been read, so references between
+     * shared classes can be resolved regardless of the entry order.
+     *
+     * @param is the decrypted JAR file stream
+     * @throws IOException if the JAR file could not be read
+     */
+    private void loadAll(InputStream is) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        Set<String> defined = new HashSet<>();
+        List<String> deferred = new ArrayList<>();
+
+        try (JarInputStream jis = new JarInputStream(is)) {
 
             JarEntry entry = null;
             while ((entry = jis.getNextJarEntry()) != null) {
                 String name = entry.getName();
                 if (!name.endsWith(".class")) continue;
 
-                name = name.replaceAll("/", ".");
-                name = name.substring(0, name.length() - ".class".length());
-
-                String descriptor = 'L' + name.replaceAll("\\.", "/") + ';';
+                if (entry.getSize() > buffer.length) {
+                    buffer = new byte[(int) entry.getSize()];
+                }
 
-                byte[] content = getZipEntryContent(jis);
+                int length = 0;
+                int len;
+                while ((len = jis.read(buffer, length, buffer.length - length)) != -1) {
+                    length += len;
+                    if (length == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                }
 
-                getClassLoader().put(Type.getType(descriptor), content);
-                Class<?> cls = getClassLoader().loadClass(name);
+                String internalName = name.substring(0, name.length() - ".class".length());
+                getClassLoader().put(Type.getObjectType(internalName), buffer, 0, length);
 
-                if (cls != null) {
-                    loadedClasses.put(name, cls);
+                if (isResolvable(new ClassReader(buffer, 0, length), defined)) {
+                    define(internalName);
+                    defined.add(internalName);
+                } else {
+                    deferred.add(internalName);
                 }
             }
-            setLoaded();
+        }
+
+        for (String internalName : deferred) {
+            define(internalName);
+        }
+    }
+
+    private void define(String internalName) throws IOException {
+        String name = internalName.replace('/', '.');
+        try {
+            Class<?> cls = getClassLoader().loadClass(name);
+            if (cls != null) {
+                loadedClasses.put(name, cls);
+            }
         } catch (ClassNotFoundException e) {
-            e.printStackTrace();
+            throw new IOException("Could not define class " + name, e);
+        }
+    }
+
+    /**
+     * Returns whether all supertypes of the given class are either platform
+     * classes or have already been defined by this ESA.
+     */
+    private static boolean isResolvable(ClassReader reader, Set<String> defined) {
+        if (!isResolvable(reader.getSuperName(), defined)) {
+            return false;
         }
+        for (String itf : reader.getInterfaces()) {
+            if (!isResolvable(itf, defined)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isResolvable(String internalName, Set<String> defined) {
+        return internalName == null || internalName.startsWith("java/") || defined.contains(internalName);
     }
 
 }
@@ -21,13 +21,18 @@ import io.github.proto4j.crypto.provider.KeyProvider;
 import io.github.proto4j.esa.annotation.Encrypt;
 import io.github.proto4j.esa.annotation.Output;
 import io.github.proto4j.esa.api.asm.StaticBlockWriter;
+import io.github.proto4j.esa.executor.InterfaceBinder;
+import io.github.proto4j.esa.executor.InvocationException;
+import io.github.proto4j.esa.executor.PreparedInvocation;
 import org.objectweb.asm.Type;
 
+import javax.crypto.Cipher;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.security.GeneralSecurityException;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
 /**
@@ -43,7 +48,7 @@ import java.util.function.Supplier;
  *
  * @see ESAFile
  */
-public abstract class ESA {
+public abstract class ESA implements AutoCloseable {
 
     /**
      * A final {@link Type} instance used when manipulating the bytecode of
@@ -64,9 +69,11 @@ public abstract class ESA {
     public static final String NAME = "filename";
 
     /**
-     * The key provider to use.
+     * The key provider to use. It is shared by all threads that load
+     * classes or resolve encrypted names, so implementations have to be
+     * thread-safe.
      */
-    protected final ThreadLocal<KeyProvider> provider;
+    protected final KeyProvider provider;
 
     /**
      * Creates a new <code>ESA</code> instance with the given key provider.
@@ -74,9 +81,7 @@ public abstract class ESA {
      * @param provider the provider to use
      */
     protected ESA(KeyProvider provider) {
-        Objects.requireNonNull(provider);
-        this.provider = new ThreadLocal<>();
-        this.provider.set(provider);
+        this.provider = Objects.requireNonNull(provider);
     }
 
     /**
@@ -127,6 +132,16 @@ public abstract class ESA {
         return null;
     }
 
+    /**
+     * Resolves a shared class by its name. This function can be called with
+     * encrypted and unencrypted class names.
+     *
+     * @param cls the class name
+     * @return the resolved class (always non-null)
+     * @throws NoSuchSharedClassException if the class could not be resolved
+     */
+    public abstract Class<?> getSharedClass(final String cls) throws NoSuchSharedClassException;
+
     /**
      * Resolves a {@link Method} by its declaring class, name and argument
      * types. This function can be called with encrypted and unencrypted method
@@ -162,6 +177,81 @@ public abstract class ESA {
     public abstract Field getSharedField(final String cls, final String name, final boolean inherited)
             throws NoSuchSharedFieldException, NoSuchSharedClassException;
 
+    /**
+     * Resolves a shared method like {@link #getSharedMethod(String, String, Class[])}
+     * and prepares its invocation. The returned object can be stored and
+     * invoked by any number of threads without resolving the method again.
+     *
+     * @param cls the declaring class
+     * @param mth the method's name
+     * @param returnType the expected return type
+     * @param argTypes the method's argument type classes
+     * @param <R> the return type
+     * @return the prepared invocation
+     * @throws NoSuchSharedMethodException if the method could not be located in
+     *                                     the given class
+     * @throws NoSuchSharedClassException  if the declaring class could not be
+     *                                     resolved
+     * @throws InvocationException         if the method is not accessible or
+     *                                     its return type does not match
+     */
+    public <R> PreparedInvocation<R> prepareInvocation(final String cls, final String mth,
+                                                       final Class<R> returnType, Class<?>... argTypes)
+            throws NoSuchSharedMethodException, NoSuchSharedClassException, InvocationException {
+        return PreparedInvocation.of(getSharedMethod(cls, mth, argTypes), returnType);
+    }
+
+    /**
+     * Resolves a shared method and implements the given functional interface
+     * with it. Calling the returned function is as cheap as calling a lambda
+     * expression, primitive arguments and results are not boxed. Instance
+     * methods take their receiver as the first argument of the functional
+     * method.
+     *
+     * @param functionType the functional interface
+     * @param cls the declaring class
+     * @param mth the method's name
+     * @param argTypes the method's argument type classes
+     * @param <F> the type of the functional interface
+     * @return the implementation of the functional interface
+     * @throws NoSuchSharedMethodException if the method could not be located in
+     *                                     the given class
+     * @throws NoSuchSharedClassException  if the declaring class could not be
+     *                                     resolved
+     * @throws InvocationException         if the method does not match the
+     *                                     functional interface
+     * @see PreparedInvocation#asFunction(Class)
+     */
+    public <F> F getSharedFunction(final Class<F> functionType, final String cls, final String mth,
+                                   Class<?>... argTypes)
+            throws NoSuchSharedMethodException, NoSuchSharedClassException, InvocationException {
+        return prepareInvocation(cls, mth, Object.class, argTypes).asFunction(functionType);
+    }
+
+    /**
+     * Implements the given interface with the methods of a shared class. The
+     * class and its methods are resolved once, the returned object calls
+     * them directly without reflection. Instance methods take their receiver
+     * as the first argument.
+     *
+     * @param iface the interface to implement
+     * @param sharedClass the name of the shared class
+     * @param <I> the type of the interface
+     * @return the implementation of the interface
+     * @throws NoSuchSharedClassException  if the shared class could not be
+     *                                     resolved
+     * @throws NoSuchSharedMethodException if an interface method has no
+     *                                     matching shared method
+     * @throws InvocationException         if the given type is not an
+     *                                     interface or the implementation
+     *                                     could not be created
+     * @see InterfaceBinder
+     */
+    public <I> I bind(final Class<I> iface, final String sharedClass)
+            throws NoSuchSharedClassException, NoSuchSharedMethodException, InvocationException {
+        return InterfaceBinder.bind(iface, getSharedClass(sharedClass));
+    }
+
     /**
      * Creates a new instance of the given class with the provided arguments.
      *
@@ -175,6 +265,34 @@ public abstract class ESA {
     public abstract Object getInstance(final String cls, Object... argv)
             throws NoSuchSharedClassException, SharedException;
 
+    /**
+     * Decrypts the given encrypted class or member names in one batch.
+     * Decrypted names are cached, so that lookups with the same encrypted
+     * names do not decrypt them again. Calling this method at startup warms
+     * the cache for the names used later on.
+     *
+     * <p>
+     * The default implementation does not cache names. It decrypts them one
+     * by one with {@link #getAESCipher()} and the key of the provider.
+     *
+     * @param names the encrypted names
+     * @return the decrypted names in the same order
+     * @throws GeneralSecurityException if a name could not be decrypted
+     */
+    public String[] decryptNames(final String... names)
+            throws GeneralSecurityException {
+        ICipher cipher = getAESCipher();
+        String[] decrypted = new String[names.length];
+        synchronized (cipher) {
+            for (int i = 0; i < names.length; i++) {
+                String name = Objects.requireNonNull(names[i]);
+                cipher.init(Cipher.DECRYPT_MODE, provider.getSecretKey());
+                decrypted[i] = new String(cipher.doFinal(name.getBytes()));
+            }
+        }
+        return decrypted;
+    }
+
     /**
      * Loads the given ESA file. This operation may fail if this object has
      * already loaded an ESA. Use {@link #isLoaded()} to check that.
@@ -187,6 +305,29 @@ public abstract class ESA {
     public abstract void load(final ESAFile file)
             throws GeneralSecurityException, IOException;
 
+    /**
+     * Loads the given ESA file in the background. The returned future
+     * completes with this object when the ESA file has been loaded, or
+     * exceptionally with the error that stopped the load. Implementations
+     * may allow access to the shared classes earlier. Concurrent
+     * calls to this method or {@link #load(ESAFile)} share one load.
+     * <p>
+     * The default implementation loads the ESA file on the calling thread.
+     *
+     * @param file the file to load
+     * @return a future that completes when the ESA file has been loaded
+     */
+    public CompletableFuture<ESA> loadAsync(final ESAFile file) {
+        CompletableFuture<ESA> future = new CompletableFuture<>();
+        try {
+            load(file);
+            future.complete(this);
+        } catch (GeneralSecurityException | IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * Returns the configured <code>AESCipher</code> instance. Note that you
      * have to provide the encryption/ decryption key for every action on this
@@ -220,6 +361,26 @@ public abstract class ESA {
      */
     public abstract boolean isLoaded();
 
+    /**
+     * Releases the resources of this object. If the key provider can be
+     * closed (for instance, a {@link io.github.proto4j.crypto.provider.CachingKeyProvider}),
+     * it is closed as well, so cached key material is wiped. Classes that
+     * have already been loaded can still be used, but encrypted names can
+     * not be resolved anymore.
+     */
+    @Override
+    public void close() {
+        if (provider instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) provider).close();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not close the key provider", e);
+            }
+        }
+    }
+
     /**
      * An abstract builder class to simplify the creation of {@link ESA}
      * instances.
@@ -251,8 +412,8 @@ public abstract class ESA {
      *     <tr>
      *         <td>{@link ICipher}</td>
      *         <td>The cipher implementation used to decrypt the ESA file. By
-     *         default, {@link ICipher#newDefaultInstance()} is called to retrieve
-     *         an instance.</td>
+     *         default, a cipher of the {@link io.github.proto4j.crypto.CipherSuite}
+     *         returned by {@link ESAFile#getCipherSuite()} is created.</td>
      *     </tr>
      *     <tr>
      *         <td>{@link Output}</td>
@@ -289,6 +450,23 @@ public abstract class ESA {
 
         public abstract ESA finish();
 
+        /**
+         * Creates the {@link ESA} instance and loads the configured output
+         * object in the background. By default, {@link #finish()} is called
+         * on the calling thread.
+         *
+         * @return a future that completes with the loaded {@link ESA}
+         */
+        public CompletableFuture<ESA> finishAsync() {
+            CompletableFuture<ESA> future = new CompletableFuture<>();
+            try {
+                future.complete(finish());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+
         public T configure(Supplier<? extends JarConfiguration> provider) {
             Objects.requireNonNull(provider);
 
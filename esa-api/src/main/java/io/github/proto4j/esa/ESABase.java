@@ -16,22 +16,36 @@
 
 package io.github.proto4j.esa; //@date 27.01.2023
 
+import io.github.proto4j.crypto.CipherSession;
 import io.github.proto4j.crypto.ICipher;
 import io.github.proto4j.crypto.key.DestroyableSecretKey;
 import io.github.proto4j.crypto.key.SecureSecretKey;
+import io.github.proto4j.crypto.provider.CachingKeyProvider;
 import io.github.proto4j.crypto.provider.KeyProvider;
+import io.github.proto4j.esa.api.ESAHeader;
 import io.github.proto4j.esa.executor.InvocationException;
 import io.github.proto4j.esa.executor.SharedInvocationException;
 
 import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.SecretKey;
+import javax.security.auth.DestroyFailedException;
+import javax.security.auth.Destroyable;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.security.GeneralSecurityException;
 import java.security.Key;
+import java.security.KeyException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipInputStream;
 
 /*
@@ -47,6 +61,40 @@ public abstract class ESABase extends ESA {
 
     private volatile boolean loaded = false;
 
+    private volatile CipherSession nameSession;
+
+    /**
+     * The key of the provider the name session has been opened with. The
+     * session is opened again once this key has been destroyed.
+     */
+    private volatile Key nameKey;
+
+    /**
+     * The copy of a {@link SecureSecretKey} the cipher has been initialized
+     * with, guarded by the lock of the cipher. It is destroyed when the
+     * cipher is prepared again.
+     */
+    private SecretKey preparedKey;
+
+    /**
+     * Decrypted names by their encrypted form, bounded by the name cache
+     * size of the configuration.
+     */
+    private final Map<String, String> decryptedNames = new ConcurrentHashMap<>();
+
+    /**
+     * Member names that could not be decrypted, so they are not decrypted
+     * again when they are looked up. Bounded like the decrypted names.
+     */
+    private final Set<String> plainNames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The member indexes of shared classes that have been accessed.
+     */
+    private final Map<Class<?>, SharedMembers> sharedMembers = new ConcurrentHashMap<>();
+
+    private volatile ESAHeader header;
+
     public ESABase(KeyProvider provider, ICipher cipher, JarConfiguration configuration,
                    ClassLoader classLoader) {
         super(provider);
@@ -62,14 +110,11 @@ public abstract class ESABase extends ESA {
     protected abstract Class<?> getClass(String className);
 
     @Override
-    public Method getSharedMethod(String cls, String mth, Class<?>... argTypes)
-            throws NoSuchSharedMethodException, NoSuchSharedClassException {
+    public Class<?> getSharedClass(String cls) throws NoSuchSharedClassException {
         Class<?> cachedClass = getClass(cls);
-        String decName = null;
 
         if (cachedClass == null) try {
-            prepareCipher(Cipher.DECRYPT_MODE);
-            String name = new String(cipher.doFinal(cls.getBytes()));
+            String name = decryptName(cls);
             cachedClass = getClass(name);
         } catch (Exception e) {
             throw new NoSuchSharedClassException("Could not locate class", e);
@@ -78,20 +123,21 @@ public abstract class ESABase extends ESA {
         if (cachedClass == null) {
             throw new NoSuchSharedClassException("Could not locate class: " + cls);
         }
+        return cachedClass;
+    }
 
-        Method target = null;
-        try {
-            target = cachedClass.getDeclaredMethod(mth, argTypes);
-        } catch (NoSuchMethodException e) {
-            try {
-                prepareCipher(Cipher.DECRYPT_MODE);
-                decName = new String(cipher.doFinal(mth.getBytes()));
-
-                target = cachedClass.getDeclaredMethod(decName, argTypes);
-            } catch (NoSuchMethodException e2) {
-                throw new NoSuchSharedMethodException("Could not locate method: " + decName);
-            } catch (Exception ignored) {
+    @Override
+    public Method getSharedMethod(String cls, String mth, Class<?>... argTypes)
+            throws NoSuchSharedMethodException, NoSuchSharedClassException {
+        SharedMembers members = getMembers(getSharedClass(cls));
+        Method target = members.getMethod(mth, argTypes);
+        if (target == null) try {
+            String name = decryptMemberName(mth);
+            if (name != null) {
+                target = members.getMethod(name, argTypes);
             }
+        } catch (Exception ignored) {
+            // the key could not be retrieved
         }
 
         if (target == null) {
@@ -103,51 +149,15 @@ public abstract class ESABase extends ESA {
 
     @Override
     public Field getSharedField(String cls, String name, boolean inherited) throws NoSuchSharedFieldException {
-        Class<?> cachedClass = getClass(cls);
-
-        if (cachedClass == null) try {
-            prepareCipher(Cipher.DECRYPT_MODE);
-
-            String clsName = new String(cipher.doFinal(cls.getBytes()));
-            cachedClass = getClass(clsName);
-        } catch (Exception e) {
-            throw new NoSuchSharedClassException("Could not locate shared class", e);
-        }
-
-        if (cachedClass == null) {
-            throw new NoSuchSharedClassException("Could not locate class: " + cls);
-        }
-
-        String decName = null;
-        Field target = null;
-        try {
-            target = cachedClass.getDeclaredField(name);
-        } catch (NoSuchFieldException e) {
-            try {
-                prepareCipher(Cipher.DECRYPT_MODE);
-                decName = new String(cipher.doFinal(name.getBytes()));
-                target = cachedClass.getDeclaredField(decName);
-            } catch (Exception e2) {
-                if (!inherited) {
-                    throw new NoSuchSharedFieldException("Could not locate Field", e2);
-                }
-            }
-        }
-
-        if (target == null) {
-            Class<?> base = cachedClass;
-            while (((base = base.getSuperclass()) != Object.class) && target == null) {
-                try {
-                    target = base.getDeclaredField(name);
-                } catch (Exception e) {
-                    try {
-                        if (decName != null) {
-                            target = base.getDeclaredField(decName);
-                        }
-                    } catch (Exception ignored) {
-                    }
-                }
+        SharedMembers members = getMembers(getSharedClass(cls));
+        Field target = members.getField(name, inherited);
+        if (target == null) try {
+            String decrypted = decryptMemberName(name);
+            if (decrypted != null) {
+                target = members.getField(decrypted, inherited);
             }
+        } catch (Exception e) {
+            throw new NoSuchSharedFieldException("Could not locate Field", e);
         }
 
         if (target == null) {
@@ -157,6 +167,18 @@ public abstract class ESABase extends ESA {
         return target;
     }
 
+    /**
+     * Returns the member index of the given shared class, which is created
+     * on first use.
+     */
+    private SharedMembers getMembers(Class<?> cls) {
+        SharedMembers index = sharedMembers.get(cls);
+        if (index == null) {
+            index = sharedMembers.computeIfAbsent(cls, SharedMembers::new);
+        }
+        return index;
+    }
+
     protected final byte[] getZipEntryContent(ZipInputStream zis) throws IOException {
         return getZipEntryContent(zis, 2048);
     }
@@ -177,18 +199,7 @@ public abstract class ESABase extends ESA {
 
     @Override
     public Object getInstance(String cls, Object... argv) throws SharedException {
-        Class<?> clsInstance = null;
-        try {
-            clsInstance = getClass(cls);
-        } catch (Exception e) {
-            try {
-                prepareCipher(Cipher.DECRYPT_MODE);
-                String name = new String(cipher.doFinal(cls.getBytes()));
-                clsInstance = getClass(name);
-            } catch (Exception ex) {
-                throw new NoSuchSharedClassException("Class not found", ex);
-            }
-        }
+        Class<?> clsInstance = getSharedClass(cls);
         try {
             if (argv == null ||argv.length == 0) {
                 return clsInstance.getDeclaredConstructor().newInstance();
@@ -239,23 +250,290 @@ public abstract class ESABase extends ESA {
         return configuration;
     }
 
-    protected synchronized final void prepareCipher(int mode) {
+    /**
+     * Decrypts the given encrypted class or member name. Names are decrypted
+     * by a {@link CipherSession} that is opened on first use, so concurrent
+     * callers neither wait for each other nor query the key provider again.
+     * Decrypted names are cached.
+     *
+     * @param name the encrypted name
+     * @return the decrypted name
+     * @throws IllegalBlockSizeException if the name could not be decrypted
+     */
+    protected final String decryptName(String name) throws IllegalBlockSizeException {
+        String decrypted = decryptedNames.get(name);
+        if (decrypted == null) {
+            decrypted = decryptName(getNameSession(), name);
+        }
+        return decrypted;
+    }
+
+    @Override
+    public String[] decryptNames(String... names) throws IllegalBlockSizeException {
+        String[] decrypted = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            String name = Objects.requireNonNull(names[i]);
+            decrypted[i] = decryptedNames.get(name);
+            if (decrypted[i] == null) {
+                decrypted[i] = decryptName(getNameSession(), name);
+            }
+        }
+        return decrypted;
+    }
+
+    /**
+     * Decrypts the given member name, or returns {@code null} if the name
+     * is not encrypted. Plain names are looked up before encrypted ones, so
+     * a missing member would otherwise be decrypted on every lookup. Whether
+     * a name can be decrypted does not depend on the class, so the failure
+     * is remembered for the name alone.
+     *
+     * @throws IllegalBlockSizeException if the key could not be retrieved
+     */
+    private String decryptMemberName(String name) throws IllegalBlockSizeException {
+        String decrypted = decryptedNames.get(name);
+        if (decrypted != null) {
+            return decrypted;
+        }
+        if (plainNames.contains(name)) {
+            return null;
+        }
+
+        CipherSession session = getNameSession();
         try {
-            KeyProvider keyProvider = provider.get();
-            Key secretKey = keyProvider.getSecretKey();
-
-            if (secretKey instanceof SecureSecretKey) {
-                SecureSecretKey key = (SecureSecretKey) secretKey;
-                try (SecureSecretKey.Accessor accessor = key.getAccessor()) {
-                    SecretKey dk = new DestroyableSecretKey(accessor.getEncoded(), secretKey.getAlgorithm());
-                    cipher.init(mode, dk);
-                    dk.destroy();
+            return decryptName(session, name);
+        } catch (IllegalBlockSizeException | IllegalStateException e) {
+            int cacheSize = getNameCacheSize();
+            if (cacheSize > 0) {
+                if (plainNames.size() >= cacheSize) {
+                    evictOne(plainNames);
                 }
-            } else {
-                cipher.init(mode, secretKey);
+                plainNames.add(name);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private String decryptName(CipherSession session, String name) throws IllegalBlockSizeException {
+        byte[] content;
+        try {
+            content = session.doFinal(name.getBytes());
+        } catch (IllegalStateException e) {
+            if (session == nameSession && !isDestroyed(nameKey)) {
+                throw e;
+            }
+            // The session has been closed because the key expired while
+            // the name was decrypted.
+            content = getNameSession().doFinal(name.getBytes());
+        }
+        String decrypted = new String(content);
+        int cacheSize = getNameCacheSize();
+        if (cacheSize > 0) {
+            if (decryptedNames.size() >= cacheSize) {
+                evictOne(decryptedNames.keySet());
+            }
+            decryptedNames.put(name, decrypted);
+        }
+        return decrypted;
+    }
+
+    private int getNameCacheSize() {
+        return configuration != null ? configuration.getNameCacheSize() : 0;
+    }
+
+    /**
+     * Evicts an arbitrary name to keep a cache bounded without a global lock
+     * on the lookup path.
+     */
+    private static void evictOne(Set<String> names) {
+        Iterator<String> iterator = names.iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private CipherSession getNameSession() throws IllegalBlockSizeException {
+        CipherSession session = nameSession;
+        if (session == null || isDestroyed(nameKey)) {
+            synchronized (this) {
+                session = nameSession;
+                if (session == null || isDestroyed(nameKey)) {
+                    if (session != null) {
+                        // the key of the provider has expired
+                        session.close();
+                    }
+                    try {
+                        Key secretKey = provider.getSecretKey();
+                        session = openSession(Cipher.DECRYPT_MODE, provider, secretKey);
+                        nameKey = secretKey;
+                        nameSession = session;
+                    } catch (GeneralSecurityException e) {
+                        throw new IllegalBlockSizeException(e.getMessage());
+                    }
+                }
+            }
+        }
+        return session;
+    }
+
+    private static boolean isDestroyed(Key key) {
+        return key instanceof Destroyable && ((Destroyable) key).isDestroyed();
+    }
+
+    /**
+     * Opens a session of the cipher with the key of the given provider. The
+     * session owns a copy of the key, which is destroyed when the session is
+     * closed. If the provider is a {@link CachingKeyProvider}, the session
+     * is closed as well when the cached key expires.
+     *
+     * @param mode the cipher mode
+     * @param keyProvider the provider of the secret key
+     * @return the opened session
+     * @throws GeneralSecurityException if the key could not be retrieved or
+     *                                  is not supported by the cipher
+     */
+    protected final CipherSession openSession(int mode, KeyProvider keyProvider) throws GeneralSecurityException {
+        return openSession(mode, keyProvider, keyProvider.getSecretKey());
+    }
+
+    private CipherSession openSession(int mode, KeyProvider keyProvider, Key secretKey)
+            throws GeneralSecurityException {
+        CipherSession session = cipher.newSession(mode, secretKey == null ? null : copyKey(secretKey));
+        if (keyProvider instanceof CachingKeyProvider) {
+            ((CachingKeyProvider) keyProvider).attach(secretKey, session);
+        }
+        return session;
+    }
+
+    /**
+     * Copies the material of the given key into a key that can be destroyed.
+     */
+    private static SecretKey copyKey(Key secretKey) throws GeneralSecurityException {
+        if (secretKey instanceof SecureSecretKey) {
+            SecureSecretKey.Accessor accessor = ((SecureSecretKey) secretKey).getAccessor();
+            try {
+                return new DestroyableSecretKey(accessor.getEncoded(), secretKey.getAlgorithm());
+            } finally {
+                if (!accessor.isDestroyed()) {
+                    try {
+                        accessor.destroy();
+                    } catch (DestroyFailedException e) {
+                        throw new KeyException(e);
+                    }
+                }
+            }
+        }
+
+        byte[] encoded = secretKey.getEncoded();
+        if (encoded == null) {
+            throw new KeyException("Key does not support encoding");
+        }
+        try {
+            return new DestroyableSecretKey(encoded, secretKey.getAlgorithm());
+        } finally {
+            Arrays.fill(encoded, (byte) 0);
+        }
+    }
+
+    /**
+     * Reads the {@link ESAHeader} of the given ESA file, which is returned
+     * by {@link #getHeader()} afterwards. Subclasses call this method before
+     * decoding the ESA file and decode the returned payload instead.
+     *
+     * @param file the ESA file to load
+     * @return the ESA file without its header, or the given file if it has
+     *         been created without a header
+     * @throws IOException if the header is invalid, requires a newer
+     *                     version of this library or requires an
+     *                     authenticated cipher that has not been configured
+     */
+    protected final ESAFile readHeader(ESAFile file) throws IOException {
+        ESAHeader header = ESAHeader.read(file);
+        if (header != null && header.isAuthenticated() && !cipher.isAuthenticated()) {
+            // a modified header must not downgrade the file to a cipher
+            // that does not verify it
+            throw new IOException("The ESA file requires an authenticated cipher");
+        }
+        this.header = header;
+        return header == null ? file : header.getPayload(file);
+    }
+
+    /**
+     * Returns the header of the loaded ESA file.
+     *
+     * @return the header or {@code null} if the ESA file has not been loaded
+     *         yet or has been created without a header
+     */
+    public final ESAHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Initializes the cipher with the key of this object's provider. This
+     * method can be called on any thread.
+     * <p>
+     * The cipher is consumed by the next operation, so callers that share
+     * this object across threads should hold the lock of the cipher until
+     * the operation has been started.
+     *
+     * @param mode the cipher mode
+     * @throws IOException if the key could not be retrieved or is not
+     *                     supported by the cipher
+     */
+    protected final void prepareCipher(int mode) throws IOException {
+        synchronized (cipher) {
+            try {
+                Key secretKey = provider.getSecretKey();
+
+                destroyPreparedKey();
+                if (secretKey instanceof SecureSecretKey) {
+                    // The cipher keeps the key until its next operation,
+                    // so the copy is destroyed when it is prepared again.
+                    preparedKey = copyKey(secretKey);
+                    cipher.init(mode, preparedKey);
+                } else {
+                    cipher.init(mode, secretKey);
+                }
+            } catch (Exception e) {
+                throw new IOException("Could not initialize the cipher", e);
+            }
+        }
+    }
+
+    private void destroyPreparedKey() throws DestroyFailedException {
+        SecretKey key = preparedKey;
+        preparedKey = null;
+        if (key != null) {
+            key.destroy();
+        }
+    }
+
+    /**
+     * Closes the session used to decrypt names, which destroys its copy of
+     * the key, clears the decrypted name cache and closes the key provider.
+     */
+    @Override
+    public void close() {
+        CipherSession session;
+        synchronized (this) {
+            session = nameSession;
+            nameSession = null;
+            nameKey = null;
+        }
+        decryptedNames.clear();
+        plainNames.clear();
+        try {
+            if (session != null) {
+                session.close();
+            }
+            synchronized (cipher) {
+                destroyPreparedKey();
+            }
+        } catch (DestroyFailedException e) {
+            throw new IllegalStateException("Could not destroy the key", e);
+        } finally {
+            super.close();
         }
     }
 
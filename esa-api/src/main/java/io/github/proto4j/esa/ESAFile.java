@@ -16,8 +16,14 @@
 
 package io.github.proto4j.esa;//@date 23.01.2023
 
+import io.github.proto4j.crypto.CipherSuite;
 import io.github.proto4j.crypto.ICipher;
 import io.github.proto4j.esa.annotation.Output;
+import io.github.proto4j.esa.api.ESAHeader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 
 /**
  * This tagging interface will be used on classes annotated with {@link Output}
@@ -28,12 +34,77 @@ import io.github.proto4j.esa.annotation.Output;
 public interface ESAFile {
 
     /**
-     * Returns the ESA content as a {@code String}.
+     * Returns the ESA content as a {@code String}. If the ESA file is split
+     * into several segments, only the first segment is returned.
      *
      * @return the embedded shared archive file
+     * @see #getSegment(int)
      */
     public abstract String getEncoded();
 
+    /**
+     * Returns the number of segments the ESA file is split into. A single
+     * class file constant can store at most 65535 bytes, so larger ESA files
+     * are spread across several fields. Each segment is encrypted on its
+     * own and the decrypted segments are joined in order.
+     *
+     * @return the number of segments
+     */
+    public default int getSegmentCount() {
+        return 1;
+    }
+
+    /**
+     * Returns the encoded segment at the given index.
+     *
+     * @param index the segment index, starting with {@code 0}
+     * @return the encoded segment
+     * @throws IndexOutOfBoundsException if there is no segment at the given
+     *                                   index
+     */
+    public default String getSegment(int index) {
+        if (index != 0) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return getEncoded();
+    }
+
+    /**
+     * Returns the id of the {@link CipherSuite} the ESA file has been
+     * encrypted with. The runtime uses it to create a matching cipher if no
+     * cipher has been configured explicitly.
+     * <p>
+     * By default, the id is read from the {@link ESAHeader}. ESA files
+     * without a header have been encrypted with the legacy AES-CBC suite.
+     *
+     * @return the cipher suite id
+     * @throws UncheckedIOException if the header is invalid
+     * @see CipherSuite#forId(int)
+     */
+    public default int getCipherSuite() {
+        try {
+            ESAHeader header = ESAHeader.read(this);
+            return header != null ? header.getCipherSuite() : CipherSuite.AES_CBC;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the additional authenticated data of the segment at the given
+     * index. Authenticated ciphers bind every segment to its index and the
+     * segment count, so segments cannot be reordered or dropped without
+     * failing verification.
+     *
+     * @param index the segment index
+     * @param count the number of segments
+     * @return the additional authenticated data
+     * @see ICipher#updateAAD(byte[])
+     */
+    public static byte[] getSegmentAAD(int index, int count) {
+        return ByteBuffer.allocate(8).putInt(index).putInt(count).array();
+    }
+
     /**
      * The ESA filename to use when exporting it.
      *
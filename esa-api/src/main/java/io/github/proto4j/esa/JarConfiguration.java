@@ -16,10 +16,78 @@
 
 package io.github.proto4j.esa;//@date 24.01.2023
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
- * A tagging interface that all configuration interfaces must extend.
+ * A tagging interface that all configuration interfaces must extend. The
+ * default methods declared here describe how an ESA file is loaded and may
+ * be overridden by implementations.
  *
  * @since 0.0.1
  */
 public interface JarConfiguration {
+
+    /**
+     * Returns when the classes of the ESA file should be defined. By default,
+     * all classes are defined while loading.
+     *
+     * @return the loading mode to use
+     * @see LoadingMode
+     */
+    public default LoadingMode getLoadingMode() {
+        return LoadingMode.EAGER;
+    }
+
+    /**
+     * Returns whether the classes of the ESA file should be searched before
+     * the parent class loader is asked (child-first delegation). By default,
+     * the parent class loader is asked first.
+     *
+     * @return whether classes are loaded child-first
+     */
+    public default boolean isChildFirst() {
+        return false;
+    }
+
+    /**
+     * Returns the maximum number of class names that are remembered as
+     * missing in both the ESA file and the parent class loader. Lookups of
+     * these names fail without searching the class path again. A value of
+     * {@code 0} disables the cache.
+     *
+     * @return the negative lookup cache size
+     */
+    public default int getNegativeCacheSize() {
+        return 512;
+    }
+
+    /**
+     * Returns the maximum number of decrypted class and member names that
+     * are cached, so that repeated lookups with the same encrypted name do
+     * not decrypt it again. A value of {@code 0} disables the cache.
+     *
+     * @return the decrypted name cache size
+     */
+    public default int getNameCacheSize() {
+        return 256;
+    }
+
+    /**
+     * Returns the pool that runs the background work of an ESA. By default,
+     * the common pool is used. The pool is used to:
+     * <ul>
+     *     <li>decrypt the segments of a segmented ESA file in parallel,</li>
+     *     <li>run {@link ESA#loadAsync(ESAFile)}, which decrypts the file and
+     *     defines the remaining classes in the background,</li>
+     *     <li>inflate and define classes when the loading mode is
+     *     {@link LoadingMode#PARALLEL}.</li>
+     * </ul>
+     * Loading an ESA file may therefore wait for tasks on this pool, so it
+     * should not be a pool whose threads are blocked by the caller.
+     *
+     * @return the pool to decrypt segments and preload classes with
+     */
+    public default ForkJoinPool getPreloadPool() {
+        return ForkJoinPool.commonPool();
+    }
 }
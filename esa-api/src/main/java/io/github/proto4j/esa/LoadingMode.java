@@ -0,0 +1,48 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa; //@date 16.10.2026
+
+/**
+ * Defines when the classes stored in an ESA file are defined by the
+ * underlying class loader.
+ *
+ * @see JarConfiguration#getLoadingMode()
+ */
+public enum LoadingMode {
+
+    /**
+     * All classes are defined while the ESA file is loaded. This is the
+     * default behaviour.
+     */
+    EAGER,
+
+    /**
+     * Only an index of the decrypted JAR file is built while loading. A class
+     * is inflated and defined the first time it is requested, either through
+     * the {@link ESA} lookup methods or by the JVM resolving a reference from
+     * another shared class.
+     */
+    LAZY,
+
+    /**
+     * All classes are defined while the ESA file is loaded, but inflating and
+     * defining them is spread across the pool returned by
+     * {@link JarConfiguration#getPreloadPool()}. Classes are defined in the
+     * order of their superclass/interface hierarchy.
+     */
+    PARALLEL
+}
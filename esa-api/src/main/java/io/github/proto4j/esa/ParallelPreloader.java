@@ -0,0 +1,212 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa; //@date 16.10.2026
+
+import io.github.proto4j.esa.api.ArchiveIndex;
+import io.github.proto4j.esa.api.ByteCodeClassLoader;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Registers and defines all classes of a decrypted JAR file in parallel.
+ * <p>
+ * The preload runs in two phases on the configured {@link ForkJoinPool}:
+ * <ol>
+ *     <li>All class entries are inflated (or decrypted) concurrently and
+ *     registered in the class loader. Their supertypes are
+ *     read from the class file header.</li>
+ *     <li>Classes are grouped into levels, where each class only depends on
+ *     classes of lower levels. The levels are defined one after another and
+ *     all classes of one level are defined concurrently. Thus, linking a class
+ *     never has to recurse back into the loader to define an ESA supertype.</li>
+ * </ol>
+ * The class loader must be parallel capable.
+ *
+ * @see LoadingMode#PARALLEL
+ */
+final class ParallelPreloader {
+
+    private final ForkJoinPool pool;
+    private final ByteCodeClassLoader<Type> loader;
+
+    ParallelPreloader(ForkJoinPool pool, ByteCodeClassLoader<Type> loader) {
+        this.pool   = pool;
+        this.loader = loader;
+    }
+
+    /**
+     * Registers all classes of the given archive and defines them by calling
+     * the given action with each internal class name.
+     *
+     * @param index the archive index
+     * @param define the action that defines a single class
+     * @throws IOException if an entry could not be read or a class could
+     *         not be defined
+     */
+    void preload(ArchiveIndex index, ClassDefinition define) throws IOException {
+        List<ClassSource> sources = new ArrayList<>();
+        for (ArchiveIndex.Entry entry : index.getEntries()) {
+            if (entry.getName().endsWith(".class")) {
+                sources.add(() -> index.read(entry));
+            }
+        }
+        preload(sources, define);
+    }
+
+    /**
+     * Reads and registers all given classes and defines them by calling the
+     * given action with each internal class name.
+     *
+     * @param sources the sources of all class files
+     * @param define the action that defines a single class
+     * @throws IOException if a class file could not be read or a class
+     *         could not be defined
+     */
+    void preload(List<ClassSource> sources, ClassDefinition define) throws IOException {
+        Node[] nodes = new Node[sources.size()];
+        forEach(nodes.length, i -> {
+            byte[] content = sources.get(i).read();
+            ClassReader reader = new ClassReader(content);
+            String internalName = reader.getClassName();
+
+            nodes[i] = new Node(internalName, reader.getSuperName(), reader.getInterfaces());
+            loader.put(Type.getObjectType(internalName), content, 0, content.length);
+        });
+
+        for (List<Node> level : getLevels(nodes)) {
+            forEach(level.size(), i -> define.define(level.get(i).name));
+        }
+    }
+
+    private static List<List<Node>> getLevels(Node[] nodes) {
+        Map<String, Node> byName = new HashMap<>();
+        for (Node node : nodes) {
+            byName.put(node.name, node);
+        }
+
+        List<List<Node>> levels = new ArrayList<>();
+        for (Node node : nodes) {
+            int level = getLevel(node, byName);
+            while (levels.size() <= level) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(level).add(node);
+        }
+        return levels;
+    }
+
+    private static int getLevel(Node node, Map<String, Node> byName) {
+        if (node.level >= 0) {
+            return node.level;
+        }
+
+        // Mark the node as visited, so an invalid (cyclic) hierarchy
+        // does not result in an endless recursion.
+        node.level = 0;
+        int level = 0;
+        for (String dependency : node.dependencies) {
+            Node parent = byName.get(dependency);
+            if (parent != null) {
+                level = Math.max(level, getLevel(parent, byName) + 1);
+            }
+        }
+        return (node.level = level);
+    }
+
+    private void forEach(int count, IndexAction action) throws IOException {
+        if (count == 0) {
+            return;
+        }
+
+        try {
+            pool.invoke(new RangeAction(action, 0, count));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Supplies the content of a single class file.
+     */
+    interface ClassSource {
+        byte[] read() throws IOException;
+    }
+
+    /**
+     * Defines a single registered class.
+     */
+    interface ClassDefinition {
+        void define(String internalName) throws IOException;
+    }
+
+    private interface IndexAction {
+        void apply(int index) throws IOException;
+    }
+
+    @SuppressWarnings("serial") // fork-join tasks are never serialized
+    private static final class RangeAction extends RecursiveAction {
+        private final IndexAction action;
+        private final int from;
+        private final int to;
+
+        RangeAction(IndexAction action, int from, int to) {
+            this.action = action;
+            this.from   = from;
+            this.to     = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                try {
+                    action.apply(from);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeAction(action, from, middle), new RangeAction(action, middle, to));
+        }
+    }
+
+    private static final class Node {
+        private final String name;
+        private final List<String> dependencies = new ArrayList<>();
+        private int level = -1;
+
+        Node(String name, String superName, String[] interfaces) {
+            this.name = name;
+            if (superName != null) {
+                dependencies.add(superName);
+            }
+            for (String itf : interfaces) {
+                dependencies.add(itf);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa; //@date 16.10.2026
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The declared methods and fields of a shared class, indexed by their name.
+ * The index is built once per class, so lookups neither copy the reflection
+ * data nor throw exceptions for missing members.
+ * <p>
+ * The returned {@link Method} and {@link Field} objects are shared by all
+ * callers.
+ */
+final class SharedMembers {
+
+    private static final Class<?>[] NO_TYPES = new Class<?>[0];
+
+    /**
+     * Declared methods by their name. Overloads are stored next to each other
+     * and compared by their parameter types.
+     */
+    private final Map<String, Method[]> methods = new HashMap<>();
+
+    /**
+     * The parameter types of the methods, in the same order.
+     */
+    private final Map<String, Class<?>[][]> parameterTypes = new HashMap<>();
+
+    /**
+     * Declared fields by their name.
+     */
+    private final Map<String, Field> fields = new HashMap<>();
+
+    /**
+     * Declared and inherited fields by their name. Fields of a class hide the
+     * fields of its superclasses.
+     */
+    private final Map<String, Field> inheritedFields = new HashMap<>();
+
+    SharedMembers(Class<?> type) {
+        for (Method method : type.getDeclaredMethods()) {
+            addMethod(method);
+        }
+        for (Field field : type.getDeclaredFields()) {
+            fields.put(field.getName(), field);
+        }
+
+        inheritedFields.putAll(fields);
+        Class<?> base = type;
+        while ((base = base.getSuperclass()) != null && base != Object.class) {
+            for (Field field : base.getDeclaredFields()) {
+                inheritedFields.putIfAbsent(field.getName(), field);
+            }
+        }
+    }
+
+    private void addMethod(Method method) {
+        String name = method.getName();
+        Class<?>[] types = method.getParameterTypes();
+        Method[] candidates = methods.get(name);
+        Class<?>[][] candidateTypes = parameterTypes.get(name);
+        if (candidates == null) {
+            methods.put(name, new Method[]{method});
+            parameterTypes.put(name, new Class<?>[][]{types});
+            return;
+        }
+
+        for (int i = 0; i < candidates.length; i++) {
+            if (Arrays.equals(candidateTypes[i], types)) {
+                // Bridge methods share the parameter types of the method
+                // they delegate to. Like getDeclaredMethod(), the method
+                // with the most specific return type is used.
+                if (candidates[i].getReturnType().isAssignableFrom(method.getReturnType())) {
+                    candidates[i] = method;
+                }
+                return;
+            }
+        }
+
+        Method[] newCandidates = Arrays.copyOf(candidates, candidates.length + 1);
+        Class<?>[][] newTypes = Arrays.copyOf(candidateTypes, candidateTypes.length + 1);
+        newCandidates[candidates.length] = method;
+        newTypes[candidates.length] = types;
+        methods.put(name, newCandidates);
+        parameterTypes.put(name, newTypes);
+    }
+
+    /**
+     * Returns the declared method with the given name and parameter types.
+     *
+     * @param name the method's name
+     * @param argTypes the parameter types ({@code null} is treated as an
+     *         empty array)
+     * @return the method or {@code null} if there is none
+     */
+    Method getMethod(String name, Class<?>[] argTypes) {
+        Method[] candidates = methods.get(name);
+        if (candidates == null) {
+            return null;
+        }
+
+        Class<?>[][] candidateTypes = parameterTypes.get(name);
+        Class<?>[] types = argTypes != null ? argTypes : NO_TYPES;
+        for (int i = 0; i < candidates.length; i++) {
+            if (Arrays.equals(candidateTypes[i], types)) {
+                return candidates[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the field with the given name.
+     *
+     * @param name the field's name
+     * @param inherited whether fields of superclasses are included
+     * @return the field or {@code null} if there is none
+     */
+    Field getField(String name, boolean inherited) {
+        return (inherited ? inheritedFields : fields).get(name);
+    }
+}
@@ -41,6 +41,10 @@ import java.lang.reflect.Modifier;
  *     <li><code>filename</code>: The name of the stored ESA-file</li>
  *     <li><code>encodedJar</code>: the ESA file content</li>
  * </ul>
+ * ESA files that exceed the size of a single class file constant are split
+ * into segments, which are stored in the additional fields
+ * <code>encodedJar1</code>, <code>encodedJar2</code>, ... and returned by the
+ * generated <code>getSegment(int)</code> method.
  * Thus, an existing class like the following:
  * <pre>
  *     &#064;Output
@@ -81,9 +85,9 @@ public @interface Output {
          *
          * @param cls the output class type
          * @param filename the filename to use
-         * @param data the encrypted field info
+         * @param data the encrypted field info of each segment
          */
-        public OutputClassInfo(Class<?> cls, String filename, EncryptedFieldInfo data) {
+        public OutputClassInfo(Class<?> cls, String filename, EncryptedFieldInfo... data) {
             this(Type.getType(cls), filename, data);
         }
 
@@ -93,15 +97,18 @@ public @interface Output {
          *
          * @param type the output class type
          * @param filename the filename to use
-         * @param data the encrypted field info
+         * @param data the encrypted field info of each segment
          */
-        public OutputClassInfo(Type type, String filename, EncryptedFieldInfo data) {
+        public OutputClassInfo(Type type, String filename, EncryptedFieldInfo... data) {
             super(type);
             IFieldInfo field = IFieldInfo.getInstance(
                     Type.getType(String.class), ESA.NAME,
                     filename, Modifier.PUBLIC | Modifier.FINAL | Modifier.STATIC);
-            // Only two fields are allowed
-            setFields(new IFieldInfo[]{ field, data });
+            // Only the filename and the segment fields are allowed
+            IFieldInfo[] fields = new IFieldInfo[data.length + 1];
+            fields[0] = field;
+            System.arraycopy(data, 0, fields, 1, data.length);
+            setFields(fields);
         }
 
         /**
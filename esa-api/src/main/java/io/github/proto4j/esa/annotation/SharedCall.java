@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.github.proto4j.esa.annotation; //@date 16.10.2026
+
+import io.github.proto4j.esa.executor.SharedCallSites;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a static stub method of the application that stands for a shared
+ * method. The Gradle plugin replaces every call to the stub with an
+ * {@code invokedynamic} instruction, which is linked to the shared method
+ * on its first execution (see {@link SharedCallSites}). Both names are
+ * encrypted in the rewritten call sites.
+ * <p>
+ * The parameters of the stub are the arguments of the shared method. If the
+ * shared method is not static, the receiver is passed as the first argument.
+ * Shared classes, which are invisible at runtime, can be declared as any
+ * supertype (for instance, {@code Object}):
+ * <pre>
+ * &#64;SharedCall("org.example.MessageUtil")
+ * static String getMessage() {
+ *     throw new UnsupportedOperationException();
+ * }
+ *
+ * &#64;SharedCall(value = "org.example.Greeter", method = "greet")
+ * static String greet(Object greeter, String who) {
+ *     throw new UnsupportedOperationException();
+ * }
+ * </pre>
+ * The body of the stub is only executed if it is called reflectively or
+ * from classes that have not been rewritten. Class files older than Java 7
+ * are not rewritten, because they can not contain {@code invokedynamic}
+ * instructions.
+ *
+ * @see SharedCallSites
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target({ElementType.METHOD})
+public @interface SharedCall {
+    /**
+     * The fully qualified name of the shared class.
+     *
+     * @return the class name
+     */
+    String value();
+
+    /**
+     * The name of the shared method. Defaults to the name of the stub.
+     *
+     * @return the method name
+     */
+    String method() default "";
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.api; //@date 16.10.2026
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * An index of all entries of a ZIP file that is stored in a byte array. The
+ * index is built from the central directory only, so no entry has to be
+ * inflated until its content is requested with {@link #read(Entry)}.
+ * <p>
+ * Instances of this class are immutable and reading entries is thread-safe,
+ * because every call to {@link #read(Entry)} uses its own {@link Inflater}.
+ * Only the compression methods <code>STORED</code> and <code>DEFLATED</code>
+ * are supported. ZIP64 archives will be recognized as well.
+ */
+public final class ArchiveIndex {
+
+    private static final int LOCSIG = 0x04034b50;
+    private static final int CENSIG = 0x02014b50;
+    private static final int ENDSIG = 0x06054b50;
+    private static final int ZIP64_ENDSIG = 0x06064b50;
+    private static final int ZIP64_LOCSIG = 0x07064b50;
+
+    private static final int LOCHDR = 30;
+    private static final int CENHDR = 46;
+    private static final int ENDHDR = 22;
+    private static final int ZIP64_LOCHDR = 20;
+
+    private static final int ZIP64_EXTID = 0x0001;
+    private static final long ZIP64_MAGICVAL = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGICCOUNT = 0xFFFF;
+
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    /**
+     * A single entry of the central directory.
+     */
+    public static final class Entry {
+        private final String name;
+        private final int method;
+        private final long compressedSize;
+        private final long size;
+        private final long offset;
+
+        Entry(String name, int method, long compressedSize, long size, long offset) {
+            this.name           = name;
+            this.method         = method;
+            this.compressedSize = compressedSize;
+            this.size           = size;
+            this.offset         = offset;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMethod() {
+            return method;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+    }
+
+    private final byte[] archive;
+    private final int length;
+    private final Map<String, Entry> entries;
+
+    private ArchiveIndex(byte[] archive, int length, Map<String, Entry> entries) {
+        this.archive = archive;
+        this.length  = length;
+        this.entries = entries;
+    }
+
+    /**
+     * Builds the index of the given ZIP file by reading its central directory.
+     * The array is referenced, not copied, so it must not be modified
+     * afterwards.
+     *
+     * @param archive the raw ZIP file
+     * @return the created index
+     * @throws ZipException if the given bytes are not a valid ZIP file
+     */
+    public static ArchiveIndex read(byte[] archive) throws ZipException {
+        return read(archive, archive.length);
+    }
+
+    /**
+     * Builds the index of the ZIP file stored in the first <code>length</code>
+     * bytes of the given array.
+     *
+     * @param archive the buffer containing the raw ZIP file
+     * @param length the ZIP file length
+     * @return the created index
+     * @throws ZipException if the given bytes are not a valid ZIP file
+     * @see #read(byte[])
+     */
+    public static ArchiveIndex read(byte[] archive, int length) throws ZipException {
+        return read(archive, length, -1);
+    }
+
+    /**
+     * Builds the index of the ZIP file stored in the first <code>length</code>
+     * bytes of the given array. The end of the central directory is expected
+     * at the given offset, which is usually stored in the {@link ESAHeader}.
+     * If there is no end header at this offset, it is searched like in
+     * {@link #read(byte[], int)}.
+     *
+     * @param archive the buffer containing the raw ZIP file
+     * @param length the ZIP file length
+     * @param endOffset the offset of the end of the central directory, or
+     *         {@code -1} if it is unknown
+     * @return the created index
+     * @throws ZipException if the given bytes are not a valid ZIP file
+     * @see #getEndOffset(byte[], int)
+     */
+    public static ArchiveIndex read(byte[] archive, int length, int endOffset) throws ZipException {
+        if (archive == null || length < ENDHDR || length > archive.length) {
+            throw new ZipException("Invalid archive: too short");
+        }
+
+        int end = isEnd(archive, length, endOffset) ? endOffset : findEnd(archive, length);
+        long count = u16(archive, end + 10);
+        long cenSize = u32(archive, end + 12);
+        long cenOffset = u32(archive, end + 16);
+
+        if (count == ZIP64_MAGICCOUNT || cenSize == ZIP64_MAGICVAL || cenOffset == ZIP64_MAGICVAL) {
+            int loc = end - ZIP64_LOCHDR;
+            if (loc < 0 || u32(archive, loc) != ZIP64_LOCSIG) {
+                throw new ZipException("Missing ZIP64 end locator");
+            }
+            int end64 = checkedOffset(length, u64(archive, loc + 8), 56);
+            if (u32(archive, end64) != ZIP64_ENDSIG) {
+                throw new ZipException("Invalid ZIP64 end header");
+            }
+            count     = u64(archive, end64 + 32);
+            cenSize   = u64(archive, end64 + 40);
+            cenOffset = u64(archive, end64 + 48);
+        }
+
+        int pos = checkedOffset(length, cenOffset, cenSize);
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for (long i = 0; i < count; i++) {
+            checkedOffset(length, pos, CENHDR);
+            if (u32(archive, pos) != CENSIG) {
+                throw new ZipException("Invalid central directory header at " + pos);
+            }
+
+            int method = u16(archive, pos + 10);
+            long compressedSize = u32(archive, pos + 20);
+            long size = u32(archive, pos + 24);
+            int nameLength = u16(archive, pos + 28);
+            int extraLength = u16(archive, pos + 30);
+            int commentLength = u16(archive, pos + 32);
+            long offset = u32(archive, pos + 42);
+
+            int namePos = pos + CENHDR;
+            checkedOffset(length, namePos, (long) nameLength + extraLength + commentLength);
+            String name = new String(archive, namePos, nameLength, StandardCharsets.UTF_8);
+
+            // ZIP64 extended information replaces only the fields that
+            // are set to 0xFFFFFFFF, in the order: size, csize, offset
+            int extra = namePos + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = u16(archive, extra);
+                int dataSize = u16(archive, extra + 2);
+                if (id == ZIP64_EXTID) {
+                    int value = extra + 4;
+                    if (size == ZIP64_MAGICVAL) {
+                        size = u64(archive, value);
+                        value += 8;
+                    }
+                    if (compressedSize == ZIP64_MAGICVAL) {
+                        compressedSize = u64(archive, value);
+                        value += 8;
+                    }
+                    if (offset == ZIP64_MAGICVAL) {
+                        offset = u64(archive, value);
+                    }
+                    break;
+                }
+                extra += 4 + dataSize;
+            }
+
+            entries.put(name, new Entry(name, method, compressedSize, size, offset));
+            pos = extraEnd + commentLength;
+        }
+        return new ArchiveIndex(archive, length, Collections.unmodifiableMap(entries));
+    }
+
+    /**
+     * Returns the entry with the given name.
+     *
+     * @param name the entry name (e.g. <code>org/example/Foo.class</code>)
+     * @return the entry or {@code null} if there is no such entry
+     */
+    public Entry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Returns all entries in the order of the central directory.
+     *
+     * @return an unmodifiable view on all entries
+     */
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Reads and inflates the content of the given entry.
+     *
+     * @param entry the entry to read
+     * @return the uncompressed content
+     * @throws IOException if the entry could not be read
+     */
+    public byte[] read(Entry entry) throws IOException {
+        int offset = checkedOffset(length, entry.offset, LOCHDR);
+        if (u32(archive, offset) != LOCSIG) {
+            throw new ZipException("Invalid local header: " + entry.getName());
+        }
+
+        int data = offset + LOCHDR + u16(archive, offset + 26) + u16(archive, offset + 28);
+        int compressedSize = checkedOffset(length, entry.compressedSize, 0);
+        checkedOffset(length, data, compressedSize);
+
+        switch (entry.method) {
+            case STORED:
+                return Arrays.copyOfRange(archive, data, data + compressedSize);
+            case DEFLATED:
+                if (entry.size > Integer.MAX_VALUE - 8) {
+                    throw new ZipException("Entry too large: " + entry.getName());
+                }
+                return inflate(entry, data, compressedSize, (int) entry.size);
+            default:
+                throw new ZipException("Unsupported compression method " + entry.method + ": " + entry.getName());
+        }
+    }
+
+    private byte[] inflate(Entry entry, int data, int length, int size) throws IOException {
+        byte[] content = new byte[size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(archive, data, length);
+            int count = 0;
+            while (count < size && !inflater.finished()) {
+                int n = inflater.inflate(content, count, size - count);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                count += n;
+            }
+            if (count != size) {
+                throw new ZipException("Invalid entry size: " + entry.getName());
+            }
+            return content;
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage() + ": " + entry.getName());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Returns the offset of the end of the central directory of the ZIP file
+     * stored in the first <code>length</code> bytes of the given array.
+     *
+     * @param archive the buffer containing the raw ZIP file
+     * @param length the ZIP file length
+     * @return the offset of the end header
+     * @throws ZipException if there is no end header
+     */
+    public static int getEndOffset(byte[] archive, int length) throws ZipException {
+        if (archive == null || length < ENDHDR || length > archive.length) {
+            throw new ZipException("Invalid archive: too short");
+        }
+        return findEnd(archive, length);
+    }
+
+    private static boolean isEnd(byte[] archive, int length, int pos) {
+        return pos >= 0 && pos <= length - ENDHDR
+                && u32(archive, pos) == ENDSIG
+                && pos + ENDHDR + u16(archive, pos + 20) == length;
+    }
+
+    private static int findEnd(byte[] archive, int length) throws ZipException {
+        // The end header is followed by a comment of at most 0xFFFF bytes
+        int min = Math.max(0, length - ENDHDR - 0xFFFF);
+        for (int pos = length - ENDHDR; pos >= min; pos--) {
+            if (isEnd(archive, length, pos)) {
+                return pos;
+            }
+        }
+        throw new ZipException("Missing end of central directory");
+    }
+
+    private static int checkedOffset(int limit, long offset, long length) throws ZipException {
+        if (offset < 0 || length < 0 || offset + length > limit) {
+            throw new ZipException("Invalid archive: offset out of bounds");
+        }
+        return (int) offset;
+    }
+
+    private static int u16(byte[] b, int pos) {
+        return (b[pos] & 0xFF) | (b[pos + 1] & 0xFF) << 8;
+    }
+
+    private static long u32(byte[] b, int pos) {
+        return (u16(b, pos) | (long) u16(b, pos + 2) << 16) & 0xFFFFFFFFL;
+    }
+
+    private static long u64(byte[] b, int pos) {
+        return u32(b, pos) | u32(b, pos + 4) << 32;
+    }
+}
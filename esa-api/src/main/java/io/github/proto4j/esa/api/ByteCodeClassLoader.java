@@ -16,49 +16,221 @@
 
 package io.github.proto4j.esa.api; //@date 27.01.2023
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Map;
-import java.util.function.Predicate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
+/**
+ * Base class of all class loaders that define classes from bytecode stored in
+ * memory. Registered classes are indexed by their binary name (e.g.
+ * <code>org.example.Foo</code>), so every lookup is a single hash probe.
+ * <p>
+ * This loader is registered as parallel capable. Subclasses should register
+ * themselves as well and define classes while holding the lock returned by
+ * {@link #getClassLoadingLock(String)}, so different classes can be defined
+ * concurrently.
+ *
+ * @param <T> the type used to register classes
+ */
 public abstract class ByteCodeClassLoader<T> extends ClassLoader {
 
+    static {
+        registerAsParallelCapable();
+    }
+
     public static final class ClassByteCode {
-        public final byte[] content;
+        private volatile ByteCodeSource source;
+
+        public volatile Class<?> loadedClass;
+
+        ClassByteCode(ByteCodeSource source) {this.source = source;}
+
+        public ByteBuffer getContent() throws IOException {
+            ByteCodeSource source = this.source;
+            if (source == null) {
+                throw new IOException("Bytecode already released");
+            }
+            return source.read();
+        }
 
-        public Class<?> loadedClass;
+        /**
+         * Releases the bytecode source, so the class file content can be
+         * freed once the class has been defined.
+         */
+        public void release() {
+            ByteCodeSource source = this.source;
+            this.source = null;
+            if (source != null) {
+                source.release();
+            }
+        }
+    }
+
+    private final Map<String, ClassByteCode> classMap = new ConcurrentHashMap<>();
+
+    /**
+     * Off-heap storage for the bytecode of all classes that have been
+     * registered with a byte array.
+     */
+    private final ClassArena arena = new ClassArena();
 
-        ClassByteCode(byte[] content) {this.content = content;}
+    /**
+     * Resolves the bytecode of classes that have not been registered
+     * explicitly (may be {@code null}).
+     */
+    private volatile Function<String, ByteCodeSource> resolver;
+
+    protected ByteCodeClassLoader() {
+        super();
     }
 
-    private final Map<T, ClassByteCode> classMap = Collections.synchronizedMap(new HashMap<>());
+    protected ByteCodeClassLoader(ClassLoader parent) {
+        super(parent);
+    }
 
     @Override
     protected abstract Class<?> findClass(String name) throws ClassNotFoundException;
 
+    /**
+     * Returns the binary name of the class described by the given type.
+     *
+     * @param type the class type
+     * @return the binary class name, e.g. <code>org.example.Foo</code>
+     */
+    protected abstract String getClassName(T type);
+
     public final void put(T type, byte[] content) throws IllegalAccessError {
-        if (classMap.containsKey(type)) {
+        put(type, content, 0, content.length);
+    }
+
+    /**
+     * Registers a class by copying the given bytecode into the off-heap class
+     * arena of this loader. The array is not referenced afterwards, so it can
+     * be reused by the caller.
+     *
+     * @param type the class type
+     * @param content the array containing the class file
+     * @param offset the class file offset
+     * @param length the class file length
+     * @throws IllegalAccessError if the type has already been registered
+     */
+    public final void put(T type, byte[] content, int offset, int length) throws IllegalAccessError {
+        if (classMap.containsKey(getClassName(type))) {
+            throw new IllegalAccessError("Type: " + type + "already defined!");
+        }
+
+        ByteCodeSource source = arena.allocate(content, offset, length);
+        try {
+            put(type, source);
+        } catch (IllegalAccessError e) {
+            source.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Registers a class by copying the given bytecode into the off-heap class
+     * arena of this loader, unless a class with the same name has already
+     * been registered or resolved. Unlike {@link #put(Object, byte[], int, int)}
+     * this method can be used while other threads request the same class.
+     *
+     * @param type the class type
+     * @param content the array containing the class file
+     * @param offset the class file offset
+     * @param length the class file length
+     * @return whether the class has been registered
+     */
+    public final boolean putIfAbsent(T type, byte[] content, int offset, int length) {
+        String name = getClassName(type);
+        if (classMap.containsKey(name)) {
+            return false;
+        }
+
+        ByteCodeSource source = arena.allocate(content, offset, length);
+        if (classMap.putIfAbsent(name, new ClassByteCode(source)) != null) {
+            source.release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Registers a class whose bytecode is read from the given source when the
+     * class is defined for the first time.
+     *
+     * @param type the class type
+     * @param source the bytecode source
+     * @throws IllegalAccessError if the type has already been registered
+     */
+    public final void put(T type, ByteCodeSource source) throws IllegalAccessError {
+        if (classMap.putIfAbsent(getClassName(type), new ClassByteCode(source)) != null) {
             throw new IllegalAccessError("Type: " + type + "already defined!");
         }
+    }
 
-        classMap.put(type, new ClassByteCode(content));
+    /**
+     * Sets the function that is asked for the bytecode of a class that has
+     * not been registered. This is used when the names of the stored classes
+     * are not known in advance, for instance when an ESA container only
+     * stores hashes of the class names. The function should only return a
+     * source and must not read the bytecode itself.
+     *
+     * @param resolver a function that maps binary class names to bytecode
+     *         sources or {@code null} if there is no such class
+     */
+    public final void setResolver(Function<String, ByteCodeSource> resolver) {
+        this.resolver = resolver;
+    }
+
+    public final boolean contains(T type) {
+        return containsClass(getClassName(type));
+    }
+
+    /**
+     * Returns whether a class with the given binary name has been registered
+     * or can be resolved.
+     *
+     * @param name the binary class name
+     * @return whether the class is stored in this loader
+     */
+    public final boolean containsClass(String name) {
+        return getByteCode(name) != null;
     }
 
     public final boolean remove(T type) {
-        return classMap.remove(type) != null;
+        ClassByteCode byteCode = classMap.remove(getClassName(type));
+        if (byteCode != null) {
+            byteCode.release();
+        }
+        return byteCode != null;
     }
 
     protected ClassByteCode get(T type) {
-        return classMap.getOrDefault(type, null);
+        return classMap.get(getClassName(type));
     }
 
-    protected ClassByteCode get(Predicate<? super T> filter) {
-        for (T key : classMap.keySet()){
-            if (filter.test(key)) {
-                return classMap.get(key);
+    /**
+     * Returns the registered bytecode of the class with the given binary name.
+     *
+     * @param name the binary class name
+     * @return the class bytecode or {@code null} if there is no such class
+     */
+    protected ClassByteCode getByteCode(String name) {
+        ClassByteCode byteCode = classMap.get(name);
+        Function<String, ByteCodeSource> resolver = this.resolver;
+        if (byteCode == null && resolver != null) {
+            ByteCodeSource source = resolver.apply(name);
+            if (source != null) {
+                byteCode = new ClassByteCode(source);
+                ClassByteCode existing = classMap.putIfAbsent(name, byteCode);
+                if (existing != null) {
+                    byteCode = existing;
+                }
             }
         }
-        return null;
+        return byteCode;
     }
 
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.api; //@date 16.10.2026
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Provides the bytecode of a single class. Sources are used by the
+ * {@link ByteCodeClassLoader} to delay reading (e.g. inflating) a class file
+ * until the class is actually defined.
+ *
+ * @see ByteCodeClassLoader#put(Object, ByteCodeSource)
+ */
+public interface ByteCodeSource {
+
+    /**
+     * Reads the class file content. The returned buffer contains the class
+     * file between its position and limit and may be a direct buffer.
+     *
+     * @return the class file content
+     * @throws IOException if the content could not be read
+     */
+    public abstract ByteBuffer read() throws IOException;
+
+    /**
+     * Releases all resources of this source after the class has been defined.
+     * The default implementation does nothing.
+     */
+    public default void release() {
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.api; //@date 16.10.2026
+
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * An {@code InputStream} that returns the characters of a
+ * {@code CharSequence} as ISO-8859-1 bytes. It is used to pass the encoded
+ * content of an ESA file to a cipher without copying the whole string with
+ * {@link String#getBytes()} first.
+ * <p>
+ * Characters that can not be represented in ISO-8859-1 are replaced by
+ * <code>'?'</code>. Encoded ESA files contain ASCII characters only.
+ */
+public final class CharSequenceInputStream extends InputStream {
+
+    private final CharSequence content;
+    private int position;
+    private int mark;
+
+    public CharSequenceInputStream(CharSequence content) {
+        this.content = Objects.requireNonNull(content);
+    }
+
+    @Override
+    public int read() {
+        if (position >= content.length()) {
+            return -1;
+        }
+        return toByte(content.charAt(position++)) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        Objects.requireNonNull(b);
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+
+        int remaining = content.length() - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+
+        int count = Math.min(len, remaining);
+        for (int i = 0; i < count; i++) {
+            b[off + i] = toByte(content.charAt(position++));
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        long count = Math.max(0, Math.min(n, content.length() - position));
+        position += (int) count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return Math.max(0, content.length() - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        mark = position;
+    }
+
+    @Override
+    public synchronized void reset() {
+        position = mark;
+    }
+
+    private static byte toByte(char c) {
+        return (byte) (c <= 0xFF ? c : '?');
+    }
+}
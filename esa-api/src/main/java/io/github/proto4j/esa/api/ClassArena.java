@@ -0,0 +1,146 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.api; //@date 16.10.2026
+
+import java.nio.ByteBuffer;
+
+/**
+ * Stores the bytecode of multiple classes in one contiguous direct
+ * {@code ByteBuffer}. Each class is identified by its offset and length
+ * within the buffer, which keeps the class files out of the Java heap until
+ * they are defined.
+ * <p>
+ * Single regions can not be freed. Instead, the arena counts the regions
+ * that have not been released yet and drops the whole buffer as soon as all
+ * of them have been released. All methods are thread-safe.
+ *
+ * @see ByteCodeClassLoader
+ */
+final class ClassArena {
+
+    /**
+     * The initial arena capacity (64 KiB).
+     */
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private ByteBuffer buffer;
+
+    /**
+     * The end of the last allocated region.
+     */
+    private int position;
+
+    /**
+     * The number of regions that have not been released yet.
+     */
+    private int live;
+
+    /**
+     * Copies the given bytes into this arena.
+     *
+     * @param content the source array
+     * @param offset the start offset in the array
+     * @param length the number of bytes to copy
+     * @return the source that provides the stored bytes
+     */
+    synchronized ByteCodeSource allocate(byte[] content, int offset, int length) {
+        ensureCapacity(length);
+
+        int start = position;
+        ByteBuffer target = buffer.duplicate();
+        target.position(start);
+        target.put(content, offset, length);
+
+        position += length;
+        live++;
+        return new Region(start, length);
+    }
+
+    /**
+     * Returns the number of bytes currently reserved by this arena.
+     *
+     * @return the arena capacity or 0 if no buffer is allocated
+     */
+    synchronized int capacity() {
+        return buffer == null ? 0 : buffer.capacity();
+    }
+
+    private void ensureCapacity(int length) {
+        if (buffer == null) {
+            buffer   = ByteBuffer.allocateDirect(Math.max(INITIAL_CAPACITY, length));
+            position = 0;
+            return;
+        }
+
+        if (buffer.capacity() - position >= length) {
+            return;
+        }
+
+        // Regions that are currently being defined keep a slice of the old
+        // buffer, so it stays valid until they are released.
+        long required = (long) position + length;
+        int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(required, 2L * buffer.capacity()));
+        if (capacity < required) {
+            throw new OutOfMemoryError("Class arena size limit exceeded");
+        }
+
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        ByteBuffer source = buffer.duplicate();
+        source.position(0).limit(position);
+        grown.put(source);
+        buffer = grown;
+    }
+
+    private synchronized ByteBuffer slice(int start, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(start).limit(start + length);
+        return view.slice();
+    }
+
+    private synchronized void release() {
+        if (--live == 0) {
+            buffer   = null;
+            position = 0;
+        }
+    }
+
+    private final class Region implements ByteCodeSource {
+        private final int start;
+        private final int length;
+        private boolean released;
+
+        Region(int start, int length) {
+            this.start  = start;
+            this.length = length;
+        }
+
+        @Override
+        public ByteBuffer read() {
+            return slice(start, length);
+        }
+
+        @Override
+        public void release() {
+            synchronized (ClassArena.this) {
+                if (!released) {
+                    released = true;
+                    ClassArena.this.release();
+                }
+            }
+        }
+    }
+}
@@ -22,16 +22,18 @@ class DefaultSharedClassInfo extends DefaultClassInfo
         implements ISharedClassInfo {
 
     public DefaultSharedClassInfo(Type type, int modifiers, RelocateDetails relocateDetails,
-                                  boolean shadowed, boolean output) {
+                                  boolean shadowed, boolean output, SharedCallInfo[] sharedCalls) {
         super(type, modifiers);
         this.relocateDetails = relocateDetails;
         this.shadowed        = shadowed;
         this.output          = output;
+        this.sharedCalls     = sharedCalls == null ? new SharedCallInfo[0] : sharedCalls;
     }
 
-    private final RelocateDetails relocateDetails;
-    private final boolean         shadowed;
-    private final boolean         output;
+    private final RelocateDetails  relocateDetails;
+    private final boolean          shadowed;
+    private final boolean          output;
+    private final SharedCallInfo[] sharedCalls;
 
 
     @Override
@@ -48,4 +50,9 @@ class DefaultSharedClassInfo extends DefaultClassInfo
     public boolean isOutputClass() {
         return output;
     }
+
+    @Override
+    public SharedCallInfo[] getSharedCalls() {
+        return sharedCalls;
+    }
 }
@@ -0,0 +1,439 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.api; //@date 16.10.2026
+
+import io.github.proto4j.crypto.Base128;
+import io.github.proto4j.crypto.CipherSuite;
+import io.github.proto4j.crypto.PayloadEncoding;
+import io.github.proto4j.esa.ESAFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * The header in front of the first segment of an {@link ESAFile}. It tells
+ * the runtime how the payload has to be decoded, so new formats can be
+ * introduced without breaking older ESA files. All numbers are stored in
+ * big-endian byte order:
+ * <pre>
+ * +-------+---------+--------+-------+-------+-------+--------------+--------------+
+ * | magic | version | length | suite | codec | flags | segment size | index offset |
+ * | 4     | 1       | 1      | 1     | 1     | 2     | 4            | 4            |
+ * +-------+---------+--------+-------+-------+-------+--------------+--------------+
+ * </pre>
+ * The header is Base64 encoded and prefixed with {@link #PREFIX}, which is
+ * neither part of the Base64 and Base128 alphabet nor the first character of
+ * an {@link EntryContainer}. Therefore, ESA files without a header are still
+ * recognized and read as before.
+ * <p>
+ * Flags and codecs are capabilities the runtime has to understand. A header
+ * that uses a newer version, an unknown codec or an unknown flag is
+ * rejected instead of being decoded the wrong way. Authenticated ciphers
+ * bind every segment and container entry to the header bytes (see
+ * {@link #getAssociatedData(byte[])}), so the header can not be changed
+ * without failing verification.
+ *
+ * @see #read(ESAFile)
+ */
+public final class ESAHeader {
+
+    /**
+     * The first character of every header.
+     */
+    public static final char PREFIX = '#';
+
+    /**
+     * The current header version.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The segments are stored without additional compression. The JAR
+     * file compresses its entries on its own.
+     */
+    public static final int CODEC_NONE = 0;
+
+    /**
+     * Every entry is compressed with a raw {@code Deflater}, which is used
+     * by {@link EntryContainer}.
+     */
+    public static final int CODEC_DEFLATE = 1;
+
+    /**
+     * The payload is an {@link EntryContainer} instead of an encrypted JAR
+     * file.
+     */
+    public static final int FLAG_CONTAINER = 0x0001;
+
+    /**
+     * Every segment has been encrypted by an authenticated cipher with the
+     * data returned by {@link ESAFile#getSegmentAAD(int, int)}.
+     */
+    public static final int FLAG_AUTHENTICATED = 0x0002;
+
+    /**
+     * The encrypted content is encoded with Base128 instead of Base64.
+     */
+    public static final int FLAG_BASE128 = 0x0004;
+
+    private static final int KNOWN_FLAGS = FLAG_CONTAINER | FLAG_AUTHENTICATED | FLAG_BASE128;
+
+    private static final byte[] MAGIC = {'E', 'S', 'A', 'H'};
+
+    /**
+     * The number of header bytes, which is a multiple of three, so the
+     * encoded header does not need padding.
+     */
+    private static final int LENGTH = 18;
+
+    private final int cipherSuite;
+    private final int codec;
+    private final int flags;
+    private final int segmentSize;
+    private final int indexOffset;
+
+    /**
+     * The header bytes, which are authenticated with every segment.
+     */
+    private final byte[] bytes;
+
+    /**
+     * Creates a new header.
+     *
+     * @param cipherSuite the id of the {@link CipherSuite}
+     * @param codec the compression codec
+     * @param flags the flags
+     * @param segmentSize the number of decrypted bytes per segment, or
+     *         {@code 0} if unknown
+     * @param indexOffset the offset of the end of the central directory in
+     *         the decrypted JAR file, or {@code 0} if unknown
+     * @throws IllegalArgumentException if a value is out of range or if the
+     *                                  codec or a flag is unknown
+     */
+    public ESAHeader(int cipherSuite, int codec, int flags, int segmentSize, int indexOffset) {
+        this(cipherSuite, codec, flags, segmentSize, indexOffset, null);
+    }
+
+    private ESAHeader(int cipherSuite, int codec, int flags, int segmentSize, int indexOffset, byte[] bytes) {
+        if (cipherSuite < 0 || cipherSuite > CipherSuite.MAX_ID) {
+            throw new IllegalArgumentException("Invalid cipher suite: " + cipherSuite);
+        }
+        if (codec != CODEC_NONE && codec != CODEC_DEFLATE) {
+            throw new IllegalArgumentException("Unknown codec: " + codec);
+        }
+        if ((flags & ~KNOWN_FLAGS) != 0) {
+            throw new IllegalArgumentException("Unknown flags: 0x" + Integer.toHexString(flags));
+        }
+        if (segmentSize < 0 || indexOffset < 0) {
+            throw new IllegalArgumentException("Negative segment size or index offset");
+        }
+        this.cipherSuite = cipherSuite;
+        this.codec       = codec;
+        this.flags       = flags;
+        this.segmentSize = segmentSize;
+        this.indexOffset = indexOffset;
+        // stored headers are authenticated as they are, including unused
+        // trailing bytes
+        this.bytes       = bytes != null ? bytes : toBytes();
+    }
+
+    /**
+     * Returns whether the given (first) segment starts with a header.
+     *
+     * @param segment the first segment of an ESA file
+     * @return whether the segment has a header
+     */
+    public static boolean hasHeader(CharSequence segment) {
+        return segment != null && segment.length() > 0 && segment.charAt(0) == PREFIX;
+    }
+
+    /**
+     * Reads the header of the given ESA file.
+     *
+     * @param file the ESA file
+     * @return the header or {@code null} if the ESA file has been created
+     *         without a header
+     * @throws IOException if the header is invalid or uses a version, codec
+     *                     or flag that is not supported
+     */
+    public static ESAHeader read(ESAFile file) throws IOException {
+        if (file.getSegmentCount() == 0) {
+            return null;
+        }
+        return read(file.getSegment(0));
+    }
+
+    /**
+     * Reads the header at the start of the given (first) segment.
+     *
+     * @param segment the first segment of an ESA file
+     * @return the header or {@code null} if the segment has no header
+     * @throws IOException if the header is invalid or uses a version, codec
+     *                     or flag that is not supported
+     */
+    public static ESAHeader read(CharSequence segment) throws IOException {
+        if (!hasHeader(segment)) {
+            return null;
+        }
+
+        ByteBuffer header;
+        try {
+            // the first six bytes contain the magic, version and length
+            byte[] start = decode(segment, 6);
+            int length = start[5] & 0xFF;
+            if (length < LENGTH || length % 3 != 0) {
+                throw new IOException("Invalid ESA header length: " + length);
+            }
+            header = ByteBuffer.wrap(decode(segment, length));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Invalid ESA header", e);
+        }
+
+        for (byte b : MAGIC) {
+            if (header.get() != b) {
+                throw new IOException("Invalid ESA header: bad magic");
+            }
+        }
+        int version = header.get() & 0xFF;
+        if (version > VERSION) {
+            throw new IOException("Unsupported ESA format version: " + version);
+        }
+        header.get(); // length
+        byte[] bytes = header.array();
+        int cipherSuite = header.get() & 0xFF;
+        int codec = header.get() & 0xFF;
+        int flags = header.getShort() & 0xFFFF;
+        int segmentSize = header.getInt();
+        int indexOffset = header.getInt();
+
+        try {
+            return new ESAHeader(cipherSuite, codec, flags, segmentSize, indexOffset, bytes);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unsupported ESA header: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] decode(CharSequence segment, int length) {
+        int chars = length / 3 * 4;
+        byte[] text = new byte[chars];
+        for (int i = 0; i < chars; i++) {
+            text[i] = (byte) segment.charAt(1 + i);
+        }
+        return Base64.getDecoder().decode(text);
+    }
+
+    /**
+     * Returns the number of characters the header takes at the start of the
+     * given (first) segment.
+     *
+     * @param segment the first segment of an ESA file
+     * @return the encoded header length or {@code 0} if there is no header
+     * @throws IOException if the header is invalid
+     */
+    public static int getEncodedLength(CharSequence segment) throws IOException {
+        if (!hasHeader(segment)) {
+            return 0;
+        }
+        try {
+            int length = decode(segment, 6)[5] & 0xFF;
+            return 1 + length / 3 * 4;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Invalid ESA header", e);
+        }
+    }
+
+    /**
+     * Returns a view on the given ESA file without the header. The first
+     * segment is copied once, all other segments are returned as they are.
+     *
+     * @param file the ESA file with a header
+     * @return the ESA file without header
+     * @throws IOException if the header is invalid
+     */
+    public ESAFile getPayload(ESAFile file) throws IOException {
+        String first = file.getSegment(0);
+        return new Payload(file, first.substring(getEncodedLength(first)), cipherSuite);
+    }
+
+    /**
+     * Encodes this header, so it can be put in front of the first segment.
+     *
+     * @return the encoded header
+     */
+    public String encode() {
+        return PREFIX + Base64.getEncoder().encodeToString(bytes);
+    }
+
+    private byte[] toBytes() {
+        ByteBuffer header = ByteBuffer.allocate(LENGTH);
+        header.put(MAGIC)
+                .put((byte) VERSION)
+                .put((byte) LENGTH)
+                .put((byte) cipherSuite)
+                .put((byte) codec)
+                .putShort((short) flags)
+                .putInt(segmentSize)
+                .putInt(indexOffset);
+        return header.array();
+    }
+
+    /**
+     * Returns the given additional authenticated data of a segment or a
+     * container entry, prefixed with the bytes of this header.
+     *
+     * @param data the additional authenticated data
+     * @return the data bound to this header
+     * @see ESAFile#getSegmentAAD(int, int)
+     * @see EntryContainer#getAssociatedData(long, int)
+     */
+    public byte[] getAssociatedData(byte[] data) {
+        byte[] result = Arrays.copyOf(bytes, bytes.length + data.length);
+        System.arraycopy(data, 0, result, bytes.length, data.length);
+        return result;
+    }
+
+    /**
+     * Checks that the given encrypted segment or container entry is encoded
+     * as declared by {@link #FLAG_BASE128}.
+     *
+     * @param content the encrypted content
+     * @throws IOException if the content uses another encoding
+     */
+    public void checkEncoding(CharSequence content) throws IOException {
+        boolean base128 = content.length() > 0 && content.charAt(0) == Base128.MARKER;
+        if (base128 != isBase128()) {
+            throw new IOException("Content is not encoded with " + getEncoding() + " as declared by the ESA header");
+        }
+    }
+
+    /**
+     * @return the id of the {@link CipherSuite} the payload has been
+     *         encrypted with
+     */
+    public int getCipherSuite() {
+        return cipherSuite;
+    }
+
+    /**
+     * @return the compression codec, for instance {@link #CODEC_NONE}
+     */
+    public int getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return all flags of this header
+     */
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * @return whether the payload is an {@link EntryContainer}
+     */
+    public boolean isContainer() {
+        return (flags & FLAG_CONTAINER) != 0;
+    }
+
+    /**
+     * @return whether the segments have been encrypted by an authenticated
+     *         cipher
+     */
+    public boolean isAuthenticated() {
+        return (flags & FLAG_AUTHENTICATED) != 0;
+    }
+
+    /**
+     * @return whether the encrypted content is encoded with Base128
+     */
+    public boolean isBase128() {
+        return (flags & FLAG_BASE128) != 0;
+    }
+
+    /**
+     * @return the encoding of the encrypted content
+     */
+    public PayloadEncoding getEncoding() {
+        return isBase128() ? PayloadEncoding.BASE128 : PayloadEncoding.BASE64;
+    }
+
+    /**
+     * @return the number of decrypted bytes per segment (the last segment
+     *         may be smaller), or {@code 0} if unknown
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * @return the offset of the end of the central directory in the
+     *         decrypted JAR file, or {@code 0} if unknown
+     * @see ArchiveIndex#read(byte[], int, int)
+     */
+    public int getIndexOffset() {
+        return indexOffset;
+    }
+
+    @Override
+    public String toString() {
+        return "ESAHeader[suite=" + cipherSuite + ", codec=" + codec
+                + ", flags=0x" + Integer.toHexString(flags) + ", segmentSize=" + segmentSize
+                + ", indexOffset=" + indexOffset + "]";
+    }
+
+    /**
+     * An ESA file without its header.
+     */
+    private static final class Payload implements ESAFile {
+        private final ESAFile file;
+        private final String first;
+        private final int cipherSuite;
+
+        Payload(ESAFile file, String first, int cipherSuite) {
+            this.file        = file;
+            this.first       = first;
+            this.cipherSuite = cipherSuite;
+        }
+
+        @Override
+        public String getEncoded() {
+            return first;
+        }
+
+        @Override
+        public int getSegmentCount() {
+            return file.getSegmentCount();
+        }
+
+        @Override
+        public String getSegment(int index) {
+            return index == 0 ? first : file.getSegment(index);
+        }
+
+        @Override
+        public int getCipherSuite() {
+            return cipherSuite;
+        }
+
+        @Override
+        public String getFilename() {
+            return file.getFilename();
+        }
+    }
+}
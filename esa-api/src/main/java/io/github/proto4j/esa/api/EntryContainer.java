@@ -0,0 +1,546 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.api; //@date 16.10.2026
+
+import io.github.proto4j.crypto.ICipher;
+import io.github.proto4j.esa.ESAFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An ESA container stores every entry of the shared JAR file compressed and
+ * encrypted on its own, so a single class can be decrypted without touching
+ * the rest of the archive.
+ * <p>
+ * The container is a text that can be spread across the segments of an
+ * {@link ESAFile}. All numbers are stored as fixed-width hexadecimal values:
+ * <pre>
+ * +-------+---------+-------+-----------------------+-------------------+
+ * | magic | version | count | index: count x entry  | encrypted entries |
+ * | "!ESA"| 2       | 8     | 42 each               | ...               |
+ * +-------+---------+-------+-----------------------+-------------------+
+ *
+ * entry: name hash (16) | offset (8) | length (8) | size (8) | flags (2)
+ * </pre>
+ * The name hash is the 64-bit FNV-1a hash of the entry name (e.g.
+ * <code>org/example/Foo.class</code>), so the index does not reveal the
+ * names of the stored classes. Offset and length locate the encrypted entry
+ * relative to the end of the index and size is the length of the inflated
+ * entry. Each entry is compressed with a raw {@code Deflater} and encrypted
+ * with an {@link ICipher}, which stores a fresh IV in front of the
+ * ciphertext.
+ * <p>
+ * If the ESA file has an {@link ESAHeader}, its codec tells whether the
+ * entries have been compressed, and authenticated entries are bound to the
+ * header as well.
+ * <p>
+ * Instances of this class are immutable and can be shared across threads.
+ */
+public final class EntryContainer {
+
+    /**
+     * The first characters of every container. The leading character is not
+     * part of the Base64 or Base128 alphabet, so containers can be told apart
+     * from encrypted JAR files.
+     */
+    public static final String MAGIC = "!ESA";
+
+    /**
+     * The current container version.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Marks entries that store a class file.
+     */
+    public static final int FLAG_CLASS = 0x01;
+
+    /**
+     * Marks entries that have been encrypted by an authenticated cipher
+     * with the data returned by {@link #getAssociatedData(long, int)}.
+     */
+    public static final int FLAG_AUTHENTICATED = 0x02;
+
+    private static final int HEADER_LENGTH = MAGIC.length() + 2 + 8;
+    private static final int ENTRY_LENGTH  = 16 + 8 + 8 + 8 + 2;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME        = 0x100000001b3L;
+
+    private final CharSequence content;
+    private final int dataOffset;
+    private final Map<Long, Entry> entries;
+
+    /**
+     * The header of the ESA file, or {@code null} if it has been created
+     * without a header.
+     */
+    private final ESAHeader header;
+
+    private EntryContainer(CharSequence content, int dataOffset, Map<Long, Entry> entries, ESAHeader header) {
+        this.content    = content;
+        this.dataOffset = dataOffset;
+        this.entries    = entries;
+        this.header     = header;
+    }
+
+    /**
+     * Returns whether the given (first) segment starts a container.
+     *
+     * @param segment the first segment of an ESA file
+     * @return whether the segment belongs to a container
+     */
+    public static boolean isContainer(CharSequence segment) {
+        if (segment == null || segment.length() < MAGIC.length()) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length(); i++) {
+            if (segment.charAt(i) != MAGIC.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the index of the container stored in the segments of the given
+     * ESA file. The segments are not copied.
+     *
+     * @param file the ESA file
+     * @return the container
+     * @throws IOException if the container is malformed
+     */
+    public static EntryContainer read(ESAFile file) throws IOException {
+        return read(file, null);
+    }
+
+    /**
+     * Reads the index of the container stored in the segments of the given
+     * ESA file, which has been stored with the given header. The segments
+     * are not copied.
+     *
+     * @param file the ESA file without its header
+     * @param header the header of the ESA file, or {@code null} if there is
+     *         no header
+     * @return the container
+     * @throws IOException if the container is malformed or if the header
+     *                     uses a codec that is not supported by containers
+     */
+    public static EntryContainer read(ESAFile file, ESAHeader header) throws IOException {
+        if (header != null && header.getCodec() != ESAHeader.CODEC_NONE
+                && header.getCodec() != ESAHeader.CODEC_DEFLATE) {
+            throw new IOException("Unsupported container codec: " + header.getCodec());
+        }
+
+        CharSequence[] segments = new CharSequence[file.getSegmentCount()];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = file.getSegment(i);
+            if (segments[i] == null) {
+                throw new IOException("Missing segment " + i);
+            }
+        }
+        return read(header, segments);
+    }
+
+    /**
+     * Reads the index of the container stored in the given segments.
+     *
+     * @param segments the container segments
+     * @return the container
+     * @throws IOException if the container is malformed
+     */
+    public static EntryContainer read(CharSequence... segments) throws IOException {
+        return read(null, segments);
+    }
+
+    private static EntryContainer read(ESAHeader header, CharSequence[] segments) throws IOException {
+        CharSequence content = segments.length == 1 ? segments[0] : new Segments(segments);
+        if (!isContainer(content) || content.length() < HEADER_LENGTH) {
+            throw new IOException("Not an ESA container");
+        }
+
+        int version = (int) parseHex(content, MAGIC.length(), 2);
+        if (version != VERSION) {
+            throw new IOException("Unsupported container version: " + version);
+        }
+
+        int count = (int) parseHex(content, MAGIC.length() + 2, 8);
+        long dataOffset = HEADER_LENGTH + (long) count * ENTRY_LENGTH;
+        if (count < 0 || dataOffset > content.length()) {
+            throw new IOException("Truncated container index");
+        }
+
+        Map<Long, Entry> entries = new HashMap<>(count * 4 / 3 + 1);
+        int position = HEADER_LENGTH;
+        for (int i = 0; i < count; i++, position += ENTRY_LENGTH) {
+            long hash   = parseHex(content, position, 16);
+            long offset = parseHex(content, position + 16, 8);
+            long length = parseHex(content, position + 24, 8);
+            long size   = parseHex(content, position + 32, 8);
+            int flags   = (int) parseHex(content, position + 40, 2);
+
+            if (dataOffset + offset + length > content.length() || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid container entry " + i);
+            }
+            Entry entry = new Entry(hash, (int) offset, (int) length, (int) size, flags);
+            if (entries.put(hash, entry) != null) {
+                throw new IOException("Duplicate container entry " + Long.toHexString(hash));
+            }
+        }
+        return new EntryContainer(content, (int) dataOffset, entries, header);
+    }
+
+    /**
+     * Returns the 64-bit FNV-1a hash of the given entry name.
+     *
+     * @param name the entry name
+     * @return the name hash
+     */
+    public static long hash(String name) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xFF);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the additional authenticated data of an entry, which binds the
+     * encrypted content to the name hash and the size of the entry.
+     *
+     * @param hash the name hash
+     * @param size the size of the plain content
+     * @return the additional authenticated data
+     * @see ICipher#updateAAD(byte[])
+     */
+    public static byte[] getAssociatedData(long hash, int size) {
+        return ByteBuffer.allocate(12).putLong(hash).putInt(size).array();
+    }
+
+    /**
+     * Returns the entry with the given name, e.g. <code>org/example/Foo.class</code>.
+     *
+     * @param name the entry name
+     * @return the entry or {@code null} if there is no such entry
+     */
+    public Entry getEntry(String name) {
+        return entries.get(hash(name));
+    }
+
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the encrypted content of the given entry.
+     *
+     * @param entry the entry
+     * @return the encrypted and encoded entry
+     */
+    public CharSequence getContent(Entry entry) {
+        int start = dataOffset + entry.offset;
+        if (content instanceof Segments) {
+            return content.subSequence(start, start + entry.length);
+        }
+        return CharBuffer.wrap(content, start, start + entry.length);
+    }
+
+    /**
+     * Opens a stream that decrypts and inflates the given entry. The cipher
+     * has to be initialized for decryption and is only used by this call, so
+     * the returned stream can be read without holding a lock on the cipher.
+     * Authenticated entries are verified with their associated data, which
+     * includes the header of the ESA file.
+     *
+     * @param entry the entry to read
+     * @param cipher the initialized cipher
+     * @return the stream returning the plain entry content
+     * @throws IOException if the entry could not be decrypted or is not
+     *                     encoded as declared by the header
+     */
+    public InputStream open(Entry entry, ICipher cipher) throws IOException {
+        CharSequence encrypted = getContent(entry);
+        if (header != null) {
+            header.checkEncoding(encrypted);
+        }
+        if (entry.isAuthenticated()) {
+            byte[] aad = getAssociatedData(entry.hash, entry.size);
+            cipher.updateAAD(header != null ? header.getAssociatedData(aad) : aad);
+        }
+        InputStream decrypted = cipher.newInputStream(new CharSequenceInputStream(encrypted));
+        if (header != null && header.getCodec() == ESAHeader.CODEC_NONE) {
+            return decrypted;
+        }
+
+        Inflater inflater = new Inflater(true);
+        return new InflaterInputStream(decrypted, inflater) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    inflater.end();
+                    super.close();
+                }
+            }
+        };
+    }
+
+    private static long parseHex(CharSequence content, int offset, int length) throws IOException {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = Character.digit(content.charAt(i), 16);
+            if (digit == -1) {
+                throw new IOException("Malformed container index at " + i);
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private static void appendHex(StringBuilder builder, long value, int length) {
+        for (int shift = (length - 1) * 4; shift >= 0; shift -= 4) {
+            builder.append(Character.forDigit((int) ((value >>> shift) & 0xF), 16));
+        }
+    }
+
+    /**
+     * An entry of the container index.
+     */
+    public static final class Entry {
+        private final long hash;
+        private final int offset;
+        private final int length;
+        private final int size;
+        private final int flags;
+
+        Entry(long hash, int offset, int length, int size, int flags) {
+            this.hash   = hash;
+            this.offset = offset;
+            this.length = length;
+            this.size   = size;
+            this.flags  = flags;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        /**
+         * @return the length of the encrypted content
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * @return the size of the plain content
+         */
+        public int getSize() {
+            return size;
+        }
+
+        public int getFlags() {
+            return flags;
+        }
+
+        public boolean isClass() {
+            return (flags & FLAG_CLASS) != 0;
+        }
+
+        public boolean isAuthenticated() {
+            return (flags & FLAG_AUTHENTICATED) != 0;
+        }
+    }
+
+    /**
+     * Creates the text of a container from already encrypted entries.
+     */
+    public static final class Builder {
+        private final List<CharSequence> contents = new ArrayList<>();
+        private final List<Entry> entries = new ArrayList<>();
+        private final Map<Long, String> hashes = new HashMap<>();
+
+        private long length;
+
+        /**
+         * Adds an entry to this container.
+         *
+         * @param name the entry name
+         * @param size the size of the plain content
+         * @param encrypted the compressed, encrypted and encoded content
+         * @return this builder
+         * @throws IllegalArgumentException if the name hash of this entry
+         *                                  collides with another entry
+         */
+        public Builder add(String name, int size, CharSequence encrypted) throws IllegalArgumentException {
+            return add(name, size, encrypted, false);
+        }
+
+        /**
+         * Adds an entry to this container.
+         *
+         * @param name the entry name
+         * @param size the size of the plain content
+         * @param encrypted the compressed, encrypted and encoded content
+         * @param authenticated whether the entry has been encrypted by an
+         *         authenticated cipher with the data returned by
+         *         {@link #getAssociatedData(long, int)}
+         * @return this builder
+         * @throws IllegalArgumentException if the name hash of this entry
+         *                                  collides with another entry
+         */
+        public Builder add(String name, int size, CharSequence encrypted, boolean authenticated)
+                throws IllegalArgumentException {
+            long hash = hash(name);
+            String other = hashes.putIfAbsent(hash, name);
+            if (other != null) {
+                throw new IllegalArgumentException("Entry " + name + " collides with " + other);
+            }
+            if (length + encrypted.length() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Container too large");
+            }
+
+            int flags = name.endsWith(".class") ? FLAG_CLASS : 0;
+            if (authenticated) {
+                flags |= FLAG_AUTHENTICATED;
+            }
+            entries.add(new Entry(hash, (int) length, encrypted.length(), size, flags));
+            contents.add(encrypted);
+            length += encrypted.length();
+            return this;
+        }
+
+        public String build() {
+            StringBuilder builder = new StringBuilder(
+                    (int) Math.min(Integer.MAX_VALUE, HEADER_LENGTH + (long) entries.size() * ENTRY_LENGTH + length));
+            builder.append(MAGIC);
+            appendHex(builder, VERSION, 2);
+            appendHex(builder, entries.size(), 8);
+            for (Entry entry : entries) {
+                appendHex(builder, entry.hash, 16);
+                appendHex(builder, entry.offset, 8);
+                appendHex(builder, entry.length, 8);
+                appendHex(builder, entry.size, 8);
+                appendHex(builder, entry.flags, 2);
+            }
+            for (CharSequence content : contents) {
+                builder.append(content);
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * A read-only view over several segments.
+     */
+    private static final class Segments implements CharSequence {
+        private final CharSequence[] parts;
+        private final int[] offsets;
+        private final int length;
+
+        Segments(CharSequence[] parts) {
+            this.parts   = parts;
+            this.offsets = new int[parts.length];
+            int length = 0;
+            for (int i = 0; i < parts.length; i++) {
+                offsets[i] = length;
+                length += parts[i].length();
+            }
+            this.length = length;
+        }
+
+        private int indexOf(int position) {
+            int index = Arrays.binarySearch(offsets, position);
+            if (index < 0) {
+                return -index - 2;
+            }
+            // skip empty segments
+            while (index + 1 < offsets.length && offsets[index + 1] == position) {
+                index++;
+            }
+            return index;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            int part = indexOf(index);
+            return parts[part].charAt(index - offsets[part]);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException(start + ", " + end);
+            }
+            if (start == end) {
+                return "";
+            }
+
+            int first = indexOf(start);
+            int last  = indexOf(end - 1);
+            if (first == last) {
+                // Entries stored in a single segment are not copied
+                return CharBuffer.wrap(parts[first], start - offsets[first], end - offsets[first]);
+            }
+
+            StringBuilder builder = new StringBuilder(end - start);
+            for (int part = first; part <= last; part++) {
+                int from = Math.max(start, offsets[part]) - offsets[part];
+                int to   = Math.min(end, offsets[part] + parts[part].length()) - offsets[part];
+                builder.append(parts[part], from, to);
+            }
+            return builder;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(length);
+            for (CharSequence part : parts) {
+                builder.append(part);
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -34,7 +34,13 @@ public interface IClassInfo extends Member {
     public static ISharedClassInfo getSharedInstance(
             Type type, int mod, boolean shadowed, RelocateDetails details,
             boolean outputClass) {
-        return new DefaultSharedClassInfo(type, mod, details, shadowed, outputClass);
+        return getSharedInstance(type, mod, shadowed, details, outputClass, null);
+    }
+
+    public static ISharedClassInfo getSharedInstance(
+            Type type, int mod, boolean shadowed, RelocateDetails details,
+            boolean outputClass, SharedCallInfo[] sharedCalls) {
+        return new DefaultSharedClassInfo(type, mod, details, shadowed, outputClass, sharedCalls);
     }
 
     public Type getType();
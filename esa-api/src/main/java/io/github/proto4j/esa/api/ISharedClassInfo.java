@@ -25,6 +25,10 @@ public interface ISharedClassInfo extends IClassInfo{
 
     public abstract boolean isOutputClass();
 
+    public default SharedCallInfo[] getSharedCalls() {
+        return new SharedCallInfo[0];
+    }
+
     public default boolean hasEncryptedFields() {
         for (IFieldInfo field : getDeclaredFields()) {
             if (field instanceof EncryptedFieldInfo) {
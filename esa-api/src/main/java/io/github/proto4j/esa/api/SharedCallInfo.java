@@ -0,0 +1,109 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.github.proto4j.esa.api; //@date 16.10.2026
+
+import io.github.proto4j.crypto.EncryptionWrapper;
+import io.github.proto4j.esa.annotation.SharedCall;
+import org.objectweb.asm.Type;
+
+/**
+ * Describes a stub method annotated with {@link SharedCall} and the shared
+ * method it stands for. The names of the shared class and method can be
+ * encrypted before the call sites are rewritten.
+ */
+public final class SharedCallInfo {
+
+    private final Type   owner;
+    private final String name;
+    private final String descriptor;
+
+    private String sharedClass;
+    private String sharedMethod;
+
+    private boolean encrypted;
+
+    public SharedCallInfo(Type owner, String name, String descriptor, String sharedClass, String sharedMethod) {
+        this.owner        = owner;
+        this.name         = name;
+        this.descriptor   = descriptor;
+        this.sharedClass  = sharedClass;
+        this.sharedMethod = sharedMethod == null || sharedMethod.isEmpty() ? name : sharedMethod;
+    }
+
+    /**
+     * @return the class declaring the stub method
+     */
+    public Type getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return the name of the stub method
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the descriptor of the stub method, which is used as the type
+     *         of the rewritten call sites
+     */
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * @return the (encrypted) name of the shared class
+     */
+    public String getSharedClass() {
+        return sharedClass;
+    }
+
+    /**
+     * @return the (encrypted) name of the shared method
+     */
+    public String getSharedMethod() {
+        return sharedMethod;
+    }
+
+    /**
+     * Returns whether the given method instruction calls the stub method.
+     *
+     * @param owner the internal name of the owner
+     * @param name the method name
+     * @param descriptor the method descriptor
+     * @return whether the stub method is called
+     */
+    public boolean isCalledBy(String owner, String name, String descriptor) {
+        return this.owner.getInternalName().equals(owner) && this.name.equals(name)
+                && this.descriptor.equals(descriptor);
+    }
+
+    /**
+     * Encrypts the names of the shared class and method. This method has no
+     * effect if the names have already been encrypted.
+     *
+     * @param mapper the encryption function
+     * @throws Exception if a name could not be encrypted
+     */
+    public void encrypt(EncryptionWrapper<String, String> mapper) throws Exception {
+        if (mapper != null && !encrypted) {
+            sharedClass  = mapper.encrypt(sharedClass);
+            sharedMethod = mapper.encrypt(sharedMethod);
+            encrypted    = true;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package io.github.proto4j.esa.api; //@date 24.01.2023
 
 import org.objectweb.asm.*;
+import io.github.proto4j.crypto.CipherSuite;
 import io.github.proto4j.esa.ESAFile;
 import io.github.proto4j.esa.ESA;
 import io.github.proto4j.esa.api.asm.IClassCreator;
@@ -24,6 +25,8 @@ import io.github.proto4j.esa.api.asm.IClassCreator;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import static org.objectweb.asm.Opcodes.*;
 
@@ -33,9 +36,14 @@ public final class SharedJarClassWriter implements IClassCreator {
     private static final String DESCRIPTOR  = "()" + STRING.getDescriptor();
     private static final Type   contentType = Type.getType(ESAFile.class);
 
+    private static final String SEGMENT_COUNT_DESCRIPTOR = "()I";
+    private static final String SEGMENT_DESCRIPTOR       = "(I)" + STRING.getDescriptor();
+    private static final String CIPHER_SUITE_DESCRIPTOR  = "()I";
+
     private boolean    exists;
     private IClassInfo info;
     private int version;
+    private int cipherSuite = CipherSuite.AES_CBC;
 
     private InputStream source;
 
@@ -76,6 +84,7 @@ public final class SharedJarClassWriter implements IClassCreator {
                  info.getType().getInternalName(), null, "java/lang/Object",
                  new String[]{contentType.getInternalName()});
 
+        SortedMap<Integer, String> segments = new TreeMap<>();
         for (IFieldInfo info : info.getDeclaredFields()) {
             String value = (String) info.getValue();
             cw.visitField(info.getModifiers(),
@@ -85,7 +94,14 @@ public final class SharedJarClassWriter implements IClassCreator {
             } else if (info.getName().equals(ESA.NAME)) {
                 implementFilename(cw, info.getName(), info.getName().length());
             }
+
+            int index = getSegmentIndex(info.getName());
+            if (index >= 0) {
+                segments.put(index, info.getName());
+            }
         }
+        implementSegments(cw, segments);
+        implementCipherSuite(cw);
 
         cw.visitEnd();
         stream.write(cw.toByteArray());
@@ -107,6 +123,120 @@ public final class SharedJarClassWriter implements IClassCreator {
         implementMethod(mv, name, STRING.getDescriptor(), size);
     }
 
+    private void implementSegments(ClassVisitor cw, SortedMap<Integer, String> segments) {
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        int count = segments.lastKey() + 1;
+        MethodVisitor mv = cw.visitMethod(
+                ACC_PUBLIC, "getSegmentCount", SEGMENT_COUNT_DESCRIPTOR,
+                null, new String[0]);
+        mv.visitCode();
+        mv.visitLdcInsn(count);
+        mv.visitInsn(IRETURN);
+        mv.visitMaxs(1, 1);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(
+                ACC_PUBLIC, "getSegment", SEGMENT_DESCRIPTOR,
+                null, new String[0]);
+        mv.visitCode();
+
+        Label outOfBounds = new Label();
+        Label[] labels = new Label[count];
+        for (int i = 0; i < count; i++) {
+            labels[i] = segments.containsKey(i) ? new Label() : outOfBounds;
+        }
+
+        mv.visitVarInsn(ILOAD, 1);
+        mv.visitTableSwitchInsn(0, count - 1, outOfBounds, labels);
+        for (int i = 0; i < count; i++) {
+            String fieldName = segments.get(i);
+            if (fieldName != null) {
+                mv.visitLabel(labels[i]);
+                mv.visitFieldInsn(GETSTATIC, info.getType().getInternalName(), fieldName, STRING.getDescriptor());
+                mv.visitInsn(ARETURN);
+            }
+        }
+
+        String exception = Type.getInternalName(IndexOutOfBoundsException.class);
+        mv.visitLabel(outOfBounds);
+        mv.visitTypeInsn(NEW, exception);
+        mv.visitInsn(DUP);
+        mv.visitVarInsn(ILOAD, 1);
+        mv.visitMethodInsn(INVOKESTATIC, STRING.getInternalName(), "valueOf", "(I)" + STRING.getDescriptor(), false);
+        mv.visitMethodInsn(INVOKESPECIAL, exception, "<init>", "(" + STRING.getDescriptor() + ")V", false);
+        mv.visitInsn(ATHROW);
+        mv.visitMaxs(3, 2);
+        mv.visitEnd();
+    }
+
+    private void implementCipherSuite(ClassVisitor cw) {
+        if (cipherSuite == CipherSuite.AES_CBC) {
+            // the default method of ESAFile already returns the legacy suite
+            return;
+        }
+
+        MethodVisitor mv = cw.visitMethod(
+                ACC_PUBLIC, "getCipherSuite", CIPHER_SUITE_DESCRIPTOR,
+                null, new String[0]);
+        mv.visitCode();
+        mv.visitLdcInsn(cipherSuite);
+        mv.visitInsn(IRETURN);
+        mv.visitMaxs(1, 1);
+        mv.visitEnd();
+    }
+
+    /**
+     * Returns the name of the field that stores the segment with the given
+     * index. The first segment is stored in {@link ESA#ENCODED}, so an ESA
+     * file with only one segment is compatible with older versions.
+     *
+     * @param index the segment index
+     * @return the field name
+     */
+    public static String getSegmentName(int index) {
+        return index == 0 ? ESA.ENCODED : ESA.ENCODED + index;
+    }
+
+    /**
+     * Returns the index of the segment stored in the field with the given
+     * name, or {@code -1} if the field does not store a segment.
+     *
+     * @param name the field name
+     * @return the segment index or {@code -1}
+     */
+    public static int getSegmentIndex(String name) {
+        if (!name.startsWith(ESA.ENCODED)) {
+            return -1;
+        }
+
+        String suffix = name.substring(ESA.ENCODED.length());
+        if (suffix.isEmpty()) {
+            return 0;
+        }
+        if (suffix.charAt(0) == '0' || suffix.length() > 9) {
+            return -1;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (!Character.isDigit(suffix.charAt(i))) {
+                return -1;
+            }
+        }
+        return Integer.parseInt(suffix);
+    }
+
+    /**
+     * Sets the id of the {@link CipherSuite} that is returned by the
+     * generated {@link ESAFile#getCipherSuite()} method.
+     *
+     * @param cipherSuite the cipher suite id
+     */
+    public void setCipherSuite(int cipherSuite) {
+        this.cipherSuite = cipherSuite;
+    }
+
     public void setVersion(int version) {
         this.version = version;
     }
@@ -172,6 +302,7 @@ public final class SharedJarClassWriter implements IClassCreator {
 
 
         private void setFields() {
+            SortedMap<Integer, String> segments = new TreeMap<>();
             for (IFieldInfo field : info.getDeclaredFields()) {
                 super.visitField(field.getModifiers(), field.getName(),
                                  field.getType().getDescriptor(), null,
@@ -181,7 +312,14 @@ public final class SharedJarClassWriter implements IClassCreator {
                 } else if (field.getName().equals(ESA.ENCODED)) {
                     implementEncoded(getDelegate(), ESA.ENCODED, ((String)field.getValue()).length());
                 }
+
+                int index = getSegmentIndex(field.getName());
+                if (index >= 0) {
+                    segments.put(index, field.getName());
+                }
             }
+            implementSegments(getDelegate(), segments);
+            implementCipherSuite(getDelegate());
             fieldsSet = true;
         }
 
@@ -192,6 +330,12 @@ public final class SharedJarClassWriter implements IClassCreator {
                 return null;
             } else if (name.equals("getFilename") && descriptor.equals(DESCRIPTOR)) {
                 return null;
+            } else if (name.equals("getSegmentCount") && descriptor.equals(SEGMENT_COUNT_DESCRIPTOR)) {
+                return null;
+            } else if (name.equals("getSegment") && descriptor.equals(SEGMENT_DESCRIPTOR)) {
+                return null;
+            } else if (name.equals("getCipherSuite") && descriptor.equals(CIPHER_SUITE_DESCRIPTOR)) {
+                return null;
             }
             return super.visitMethod(access, name, descriptor, signature, exceptions);
         }
@@ -18,14 +18,122 @@ package io.github.proto4j.esa.api; //@date 27.01.2023
 
 import org.objectweb.asm.Type;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.ProtectionDomain;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The default ESA class loader, which registers classes by their ASM
+ * {@link Type}.
+ * <p>
+ * By default, this loader uses the standard parent-first delegation. In
+ * child-first mode, registered classes are defined before the parent class
+ * loader is asked, which avoids a full class path search on the first access
+ * of every shared class. In both modes, names that could neither be found in
+ * this loader nor in the parent are remembered in a bounded negative cache.
+ */
 public final class TypeClassLoader extends ByteCodeClassLoader<Type> {
 
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final boolean childFirst;
+
+    /**
+     * The names of classes known to be missing, bounded by {@link #cacheSize}.
+     */
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+
+    private final int cacheSize;
+
+    public TypeClassLoader() {
+        this(false, 0);
+    }
+
+    /**
+     * Creates a new loader with the system class loader as its parent.
+     *
+     * @param childFirst whether registered classes should be searched first
+     * @param negativeCacheSize the maximum number of missing class names to
+     *         remember ({@code 0} disables the cache)
+     */
+    public TypeClassLoader(boolean childFirst, int negativeCacheSize) {
+        this(getSystemClassLoader(), childFirst, negativeCacheSize);
+    }
+
+    /**
+     * Creates a new loader with the given parent class loader.
+     *
+     * @param parent the parent class loader
+     * @param childFirst whether registered classes should be searched first
+     * @param negativeCacheSize the maximum number of missing class names to
+     *         remember ({@code 0} disables the cache)
+     */
+    public TypeClassLoader(ClassLoader parent, boolean childFirst, int negativeCacheSize) {
+        super(parent);
+        this.childFirst = childFirst;
+        this.cacheSize  = Math.max(0, negativeCacheSize);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (containsClass(name)) {
+            if (!childFirst) {
+                return super.loadClass(name, resolve);
+            }
+
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> cls = findLoadedClass(name);
+                if (cls == null) {
+                    cls = findClass(name);
+                }
+                if (resolve) {
+                    resolveClass(cls);
+                }
+                return cls;
+            }
+        }
+
+        if (missing.contains(name)) {
+            throw new ClassNotFoundException(name);
+        }
+
+        try {
+            // The name is not stored in this loader, so the final call to
+            // findClass() fails fast after the parent has been asked.
+            return super.loadClass(name, resolve);
+        } catch (ClassNotFoundException e) {
+            addMissing(name);
+            throw e;
+        }
+    }
+
+    private void addMissing(String name) {
+        if (cacheSize == 0) {
+            return;
+        }
+
+        // Evict an arbitrary entry to keep the cache bounded without
+        // a global lock on the lookup path.
+        if (missing.size() >= cacheSize) {
+            Iterator<String> iterator = missing.iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        missing.add(name);
+    }
+
     @Override
     protected Class<?> findClass(String name) throws ClassNotFoundException {
-        // Assuming we get the internal name, which contains '.' instead
-        // of '/'. The ';' will be added at the end:
-        final String descriptor = 'L' + name.replaceAll("\\.", "/") + ';';
-        ClassByteCode byteCode = get(key -> key.getDescriptor().equals(descriptor));
+        // Classes are indexed by their binary name, which is exactly
+        // the name passed to this method.
+        ClassByteCode byteCode = getByteCode(name);
 
         if (byteCode == null) {
             throw new ClassNotFoundException("Could not find class: " + name);
@@ -34,7 +142,32 @@ public final class TypeClassLoader extends ByteCodeClassLoader<Type> {
             return byteCode.loadedClass;
         }
 
-        Class<?> cls =  super.defineClass(name, byteCode.content, 0, byteCode.content.length);
-        return (byteCode.loadedClass = cls);
+        // This loader is parallel capable, so only callers of the same class
+        // name have to wait for each other. The second check prevents a
+        // duplicate definition (LinkageError) if another thread won the race.
+        synchronized (getClassLoadingLock(name)) {
+            if (byteCode.loadedClass != null) {
+                return byteCode.loadedClass;
+            }
+
+            ByteBuffer content;
+            try {
+                content = byteCode.getContent();
+            } catch (IOException e) {
+                throw new ClassNotFoundException("Could not read class: " + name, e);
+            }
+
+            // Direct buffers from the class arena are passed to the VM without
+            // being copied to the heap first.
+            Class<?> cls = super.defineClass(name, content, (ProtectionDomain) null);
+            byteCode.loadedClass = cls;
+            byteCode.release();
+            return cls;
+        }
+    }
+
+    @Override
+    protected String getClassName(Type type) {
+        return type.getClassName();
     }
 }
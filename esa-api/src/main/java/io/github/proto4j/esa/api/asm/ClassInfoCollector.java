@@ -21,10 +21,13 @@ import org.objectweb.asm.*;
 import io.github.proto4j.esa.annotation.Encrypt;
 import io.github.proto4j.esa.annotation.Output;
 import io.github.proto4j.esa.annotation.Relocate;
+import io.github.proto4j.esa.annotation.SharedCall;
 import io.github.proto4j.esa.annotation.Shadow;
 import io.github.proto4j.esa.api.asm.util.TypedAnnotationVisitor;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -34,9 +37,12 @@ public class ClassInfoCollector extends ClassVisitor {
     public static final Type RELOCATE_TYPE  = Type.getType(Relocate.class);
     public static final Type ENCRYPTED_TYPE = Type.getType(Encrypt.class);
     public static final Type OUTPUT_TYPE = Type.getType(Output.class);
+    public static final Type SHARED_CALL_TYPE = Type.getType(SharedCall.class);
 
     private Set<EncryptedFieldInfo> encryptedDetails;
 
+    private List<SharedCallInfo> sharedCalls;
+
     private RelocateDetails relocateDetails;
 
     private boolean shadowed;
@@ -71,6 +77,7 @@ public class ClassInfoCollector extends ClassVisitor {
 
         relocateDetails  = null;
         encryptedDetails = new HashSet<>();
+        sharedCalls      = new ArrayList<>();
     }
 
     @Override
@@ -91,13 +98,25 @@ public class ClassInfoCollector extends ClassVisitor {
         return new EncryptionAwareVisitor(name, descriptor, value, access);
     }
 
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                     String[] exceptions) {
+        MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+        // Only static methods can be used as stubs for shared calls
+        if ((access & Opcodes.ACC_STATIC) != 0) {
+            return new SharedCallAwareVisitor(name, descriptor, mv);
+        }
+        return mv;
+    }
+
     public synchronized ISharedClassInfo getClassInfo() {
         if (classInfo != null) {
             return classInfo;
         }
 
         classInfo = IClassInfo.getSharedInstance(
-                Type.getType('L' + name + ';'), modifiers, shadowed, relocateDetails, output);
+                Type.getType('L' + name + ';'), modifiers, shadowed, relocateDetails, output,
+                sharedCalls.toArray(new SharedCallInfo[0]));
 
         if (classInfo instanceof AbstractClassInfo) {
             IFieldInfo[] fields = new IFieldInfo[encryptedDetails.size()];
@@ -114,6 +133,10 @@ public class ClassInfoCollector extends ClassVisitor {
         return encryptedDetails;
     }
 
+    protected List<SharedCallInfo> getSharedCalls() {
+        return sharedCalls;
+    }
+
     protected RelocateDetails getRelocateDetails() {
         return relocateDetails;
     }
@@ -194,4 +217,33 @@ public class ClassInfoCollector extends ClassVisitor {
             this.content = (String) values.getOrDefault("value", null);
         }
     }
+
+    private class SharedCallAwareVisitor extends MethodVisitor implements TypedAnnotationVisitor.FinishAction {
+        private final String name;
+        private final String descriptor;
+
+        public SharedCallAwareVisitor(String name, String descriptor, MethodVisitor mv) {
+            super(Opcodes.ASM9, mv);
+            this.name       = name;
+            this.descriptor = descriptor;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            if (descriptor.equals(SHARED_CALL_TYPE.getDescriptor())) {
+                return new TypedAnnotationVisitor<>(SharedCall.class, this);
+            }
+            return super.visitAnnotation(descriptor, visible);
+        }
+
+        @Override
+        public void apply(Map<String, Object> values) {
+            if (values == null || !values.containsKey("value")) {
+                return;
+            }
+
+            sharedCalls.add(new SharedCallInfo(Type.getObjectType(ClassInfoCollector.this.name), name, descriptor,
+                    (String) values.get("value"), (String) values.getOrDefault("method", null)));
+        }
+    }
 }
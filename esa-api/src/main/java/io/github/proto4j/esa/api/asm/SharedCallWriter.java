@@ -0,0 +1,150 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.github.proto4j.esa.api.asm; //@date 16.10.2026
+
+import io.github.proto4j.esa.annotation.SharedCall;
+import io.github.proto4j.esa.api.SharedCallInfo;
+import io.github.proto4j.esa.executor.SharedCallSites;
+import org.objectweb.asm.*;
+
+import java.util.Collection;
+
+/**
+ * A <code>SharedCallWriter</code> replaces calls to stub methods annotated with
+ * {@link SharedCall} by <code>invokedynamic</code> instructions. The type of
+ * the call site is the descriptor of the stub, so the operand stack is not
+ * changed:
+ * <pre>
+ *     // Instead of
+ *     INVOKESTATIC org/example/Stubs, getMessage, ()Ljava/lang/String;, false
+ *     // there will be an invokedynamic instruction
+ *     INVOKEDYNAMIC getMessage()Ljava/lang/String; SharedCallSites.bootstrap
+ *         "encrypted class name", "encrypted method name"
+ * </pre>
+ * In addition, the <code>SharedCall</code> annotation is removed from the
+ * stub methods, because it stores the plain names.
+ *
+ * @see SharedCallSites#bootstrap
+ */
+public class SharedCallWriter extends ClassVisitor {
+
+    /**
+     * The bootstrap method of all rewritten call sites
+     */
+    public static final Handle BOOTSTRAP = new Handle(Opcodes.H_INVOKESTATIC,
+            Type.getInternalName(SharedCallSites.class), "bootstrap", SharedCallSites.BOOTSTRAP_DESCRIPTOR, false);
+
+    /**
+     * The stub methods that should be replaced
+     */
+    private final Collection<SharedCallInfo> calls;
+
+    /**
+     * The class writer that will create the finalized bytecode
+     */
+    private final ClassWriter cw;
+
+    private String  name;
+    private boolean indy;
+    private boolean changed;
+
+    /**
+     * Creates a new <code>SharedCallWriter</code> that rewrites the calls to the
+     * given stub methods.
+     *
+     * @param calls the stub methods of all classes
+     * @param cv the delegating visitor
+     */
+    public SharedCallWriter(Collection<SharedCallInfo> calls, ClassVisitor cv) {
+        super(Opcodes.ASM9, cv);
+        this.calls = calls;
+        if (cv instanceof ClassWriter) {
+            cw = (ClassWriter) cv;
+        }
+        else {
+            cw = null;
+        }
+    }
+
+    /**
+     * Returns the transformed class or an empty array if no call or stub
+     * method has been changed.
+     *
+     * @return the class file bytes
+     */
+    public byte[] getBytes() {
+        return cw != null && changed ? cw.toByteArray() : new byte[0];
+    }
+
+    public boolean isChanged() {
+        return changed;
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        // invokedynamic requires class files of version 51 (Java 7) or newer
+        this.indy = (version & 0xFFFF) >= Opcodes.V1_7;
+        this.name = name;
+        super.visit(version, access, name, signature, superName, interfaces);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                     String[] exceptions) {
+        MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+        return new CallSiteVisitor(getCall(this.name, name, descriptor) != null, mv);
+    }
+
+    private SharedCallInfo getCall(String owner, String name, String descriptor) {
+        for (SharedCallInfo call : calls) {
+            if (call.isCalledBy(owner, name, descriptor)) {
+                return call;
+            }
+        }
+        return null;
+    }
+
+    private class CallSiteVisitor extends MethodVisitor {
+        private final boolean stub;
+
+        public CallSiteVisitor(boolean stub, MethodVisitor mv) {
+            super(Opcodes.ASM9, mv);
+            this.stub = stub;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            if (stub && descriptor.equals(ClassInfoCollector.SHARED_CALL_TYPE.getDescriptor())) {
+                // remove @SharedCall with the plain names
+                changed = true;
+                return null;
+            }
+            return super.visitAnnotation(descriptor, visible);
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            SharedCallInfo call = indy && opcode == Opcodes.INVOKESTATIC ? getCall(owner, name, descriptor) : null;
+            if (call == null) {
+                super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+                return;
+            }
+
+            changed = true;
+            super.visitInvokeDynamicInsn(name, descriptor, BOOTSTRAP, call.getSharedClass(), call.getSharedMethod());
+        }
+    }
+}
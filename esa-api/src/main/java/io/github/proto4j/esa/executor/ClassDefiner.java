@@ -0,0 +1,316 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.executor; //@date 16.10.2026
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Defines generated classes in the class loader and package of a shared
+ * class, so that they can access the shared class without reflection.
+ * <p>
+ * On Java 9 and later, classes are defined by a lookup created with
+ * {@code MethodHandles.privateLookupIn}. On Java 15 and later, generated
+ * classes are defined as hidden classes, which can not be found by name and
+ * are unloaded as soon as they are no longer used.
+ * <p>
+ * Java 8 has no public API for this, so the protected
+ * {@code ClassLoader.defineClass} method and the private {@code Lookup}
+ * constructor are only used if the system property
+ * {@value #PRIVATE_ACCESS_PROPERTY} is set to {@code true}. Otherwise, the
+ * callers fall back to reflection.
+ */
+final class ClassDefiner {
+
+    /**
+     * The system property that allows private access on Java 8.
+     */
+    static final String PRIVATE_ACCESS_PROPERTY = "io.github.proto4j.esa.privateAccess";
+
+    /**
+     * The simple name of the lookup classes defined in shared packages.
+     */
+    private static final String LOOKUP_CLASS_NAME = "ESA$$Lookup";
+
+    /**
+     * The name of the static field and method of the lookup classes.
+     */
+    private static final String LOOKUP_MEMBER_NAME = "lookup";
+
+    private static final MethodType LOOKUP_TYPE = MethodType.methodType(MethodHandles.Lookup.class);
+
+    private static final Method PRIVATE_LOOKUP_IN;
+    private static final Method DEFINE_CLASS;
+    private static final Method DEFINE_HIDDEN_CLASS;
+
+    /**
+     * The empty {@code ClassOption} array passed to {@code defineHiddenClass}.
+     */
+    private static final Object HIDDEN_CLASS_OPTIONS;
+
+    /**
+     * The defined lookup classes by their class loader and name. Lookup
+     * classes are defined and taken while holding the lock of this map.
+     */
+    private static final Map<ClassLoader, Map<String, WeakReference<Class<?>>>> LOOKUP_CLASSES =
+            new WeakHashMap<>();
+
+    /**
+     * The full-privilege lookups by lookup class, which are stored with the
+     * lookup class, so they do not keep its class loader alive.
+     */
+    private static final ClassValue<MethodHandles.Lookup> PACKAGE_LOOKUPS = new ClassValue<MethodHandles.Lookup>() {
+        @Override
+        protected MethodHandles.Lookup computeValue(Class<?> lookupClass) {
+            try {
+                return takeLookup(lookupClass);
+            } catch (ReflectiveOperationException e) {
+                throw new LookupException(e);
+            }
+        }
+    };
+
+    static {
+        Method privateLookupIn, defineClass, defineHiddenClass;
+        Object options;
+        try {
+            privateLookupIn = MethodHandles.class.getMethod("privateLookupIn",
+                    Class.class, MethodHandles.Lookup.class);
+            defineClass = MethodHandles.Lookup.class.getMethod("defineClass", byte[].class);
+        } catch (NoSuchMethodException e) {
+            privateLookupIn = defineClass = null;
+        }
+        try {
+            Class<?> optionType = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            options = Array.newInstance(optionType, 0);
+            defineHiddenClass = MethodHandles.Lookup.class.getMethod("defineHiddenClass",
+                    byte[].class, boolean.class, options.getClass());
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            defineHiddenClass = null;
+            options = null;
+        }
+        PRIVATE_LOOKUP_IN = privateLookupIn;
+        DEFINE_CLASS = defineClass;
+        DEFINE_HIDDEN_CLASS = defineHiddenClass;
+        HIDDEN_CLASS_OPTIONS = options;
+    }
+
+    private ClassDefiner() {}
+
+    /**
+     * Defines the given class in the class loader and package of the given
+     * class. On Java 15 and later, the class is a hidden class.
+     *
+     * @param neighbor a class in the package of the new class
+     * @param bytes the class file
+     * @return the defined class
+     * @throws ReflectiveOperationException if classes can not be defined
+     *                                      on this runtime
+     */
+    static Class<?> defineClass(Class<?> neighbor, byte[] bytes) throws ReflectiveOperationException {
+        if (DEFINE_HIDDEN_CLASS == null) {
+            return defineNamedClass(neighbor, bytes);
+        }
+
+        try {
+            MethodHandles.Lookup lookup = (MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(getLookup(neighbor),
+                    bytes, true, HIDDEN_CLASS_OPTIONS);
+            return lookup.lookupClass();
+        } catch (InvocationTargetException e) {
+            throw rethrow(e.getTargetException());
+        }
+    }
+
+    private static Class<?> defineNamedClass(Class<?> neighbor, byte[] bytes) throws ReflectiveOperationException {
+        try {
+            if (PRIVATE_LOOKUP_IN != null) {
+                MethodHandles.Lookup lookup = (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null, neighbor,
+                        MethodHandles.lookup());
+                return (Class<?>) DEFINE_CLASS.invoke(lookup, (Object) bytes);
+            }
+
+            checkPrivateAccess();
+            Method defineClass = ClassLoader.class.getDeclaredMethod("defineClass",
+                    String.class, byte[].class, int.class, int.class);
+            defineClass.setAccessible(true);
+            return (Class<?>) defineClass.invoke(neighbor.getClassLoader(), null, bytes, 0, bytes.length);
+        } catch (InvocationTargetException e) {
+            throw rethrow(e.getTargetException());
+        }
+    }
+
+    /**
+     * Returns a lookup with full access to a class in the package of the
+     * given class. The lookup must not be passed to other code, because it
+     * can access all package-private members and define classes in the
+     * shared package.
+     *
+     * @param type the shared class
+     * @return the lookup
+     * @throws ReflectiveOperationException if the lookup can not be created
+     *                                      on this runtime
+     */
+    static MethodHandles.Lookup getLookup(Class<?> type) throws ReflectiveOperationException {
+        if (PRIVATE_LOOKUP_IN == null) {
+            // Java 8 has no public way to create a lookup with private access
+            // to another class.
+            checkPrivateAccess();
+            Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class
+                    .getDeclaredConstructor(Class.class, int.class);
+            constructor.setAccessible(true);
+            return constructor.newInstance(type, MethodHandles.Lookup.PUBLIC | MethodHandles.Lookup.PRIVATE
+                    | MethodHandles.Lookup.PROTECTED | MethodHandles.Lookup.PACKAGE);
+        }
+
+        // A lookup created by privateLookupIn() has no module access, which
+        // the metafactory and defineHiddenClass() require. The lookup class
+        // in the same package creates a lookup with full access that can be
+        // taken exactly once.
+        String name = type.getName();
+        name = name.substring(0, name.lastIndexOf('.') + 1) + LOOKUP_CLASS_NAME;
+        synchronized (LOOKUP_CLASSES) {
+            Map<String, WeakReference<Class<?>>> classes =
+                    LOOKUP_CLASSES.computeIfAbsent(type.getClassLoader(), loader -> new HashMap<>());
+            WeakReference<Class<?>> reference = classes.get(name);
+            Class<?> lookupClass = reference != null ? reference.get() : null;
+            if (lookupClass == null) {
+                lookupClass = defineNamedClass(type, newLookupClass(name));
+                classes.put(name, new WeakReference<>(lookupClass));
+            }
+
+            try {
+                return PACKAGE_LOOKUPS.get(lookupClass);
+            } catch (LookupException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Calls the private {@code lookup()} method of the given lookup class,
+     * which returns the lookup only once.
+     */
+    private static MethodHandles.Lookup takeLookup(Class<?> lookupClass) throws ReflectiveOperationException {
+        MethodHandles.Lookup lookup;
+        try {
+            MethodHandles.Lookup privateLookup = (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null,
+                    lookupClass, MethodHandles.lookup());
+            MethodHandle method = privateLookup.findStatic(lookupClass, LOOKUP_MEMBER_NAME, LOOKUP_TYPE);
+            lookup = (MethodHandles.Lookup) method.invokeExact();
+        } catch (InvocationTargetException e) {
+            throw rethrow(e.getTargetException());
+        } catch (ReflectiveOperationException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+
+        if (lookup == null) {
+            throw new IllegalAccessException("The lookup of " + lookupClass.getName() + " has already been taken");
+        }
+        return lookup;
+    }
+
+    private static void checkPrivateAccess() throws IllegalAccessException {
+        if (!Boolean.getBoolean(PRIVATE_ACCESS_PROPERTY)) {
+            throw new IllegalAccessException("Private access is disabled on this runtime (set "
+                    + PRIVATE_ACCESS_PROPERTY + "=true to enable it)");
+        }
+    }
+
+    private static ReflectiveOperationException rethrow(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof ReflectiveOperationException) {
+            return (ReflectiveOperationException) cause;
+        }
+        throw new IllegalStateException(cause);
+    }
+
+    /**
+     * Creates a package-private class with the given name. Its static
+     * initializer stores {@link MethodHandles#lookup()} in a private field,
+     * which is returned and cleared by the private, synchronized
+     * {@code lookup()} method.
+     */
+    private static byte[] newLookupClass(String name) {
+        String owner = name.replace('.', '/');
+        String descriptor = LOOKUP_TYPE.toMethodDescriptorString();
+        String fieldDescriptor = Type.getDescriptor(MethodHandles.Lookup.class);
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC, owner, null, "java/lang/Object", null);
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC, LOOKUP_MEMBER_NAME,
+                fieldDescriptor, null, null).visitEnd();
+
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+        mv.visitCode();
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(MethodHandles.class), "lookup",
+                descriptor, false);
+        mv.visitFieldInsn(Opcodes.PUTSTATIC, owner, LOOKUP_MEMBER_NAME, fieldDescriptor);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNCHRONIZED
+                | Opcodes.ACC_SYNTHETIC, LOOKUP_MEMBER_NAME, descriptor, null, null);
+        mv.visitCode();
+        mv.visitFieldInsn(Opcodes.GETSTATIC, owner, LOOKUP_MEMBER_NAME, fieldDescriptor);
+        mv.visitInsn(Opcodes.ACONST_NULL);
+        mv.visitFieldInsn(Opcodes.PUTSTATIC, owner, LOOKUP_MEMBER_NAME, fieldDescriptor);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * Carries the checked exception out of {@link ClassValue#computeValue}.
+     */
+    private static final class LookupException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        LookupException(ReflectiveOperationException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ReflectiveOperationException getCause() {
+            return (ReflectiveOperationException) super.getCause();
+        }
+    }
+}
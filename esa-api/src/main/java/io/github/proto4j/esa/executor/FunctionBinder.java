@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.executor; //@date 16.10.2026
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Implements functional interfaces with shared methods. The implementation
+ * is spun by the {@link LambdaMetafactory} in the class loader of the shared
+ * class, so calling the interface is as cheap as calling a lambda: primitive
+ * arguments and results are passed without boxing.
+ * <p>
+ * The metafactory requires a lookup with full access to a class in the
+ * package of the shared class, which is created by {@link ClassDefiner}.
+ * <p>
+ * If the runtime does not support the metafactory (for instance, Android)
+ * or the shared method is private, the interface is implemented by a
+ * {@link Proxy} that calls a {@link PreparedInvocation} instead.
+ */
+final class FunctionBinder {
+
+    private FunctionBinder() {}
+
+    /**
+     * Implements the given functional interface with the method of the given
+     * invocation. Unbound instance methods take their receiver as the first
+     * argument of the functional method.
+     *
+     * @param invocation the prepared invocation
+     * @param receiver the bound receiver or {@code null}
+     * @param functionType the functional interface
+     * @param <F> the type of the functional interface
+     * @return the implementation of the functional interface
+     * @throws InvocationException if the method does not match the
+     *                             functional method
+     */
+    static <F> F bind(PreparedInvocation<?> invocation, Object receiver, Class<F> functionType)
+            throws InvocationException {
+        Method sam = getFunctionalMethod(functionType);
+        Method method = invocation.getMethod();
+        int receiverCount = Modifier.isStatic(method.getModifiers()) || receiver != null ? 0 : 1;
+        if (sam.getParameterCount() != method.getParameterCount() + receiverCount) {
+            throw new InvocationException(new IllegalArgumentException("Method " + method.getName()
+                    + " does not match " + functionType.getName() + "." + sam.getName()));
+        }
+
+        MethodHandles.Lookup lookup = null;
+        if (!Modifier.isPrivate(method.getModifiers())) try {
+            lookup = ClassDefiner.getLookup(method.getDeclaringClass());
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            // the metafactory is not supported
+        }
+        if (lookup == null) {
+            return InvocationProxy.newInstance(functionType, Collections.singletonMap(sam, invocation));
+        }
+
+        try {
+            MethodHandle implementation = lookup.unreflect(method);
+            MethodType samType = MethodType.methodType(sam.getReturnType(), sam.getParameterTypes());
+            MethodType invokedType = receiver == null
+                    ? MethodType.methodType(functionType)
+                    : MethodType.methodType(functionType, method.getDeclaringClass());
+
+            CallSite site = LambdaMetafactory.metafactory(lookup, sam.getName(), invokedType, samType,
+                    implementation, getInstantiatedType(samType, implementation.type(), receiver != null));
+            Object function = receiver == null
+                    ? site.getTarget().invoke()
+                    : site.getTarget().invoke(receiver);
+            return functionType.cast(function);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationException(e);
+        }
+    }
+
+    /**
+     * Returns the type of the functional method with its erased reference
+     * types replaced by the types of the implementation method.
+     */
+    private static MethodType getInstantiatedType(MethodType samType, MethodType implType, boolean captured) {
+        int offset = captured ? 1 : 0;
+        Class<?>[] types = samType.parameterArray();
+        for (int i = 0; i < types.length; i++) {
+            types[i] = instantiate(types[i], implType.parameterType(i + offset));
+        }
+        Class<?> returnType = samType.returnType() == void.class
+                ? void.class
+                : instantiate(samType.returnType(), implType.returnType());
+        return MethodType.methodType(returnType, types);
+    }
+
+    private static Class<?> instantiate(Class<?> samType, Class<?> implType) {
+        if (samType.isPrimitive() || implType == void.class) {
+            return samType;
+        }
+        Class<?> type = implType.isPrimitive()
+                ? MethodType.methodType(implType).wrap().returnType()
+                : implType;
+        return samType.isAssignableFrom(type) ? type : samType;
+    }
+
+    private static Method getFunctionalMethod(Class<?> functionType) throws InvocationException {
+        if (!functionType.isInterface()) {
+            throw new InvocationException(new IllegalArgumentException(
+                    functionType.getName() + " is not an interface"));
+        }
+
+        Method sam = null;
+        for (Method method : functionType.getMethods()) {
+            if (!Modifier.isAbstract(method.getModifiers()) || isObjectMethod(method)) {
+                continue;
+            }
+            if (sam != null && !(sam.getName().equals(method.getName())
+                    && Arrays.equals(sam.getParameterTypes(), method.getParameterTypes()))) {
+                throw new InvocationException(new IllegalArgumentException(
+                        functionType.getName() + " is not a functional interface"));
+            }
+            sam = method;
+        }
+
+        if (sam == null) {
+            throw new InvocationException(new IllegalArgumentException(
+                    functionType.getName() + " is not a functional interface"));
+        }
+        return sam;
+    }
+
+    static boolean isObjectMethod(Method method) {
+        try {
+            Object.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
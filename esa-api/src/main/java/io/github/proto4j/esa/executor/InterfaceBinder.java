@@ -0,0 +1,324 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.executor; //@date 16.10.2026
+
+import io.github.proto4j.esa.ESA;
+import io.github.proto4j.esa.NoSuchSharedMethodException;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Binds a Java interface to a shared class. A proxy class that implements
+ * the interface is generated in the class loader and package of the shared
+ * class. Each interface method calls the shared method with the same name
+ * and compatible parameter types directly ({@code invokestatic} or
+ * {@code invokevirtual}), so no reflection is involved once the proxy has
+ * been created.
+ * <p>
+ * Static shared methods take the arguments of the interface method. Instance
+ * methods take the receiver as the first argument, followed by their own
+ * arguments. Parameter and return types of shared classes, which are not
+ * visible to the caller, can be declared as any supertype (for instance,
+ * {@code Object}); they are cast by the proxy.
+ * <pre>
+ * public interface MessageUtil {
+ *     String getMessage();
+ *     String greet(Object greeter, String who);
+ * }
+ *
+ * MessageUtil util = esa.bind(MessageUtil.class, "org.example.MessageUtil");
+ * </pre>
+ * If classes can not be generated at runtime (for instance, Android) or a
+ * shared method is private, the interface is implemented by a
+ * {@link java.lang.reflect.Proxy} that calls {@link PreparedInvocation}s.
+ * <p>
+ * The implementations are stateless, so one instance is created per
+ * interface and shared class and returned by all further calls.
+ *
+ * @see ESA#bind(Class, String)
+ */
+public final class InterfaceBinder {
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    /**
+     * The implementations by interface, stored with the shared class, so
+     * they do not keep its class loader alive.
+     */
+    private static final ClassValue<Map<Class<?>, Object>> IMPLEMENTATIONS = new ClassValue<Map<Class<?>, Object>>() {
+        @Override
+        protected Map<Class<?>, Object> computeValue(Class<?> sharedClass) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private InterfaceBinder() {}
+
+    /**
+     * Implements the given interface with the methods of the given shared
+     * class.
+     *
+     * @param iface the interface to implement
+     * @param sharedClass the shared class
+     * @param <I> the type of the interface
+     * @return the implementation of the interface
+     * @throws NoSuchSharedMethodException if an interface method has no
+     *                                     matching shared method
+     * @throws InvocationException         if the given type is not an
+     *                                     interface or the proxy could not be
+     *                                     created
+     */
+    public static <I> I bind(Class<I> iface, Class<?> sharedClass)
+            throws NoSuchSharedMethodException, InvocationException {
+        Objects.requireNonNull(iface);
+        Objects.requireNonNull(sharedClass);
+        if (!iface.isInterface()) {
+            throw new InvocationException(new IllegalArgumentException(iface.getName() + " is not an interface"));
+        }
+
+        Map<Class<?>, Object> implementations = IMPLEMENTATIONS.get(sharedClass);
+        Object implementation = implementations.get(iface);
+        if (implementation == null) {
+            // Concurrent callers may create an implementation each, only
+            // the first one is kept.
+            implementation = newImplementation(iface, sharedClass);
+            Object existing = implementations.putIfAbsent(iface, implementation);
+            if (existing != null) {
+                implementation = existing;
+            }
+        }
+        return iface.cast(implementation);
+    }
+
+    private static Object newImplementation(Class<?> iface, Class<?> sharedClass)
+            throws NoSuchSharedMethodException, InvocationException {
+        Map<Method, Method> targets = new HashMap<>();
+        boolean accessible = Modifier.isPublic(iface.getModifiers());
+        for (Method method : iface.getMethods()) {
+            if (Modifier.isAbstract(method.getModifiers()) && !FunctionBinder.isObjectMethod(method)) {
+                Method target = getTarget(method, sharedClass);
+                targets.put(method, target);
+                accessible &= !Modifier.isPrivate(target.getModifiers());
+            }
+        }
+
+        if (accessible) try {
+            byte[] bytes = newProxyClass(iface, sharedClass, targets);
+            Class<?> proxyClass = ClassDefiner.defineClass(sharedClass, bytes);
+            return proxyClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException | SecurityException | UnsupportedOperationException e) {
+            // classes can not be defined at runtime (disabled private access
+            // on Java 8, a security manager or Android)
+        } catch (LinkageError e) {
+            throw new InvocationException(e);
+        }
+
+        Map<Method, PreparedInvocation<?>> invocations = new HashMap<>();
+        for (Map.Entry<Method, Method> entry : targets.entrySet()) {
+            invocations.put(entry.getKey(), PreparedInvocation.of(entry.getValue(), Object.class));
+        }
+        return InvocationProxy.newInstance(iface, invocations);
+    }
+
+    /**
+     * Returns the shared method implementing the given interface method. An
+     * exact match of all types is preferred over a compatible one.
+     */
+    private static Method getTarget(Method method, Class<?> sharedClass) throws NoSuchSharedMethodException {
+        return getTarget(method.getName(), MethodType.methodType(method.getReturnType(), method.getParameterTypes()),
+                sharedClass, method.toString());
+    }
+
+    /**
+     * Returns the shared method with the given name that can be called with
+     * the given type, using the same rules as interface methods.
+     *
+     * @param name the name of the shared method
+     * @param type the parameter and return types of the caller (with the
+     *         receiver as first parameter for instance methods)
+     * @param sharedClass the shared class
+     * @return the shared method
+     * @throws NoSuchSharedMethodException if no or more than one shared
+     *                                     method matches
+     */
+    static Method getTarget(String name, MethodType type, Class<?> sharedClass) throws NoSuchSharedMethodException {
+        return getTarget(name, type, sharedClass, name + type);
+    }
+
+    private static Method getTarget(String name, MethodType type, Class<?> sharedClass, String description)
+            throws NoSuchSharedMethodException {
+        List<Method> candidates = new ArrayList<>();
+        for (Class<?> cls = sharedClass; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+            for (Method candidate : cls.getDeclaredMethods()) {
+                if (candidate.getName().equals(name) && !candidate.isBridge()
+                        && isAccessible(candidate, sharedClass) && matches(type, candidate, sharedClass)) {
+                    candidates.add(candidate);
+                }
+            }
+        }
+
+        if (candidates.isEmpty()) {
+            throw new NoSuchSharedMethodException("Could not locate shared method for " + description);
+        }
+        for (Method candidate : candidates) {
+            if (isExact(type, candidate)) {
+                return candidate;
+            }
+        }
+        if (candidates.size() > 1) {
+            throw new NoSuchSharedMethodException("Ambiguous shared method for " + description);
+        }
+        return candidates.get(0);
+    }
+
+    private static boolean isAccessible(Method method, Class<?> sharedClass) {
+        // The proxy is defined in the package of the shared class.
+        Class<?> declaringClass = method.getDeclaringClass();
+        return Modifier.isPublic(method.getModifiers())
+                || declaringClass == sharedClass
+                || (!Modifier.isPrivate(method.getModifiers())
+                    && declaringClass.getClassLoader() == sharedClass.getClassLoader()
+                    && getPackageName(declaringClass).equals(getPackageName(sharedClass)));
+    }
+
+    private static boolean matches(MethodType type, Method target, Class<?> sharedClass) {
+        Class<?>[] types = type.parameterArray();
+        Class<?>[] targetTypes = target.getParameterTypes();
+        int offset = Modifier.isStatic(target.getModifiers()) ? 0 : 1;
+        if (types.length != targetTypes.length + offset
+                || (offset == 1 && !isCompatible(types[0], sharedClass))) {
+            return false;
+        }
+        for (int i = 0; i < targetTypes.length; i++) {
+            if (!isCompatible(types[i + offset], targetTypes[i])) {
+                return false;
+            }
+        }
+        return type.returnType() == void.class || isCompatible(type.returnType(), target.getReturnType());
+    }
+
+    private static boolean isExact(MethodType type, Method target) {
+        Class<?>[] types = type.parameterArray();
+        Class<?>[] targetTypes = target.getParameterTypes();
+        int offset = types.length - targetTypes.length;
+        for (int i = 0; i < targetTypes.length; i++) {
+            if (types[i + offset] != targetTypes[i]) {
+                return false;
+            }
+        }
+        return type.returnType() == target.getReturnType();
+    }
+
+    /**
+     * Returns whether a value of one type can be passed as the other type,
+     * if necessary with a cast. Primitive types must be equal, reference
+     * types must be assignable in either direction.
+     */
+    private static boolean isCompatible(Class<?> type, Class<?> other) {
+        if (type.isPrimitive() || other.isPrimitive()) {
+            return type == other;
+        }
+        return type.isAssignableFrom(other) || other.isAssignableFrom(type);
+    }
+
+    private static String getPackageName(Class<?> type) {
+        String name = type.getName();
+        return name.substring(0, Math.max(0, name.lastIndexOf('.')));
+    }
+
+    private static byte[] newProxyClass(Class<?> iface, Class<?> sharedClass, Map<Method, Method> targets) {
+        String packageName = getPackageName(sharedClass);
+        String name = (packageName.isEmpty() ? "" : packageName.replace('.', '/') + "/")
+                + "ESA$$Proxy$" + COUNTER.incrementAndGet();
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC, name, null,
+                "java/lang/Object", new String[]{Type.getInternalName(iface)});
+
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        for (Map.Entry<Method, Method> entry : targets.entrySet()) {
+            writeMethod(cw, entry.getKey(), entry.getValue(), sharedClass);
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * Writes an interface method that loads its arguments, casts them to the
+     * parameter types of the target and calls it.
+     */
+    private static void writeMethod(ClassWriter cw, Method method, Method target, Class<?> sharedClass) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, method.getName(),
+                Type.getMethodDescriptor(method), null, null);
+        mv.visitCode();
+
+        Class<?>[] types = method.getParameterTypes();
+        Class<?>[] targetTypes = target.getParameterTypes();
+        boolean isStatic = Modifier.isStatic(target.getModifiers());
+        int slot = 1;
+        for (int i = 0; i < types.length; i++) {
+            Type type = Type.getType(types[i]);
+            mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), slot);
+            slot += type.getSize();
+
+            Class<?> targetType = isStatic ? targetTypes[i] : i == 0 ? sharedClass : targetTypes[i - 1];
+            if (!targetType.isAssignableFrom(types[i])) {
+                mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(targetType));
+            }
+        }
+
+        boolean isInterface = sharedClass.isInterface();
+        int opcode = isStatic ? Opcodes.INVOKESTATIC : isInterface ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL;
+        mv.visitMethodInsn(opcode, Type.getInternalName(sharedClass), target.getName(),
+                Type.getMethodDescriptor(target), isInterface);
+
+        Class<?> returnType = method.getReturnType();
+        Type targetReturnType = Type.getType(target.getReturnType());
+        if (returnType == void.class) {
+            if (targetReturnType.getSize() == 2) {
+                mv.visitInsn(Opcodes.POP2);
+            } else if (targetReturnType.getSize() == 1) {
+                mv.visitInsn(Opcodes.POP);
+            }
+        } else if (!returnType.isAssignableFrom(target.getReturnType())) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(returnType));
+        }
+        mv.visitInsn(Type.getType(returnType).getOpcode(Opcodes.IRETURN));
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.executor; //@date 16.10.2026
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Implements interfaces with a {@link Proxy} that calls prepared
+ * invocations. It is used where classes can not be generated at runtime.
+ */
+final class InvocationProxy implements InvocationHandler {
+
+    private final Class<?> type;
+    private final Map<Method, PreparedInvocation<?>> invocations;
+
+    private InvocationProxy(Class<?> type, Map<Method, PreparedInvocation<?>> invocations) {
+        this.type        = type;
+        this.invocations = invocations;
+    }
+
+    /**
+     * Creates a proxy of the given interface. Unbound instance methods take
+     * their receiver as the first argument.
+     *
+     * @param type the interface
+     * @param invocations the invocations by the interface methods they
+     *         implement
+     * @param <T> the type of the interface
+     * @return the proxy
+     */
+    static <T> T newInstance(Class<T> type, Map<Method, PreparedInvocation<?>> invocations) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new InvocationProxy(type, invocations)));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        PreparedInvocation<?> invocation = invocations.get(method);
+        if (invocation != null) {
+            try {
+                if (invocation.isBound()) {
+                    return invocation.invoke(args);
+                }
+                return invocation.invokeOn(args[0], Arrays.copyOfRange(args, 1, args.length));
+            } catch (SharedInvocationException e) {
+                throw e.getCause();
+            }
+        }
+
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return type.getName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+            default:
+                throw new UnsupportedOperationException(method.toString());
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.github.proto4j.esa.executor; //@date 16.10.2026
+
+import io.github.proto4j.esa.ESA;
+import io.github.proto4j.esa.SharedException;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Objects;
+
+/**
+ * A shared method that has been resolved to a {@link MethodHandle}.
+ * Instances are immutable and can be invoked by any number of threads
+ * without locking.
+ * <p>
+ * Static methods are invoked with their arguments only. Instance methods
+ * are either invoked with an explicit receiver ({@link #invokeOn(Object, Object...)})
+ * or bound to a receiver first ({@link #bindTo(Object)}).
+ * <pre>
+ * PreparedInvocation&lt;String&gt; greet = esa.prepareInvocation(
+ *         "org.example.Greeter", "greet", String.class, String.class);
+ * String message = greet.invokeOn(greeter, "World");
+ * </pre>
+ *
+ * @param <R> the return type
+ * @see ESA#prepareInvocation(String, String, Class, Class[])
+ */
+public final class PreparedInvocation<R> {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    /**
+     * The primitive types (byte, short, int, long, float, double) in the
+     * order of the widening conversions.
+     */
+    private static final String WIDENING_ORDER = "BSIJFD";
+
+    private final Method method;
+    private final Class<?>[] parameterTypes;
+
+    /**
+     * The parameter types with primitive types replaced by their wrappers.
+     */
+    private final Class<?>[] argumentTypes;
+    private final Class<R> returnType;
+
+    /**
+     * The handle with the type {@code (Object[])Object} if the method is
+     * static or bound, {@code (Object, Object[])Object} otherwise.
+     */
+    private final MethodHandle handle;
+
+    private final boolean bound;
+
+    /**
+     * The receiver the method is bound to, or {@code null}.
+     */
+    private final Object receiver;
+
+    /**
+     * Whether the result has to be checked against the return type, because
+     * the method declares a supertype of it.
+     */
+    private final boolean checked;
+
+    private PreparedInvocation(Method method, Class<R> returnType, MethodHandle handle,
+                               boolean bound, Object receiver, boolean checked) {
+        this.method         = method;
+        this.parameterTypes = method.getParameterTypes();
+        this.argumentTypes  = new Class<?>[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            argumentTypes[i] = wrap(parameterTypes[i]);
+        }
+        this.returnType     = returnType;
+        this.handle         = handle;
+        this.bound          = bound;
+        this.receiver       = receiver;
+        this.checked        = checked;
+    }
+
+    /**
+     * Prepares the invocation of the given method. Primitive return types
+     * can be given as primitive or wrapper classes; the result is returned
+     * as a wrapper.
+     *
+     * @param method the shared method
+     * @param returnType the expected return type ({@code Void.class} or
+     *         {@code void.class} for methods without result)
+     * @param <R> the return type
+     * @return the prepared invocation
+     * @throws InvocationException if the method is not accessible or its
+     *                             return type does not match
+     */
+    public static <R> PreparedInvocation<R> of(Method method, Class<R> returnType)
+            throws InvocationException {
+        Objects.requireNonNull(method);
+        Objects.requireNonNull(returnType);
+
+        Class<?> expected = wrap(returnType);
+        Class<?> actual = wrap(method.getReturnType());
+        boolean checked = false;
+        if (actual == Void.class) {
+            if (expected != Void.class && expected != Object.class) {
+                throw new InvocationException(new ClassCastException(
+                        "Method " + method.getName() + " has no result"));
+            }
+        } else if (!expected.isAssignableFrom(actual)) {
+            if (!actual.isAssignableFrom(expected)) {
+                throw new InvocationException(new ClassCastException(
+                        "Invalid return type, expected: " + returnType.getName()));
+            }
+            checked = true;
+        }
+
+        MethodHandle target;
+        try {
+            target = unreflect(method);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new InvocationException(e);
+        }
+
+        int parameterCount = method.getParameterCount();
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        MethodHandle handle = target
+                .asType(MethodType.genericMethodType(isStatic ? parameterCount : parameterCount + 1))
+                .asSpreader(Object[].class, parameterCount);
+        return new PreparedInvocation<>(method, returnType, handle, isStatic, null, checked);
+    }
+
+    /**
+     * Returns an invocation of this instance method that is bound to the
+     * given receiver.
+     *
+     * @param receiver the object the method is invoked on
+     * @return the bound invocation
+     * @throws IllegalStateException if the method is static or this
+     *                               invocation is already bound
+     * @throws ClassCastException if the receiver is not an instance of the
+     *                            declaring class
+     */
+    public PreparedInvocation<R> bindTo(Object receiver) {
+        if (bound) {
+            throw new IllegalStateException("Invocation is already bound or static");
+        }
+        method.getDeclaringClass().cast(Objects.requireNonNull(receiver));
+        return new PreparedInvocation<>(method, returnType, handle.bindTo(receiver), true, receiver, checked);
+    }
+
+    /**
+     * Invokes the static or bound method with the given arguments.
+     *
+     * @param args the arguments
+     * @return the result or {@code null} if the method has no result
+     * @throws SharedInvocationException if the method throws an exception
+     * @throws IllegalStateException if the method requires a receiver
+     * @throws IllegalArgumentException if the number or the types of the
+     *                                  arguments do not match
+     */
+    public R invoke(Object... args) throws SharedInvocationException {
+        if (!bound) {
+            throw new IllegalStateException("Instance method requires a receiver");
+        }
+
+        Object[] arguments = checkArguments(args);
+        Object result;
+        try {
+            result = handle.invokeExact(arguments);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SharedInvocationException(e);
+        }
+        return cast(result);
+    }
+
+    /**
+     * Invokes the instance method on the given receiver.
+     *
+     * @param receiver the object the method is invoked on
+     * @param args the arguments
+     * @return the result or {@code null} if the method has no result
+     * @throws SharedInvocationException if the method throws an exception
+     * @throws IllegalStateException if the method is static or this
+     *                               invocation is already bound
+     * @throws IllegalArgumentException if the number or the types of the
+     *                                  arguments do not match
+     * @throws ClassCastException if the receiver is not an instance of the
+     *                            declaring class
+     */
+    public R invokeOn(Object receiver, Object... args) throws SharedInvocationException {
+        if (bound) {
+            throw new IllegalStateException("Invocation is already bound or static");
+        }
+
+        Object target = method.getDeclaringClass().cast(Objects.requireNonNull(receiver));
+        Object[] arguments = checkArguments(args);
+        Object result;
+        try {
+            result = handle.invokeExact(target, arguments);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SharedInvocationException(e);
+        }
+        return cast(result);
+    }
+
+    /**
+     * Implements the given functional interface with this method, so that it
+     * can be called like a lambda expression. The implementation is generated
+     * in the class loader of the shared class; primitive arguments and
+     * results are not boxed.
+     * <p>
+     * The functional method takes the arguments of the shared method. If
+     * this invocation is neither static nor bound, the receiver is passed as
+     * the first argument.
+     * <pre>
+     * IntUnaryOperator inc = esa.prepareInvocation("org.example.MathUtil", "inc",
+     *         int.class, int.class).asFunction(IntUnaryOperator.class);
+     * int result = inc.applyAsInt(41);
+     * </pre>
+     *
+     * @param functionType the functional interface
+     * @param <F> the type of the functional interface
+     * @return the implementation of the functional interface
+     * @throws InvocationException if the given type is not a functional
+     *                             interface or its method does not match
+     *                             the shared method
+     */
+    public <F> F asFunction(Class<F> functionType) throws InvocationException {
+        return FunctionBinder.bind(this, receiver, Objects.requireNonNull(functionType));
+    }
+
+    /**
+     * Checks the arguments before the method is invoked, so that a wrong
+     * argument is not reported as an exception of the method.
+     */
+    private Object[] checkArguments(Object[] args) {
+        Object[] arguments = args == null ? NO_ARGS : args;
+        if (arguments.length != parameterTypes.length) {
+            throw new IllegalArgumentException("Wrong number of arguments: " + arguments.length
+                    + ", expected: " + parameterTypes.length);
+        }
+        for (int i = 0; i < arguments.length; i++) {
+            Object argument = arguments[i];
+            if (argument != null && argument.getClass() == argumentTypes[i]) {
+                continue;
+            }
+            if (!isConvertible(argument, parameterTypes[i])) {
+                throw new IllegalArgumentException("Argument type mismatch at index " + i + ", expected: "
+                        + parameterTypes[i].getName());
+            }
+        }
+        return arguments;
+    }
+
+    /**
+     * Returns whether the given argument can be passed as the given type,
+     * like {@link Method#invoke(Object, Object...)} does: primitive values
+     * are unboxed and widened.
+     */
+    private static boolean isConvertible(Object value, Class<?> type) {
+        if (!type.isPrimitive()) {
+            return value == null || type.isInstance(value);
+        }
+        if (value == null) {
+            return false;
+        }
+
+        Class<?> valueType = MethodType.methodType(value.getClass()).unwrap().returnType();
+        if (valueType == type) {
+            return true;
+        }
+        if (!valueType.isPrimitive()) {
+            return false;
+        }
+
+        char from = Type.getDescriptor(valueType).charAt(0);
+        char to = Type.getDescriptor(type).charAt(0);
+        if (from == 'C') {
+            return "IJFD".indexOf(to) >= 0;
+        }
+        int rank = WIDENING_ORDER.indexOf(from);
+        return rank >= 0 && WIDENING_ORDER.indexOf(to) > rank;
+    }
+
+    /**
+     * Unreflects the given method without changing it. Shared methods are
+     * cached by the ESA and returned to every caller, so non-public methods
+     * are made accessible on a copy.
+     *
+     * @param method the method
+     * @return the direct method handle
+     * @throws ReflectiveOperationException if the method is not accessible
+     */
+    static MethodHandle unreflect(Method method) throws ReflectiveOperationException {
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(declaringClass.getModifiers())) {
+            return MethodHandles.publicLookup().unreflect(method);
+        }
+
+        Method copy = declaringClass.getDeclaredMethod(method.getName(), method.getParameterTypes());
+        copy.setAccessible(true);
+        return MethodHandles.lookup().unreflect(copy);
+    }
+
+    @SuppressWarnings("unchecked")
+    private R cast(Object result) {
+        if (checked && result != null && !wrap(returnType).isInstance(result)) {
+            throw new ClassCastException("Invalid return type, expected: " + returnType.getName());
+        }
+        return (R) result;
+    }
+
+    /**
+     * Returns the resolved method.
+     *
+     * @return the method
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns whether the method is static or bound to a receiver, so that
+     * it can be invoked with {@link #invoke(Object...)}.
+     *
+     * @return whether no receiver has to be passed
+     */
+    public boolean isBound() {
+        return bound;
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        return MethodType.methodType(type).wrap().returnType();
+    }
+}
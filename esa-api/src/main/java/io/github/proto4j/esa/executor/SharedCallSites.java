@@ -0,0 +1,134 @@
+/*
+ * Copyright 2023 Proto4j
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.github.proto4j.esa.executor; //@date 16.10.2026
+
+import io.github.proto4j.esa.ESA;
+import io.github.proto4j.esa.NoSuchSharedClassException;
+import io.github.proto4j.esa.NoSuchSharedMethodException;
+import io.github.proto4j.esa.annotation.SharedCall;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.security.GeneralSecurityException;
+import java.util.Objects;
+
+/**
+ * Links call sites that have been rewritten by the Gradle plugin. Calls to
+ * methods annotated with {@link SharedCall} are replaced by an
+ * {@code invokedynamic} instruction, which calls {@link #bootstrap} on its
+ * first execution. The shared method is resolved through the registered
+ * {@link ESA} and bound to a {@link ConstantCallSite}, so every following
+ * call is linked like a normal method call and can be inlined by the JIT.
+ * <p>
+ * The ESA has to be registered before the first rewritten call is executed:
+ * <pre>
+ * ESA esa = new DefaultBuilder()...finish();
+ * SharedCallSites.register(esa);
+ * </pre>
+ * A call site that could not be linked fails with a
+ * {@link BootstrapMethodError} and is not linked again.
+ *
+ * @see SharedCall
+ */
+public final class SharedCallSites {
+
+    /**
+     * The descriptor of the bootstrap method.
+     */
+    public static final String BOOTSTRAP_DESCRIPTOR = MethodType.methodType(CallSite.class,
+            MethodHandles.Lookup.class, String.class, MethodType.class, String.class, String.class)
+            .toMethodDescriptorString();
+
+    private static volatile ESA esa;
+
+    private SharedCallSites() {}
+
+    /**
+     * Registers the ESA that is used to link rewritten call sites. Call
+     * sites that have already been linked are not changed.
+     *
+     * @param esa the loaded ESA
+     */
+    public static void register(ESA esa) {
+        SharedCallSites.esa = Objects.requireNonNull(esa);
+    }
+
+    /**
+     * Returns the registered ESA.
+     *
+     * @return the ESA or {@code null} if none has been registered
+     */
+    public static ESA getRegistered() {
+        return esa;
+    }
+
+    /**
+     * The bootstrap method of rewritten call sites. The shared method is
+     * selected like the methods of {@link InterfaceBinder}: static methods
+     * take the arguments of the call site, instance methods take the
+     * receiver as the first argument.
+     *
+     * @param caller the class containing the call site
+     * @param name the name of the stub method
+     * @param type the type of the call site
+     * @param cls the (encrypted) name of the shared class
+     * @param mth the (encrypted) name of the shared method
+     * @return the linked call site
+     * @throws IllegalStateException       if no ESA has been registered
+     * @throws NoSuchSharedClassException  if the shared class could not be
+     *                                     resolved
+     * @throws NoSuchSharedMethodException if no shared method matches the
+     *                                     call site
+     * @throws InvocationException         if the shared method is not
+     *                                     accessible
+     */
+    public static CallSite bootstrap(MethodHandles.Lookup caller, String name, MethodType type,
+                                     String cls, String mth)
+            throws NoSuchSharedClassException, NoSuchSharedMethodException, InvocationException {
+        ESA esa = SharedCallSites.esa;
+        if (esa == null) {
+            throw new IllegalStateException("No ESA registered to link " + caller.lookupClass().getName()
+                    + "." + name);
+        }
+
+        Class<?> sharedClass = esa.getSharedClass(cls);
+        Method target;
+        try {
+            target = InterfaceBinder.getTarget(mth, type, sharedClass);
+        } catch (NoSuchSharedMethodException e) {
+            String decrypted;
+            try {
+                decrypted = esa.decryptNames(mth)[0];
+            } catch (GeneralSecurityException | RuntimeException ignored) {
+                // not an encrypted name
+                throw e;
+            }
+            target = InterfaceBinder.getTarget(decrypted, type, sharedClass);
+        }
+
+        MethodHandle handle;
+        try {
+            handle = PreparedInvocation.unreflect(target);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new InvocationException(e);
+        }
+        return new ConstantCallSite(handle.asType(type));
+    }
+}
@@ -16,13 +16,17 @@
 
 package io.github.proto4j.esa.gradle
 
+import io.github.proto4j.crypto.CipherSuite
 import io.github.proto4j.crypto.ICipher
+import io.github.proto4j.crypto.PayloadEncoding
 import io.github.proto4j.esa.ESA
+import io.github.proto4j.esa.ESAFile
 import io.github.proto4j.esa.annotation.Output
 import io.github.proto4j.esa.api.*
 import io.github.proto4j.esa.api.asm.ClassInfoCollector
 import io.github.proto4j.esa.api.asm.ClassInfoWriter
 import io.github.proto4j.esa.api.asm.IClassCreator
+import io.github.proto4j.esa.api.asm.SharedCallWriter
 import org.apache.commons.io.IOUtils
 import org.apache.commons.io.output.ByteArrayOutputStream
 import org.objectweb.asm.ClassReader
@@ -34,6 +38,16 @@ import javax.annotation.Nullable
 import javax.crypto.Cipher
 import javax.crypto.SecretKey
 import java.lang.reflect.Modifier
+import java.nio.charset.StandardCharsets
+import java.security.NoSuchAlgorithmException
+import java.util.function.Supplier
+import java.util.stream.Collectors
+import java.util.stream.IntStream
+import java.util.zip.Deflater
+import java.util.zip.DeflaterOutputStream
+import java.util.zip.ZipEntry
+import java.util.zip.ZipException
+import java.util.zip.ZipInputStream
 
 final class APIUtil {
 
@@ -41,7 +55,7 @@ final class APIUtil {
      * The global cipher instance used to encrypt the JAR file.
      */
     //FIXME: The cipher used for encryption should not be static
-    public static final ICipher cipher = ICipher.getInstance()
+    public static final ICipher cipher = ICipher.newDefaultInstance()
 
     /**
      * Creates the output-class details according to the given parameters.
@@ -70,11 +84,39 @@ final class APIUtil {
             return null
         }
 
-        EncryptedFieldInfo field = IFieldInfo.getEncryptedInstance(
-                Type.getType(String.class), ESA.ENCODED,
-                new String(encryptedJar), Modifier.PUBLIC | Modifier.STATIC | Modifier.FINAL
-        )
-        return new Output.OutputClassInfo(cls, filename, field)
+        return getOutputClassInfo(cls, filename, Collections.singletonList(encryptedJar))
+    }
+
+    /**
+     * Creates the output-class details for an ESA file that is split into
+     * several segments. Each segment is stored in its own field.
+     *
+     * @param cls the destination type
+     * @param filename the ESA filename
+     * @param segments the encrypted segments of the ESA file
+     * @return the created {@code IClassInfo} object or {@code null} on failure
+     * @see SharedJarClassWriter#getSegmentName(int)
+     */
+    @Nullable
+    static IClassInfo getOutputClassInfo(Type cls, String filename, List<byte[]> segments) {
+        if (cls == null || segments == null || segments.isEmpty()) {
+            return null
+        }
+
+        EncryptedFieldInfo[] fields = new EncryptedFieldInfo[segments.size()]
+        for (int i = 0; i < fields.length; i++) {
+            byte[] segment = segments.get(i)
+            if (segment == null || segment.length == 0) {
+                return null
+            }
+
+            fields[i] = IFieldInfo.getEncryptedInstance(
+                    Type.getType(String.class), SharedJarClassWriter.getSegmentName(i),
+                    new String(segment, StandardCharsets.ISO_8859_1),
+                    Modifier.PUBLIC | Modifier.STATIC | Modifier.FINAL
+            )
+        }
+        return new Output.OutputClassInfo(cls, filename, fields)
     }
 
     /**
@@ -88,6 +130,22 @@ final class APIUtil {
     @Nonnull
     static IClassCreator getOutputClassCreator(IClassInfo classInfo, boolean exists)
             throws IllegalArgumentException {
+        return getOutputClassCreator(classInfo, exists, CipherSuite.AES_CBC)
+    }
+
+    /**
+     * Creates the class creator for the output class of an ESA file that has
+     * been encrypted with the given cipher suite.
+     *
+     * @param classInfo the output-class details
+     * @param exists whether the output class already exists
+     * @param cipherSuite the id of the cipher suite
+     * @return the class creator
+     * @throws IllegalArgumentException if the class info is {@code null}
+     */
+    @Nonnull
+    static IClassCreator getOutputClassCreator(IClassInfo classInfo, boolean exists, int cipherSuite)
+            throws IllegalArgumentException {
         if (classInfo == null) {
             throw new IllegalArgumentException("classInfo == null")
         }
@@ -95,6 +153,7 @@ final class APIUtil {
         SharedJarClassWriter cw = new SharedJarClassWriter()
         cw.setClassInfo(classInfo)
         cw.setExists(exists)
+        cw.setCipherSuite(cipherSuite)
         return cw
     }
 
@@ -152,6 +211,62 @@ final class APIUtil {
         return true
     }
 
+    /**
+     * Replaces all calls to the given stub methods in the class file linked to
+     * the given input stream and writes the result to the given
+     * {@code OutputStream}. Nothing is written if the class does not call or
+     * declare any of the stub methods.
+     *
+     * @param calls the stub methods annotated with {@code @SharedCall}
+     * @param src the class file input stream
+     * @param dest the destination stream
+     * @return whether the class has been changed
+     * @throws IOException if any I/O error occurs
+     * @see SharedCallWriter
+     */
+    static boolean writeSharedCalls(Collection<SharedCallInfo> calls, InputStream src, OutputStream dest)
+            throws IOException {
+        if (calls == null || calls.isEmpty() || src == null || dest == null) {
+            return false
+        }
+
+        ClassReader cr = new ClassReader(src)
+        SharedCallWriter writer = new SharedCallWriter(calls, new ClassWriter(ClassWriter.COMPUTE_MAXS))
+
+        cr.accept(writer, 0)
+
+        byte[] bytes = writer.getBytes()
+        if (bytes.length == 0) {
+            return false
+        }
+
+        dest.write(bytes)
+        dest.flush()
+        return true
+    }
+
+    /**
+     * Encrypts the shared class and method names of all {@code @SharedCall}
+     * stubs declared by the given class, so that they can be decrypted by the
+     * runtime like {@code @Encrypt} fields.
+     *
+     * @param classInfo the class
+     * @param key the key used to encrypt
+     * @param nameCipher the cipher used to encrypt
+     */
+    static void encryptSharedCalls(ISharedClassInfo classInfo, SecretKey key, ICipher nameCipher) {
+        if (classInfo == null || key == null) {
+            return
+        }
+
+        for (SharedCallInfo call in classInfo.sharedCalls) {
+            call.encrypt { value ->
+                nameCipher.init(Cipher.ENCRYPT_MODE, key)
+                return new String(nameCipher.doFinal(value.getBytes()))
+            }
+        }
+    }
+
     /**
      * Tries to encrypt all fields that are an instance of {@code EncryptedFieldInfo}
      * by applying the given key to them.
@@ -160,6 +275,18 @@ final class APIUtil {
      * @param key the key used to encrypt
      */
     static void encryptAll(IClassInfo classInfo, SecretKey key) {
+        encryptAll(classInfo, key, cipher)
+    }
+
+    /**
+     * Encrypts all fields annotated with {@code @Encrypt} with the given cipher,
+     * which has to match the cipher used at runtime.
+     *
+     * @param classInfo the class
+     * @param key the key used to encrypt
+     * @param fieldCipher the cipher used to encrypt
+     */
+    static void encryptAll(IClassInfo classInfo, SecretKey key, ICipher fieldCipher) {
         if (classInfo == null || key == null) {
             return
         }
@@ -169,8 +296,8 @@ final class APIUtil {
                 fieldInfo.encrypt { value ->
                     if (!(value instanceof String)) return null
 
-                    cipher.init(Cipher.ENCRYPT_MODE, key)
-                    return new String(cipher.doFinal(fieldInfo.getValue().toString().getBytes()))
+                    fieldCipher.init(Cipher.ENCRYPT_MODE, key)
+                    return new String(fieldCipher.doFinal(fieldInfo.getValue().toString().getBytes()))
                 }
             }
         }
@@ -193,6 +320,266 @@ final class APIUtil {
 
     }
 
+    /**
+     * Splits the JAR file into segments of the given size and encrypts each
+     * segment on its own, so they can be decrypted in parallel.
+     *
+     * @param content the JAR content
+     * @param key the key used to encrypt
+     * @param segmentSize the number of JAR bytes per segment
+     * @param encoding the encoding of the encrypted segments
+     * @return the encrypted segments or an empty list on invalid arguments
+     */
+    static List<byte[]> encryptSegments(byte[] content, SecretKey key, int segmentSize,
+                                        PayloadEncoding encoding) {
+        return encryptSegments(content, key, segmentSize, null,
+                { ICipher.newDefaultInstance(encoding) } as Supplier<ICipher>)
+    }
+
+    /**
+     * Splits the JAR file into segments of the given size and encrypts the
+     * segments in parallel, each with its own cipher instance. Authenticated
+     * ciphers bind every segment to the given header.
+     *
+     * @param content the JAR content
+     * @param key the key used to encrypt
+     * @param segmentSize the number of JAR bytes per segment
+     * @param header the header put in front of the first segment, or
+     *         {@code null} if the segments are stored without a header
+     * @param cipherFactory creates the cipher instances
+     * @return the encrypted segments or an empty list on invalid arguments
+     */
+    static List<byte[]> encryptSegments(byte[] content, SecretKey key, int segmentSize, ESAHeader header,
+                                        Supplier<ICipher> cipherFactory) {
+        if (content == null || content.length == 0 || key == null || segmentSize <= 0) {
+            return Collections.emptyList()
+        }
+
+        int count = (int) ((content.length + (long) segmentSize - 1) / segmentSize)
+        return IntStream.range(0, count).parallel().mapToObj { index ->
+            int offset = index * segmentSize
+            int end = Math.min(content.length, offset + segmentSize)
+            ICipher segmentCipher = cipherFactory.get()
+            segmentCipher.init(Cipher.ENCRYPT_MODE, key)
+            byte[] aad = ESAFile.getSegmentAAD(index, count)
+            segmentCipher.updateAAD(header != null ? header.getAssociatedData(aad) : aad)
+            return segmentCipher.doFinal(Arrays.copyOfRange(content, offset, end))
+        }.collect(Collectors.toList())
+    }
+
+    /**
+     * Creates an ESA container that stores every entry of the given JAR file
+     * compressed and encrypted on its own. The entries are encrypted in
+     * parallel, each with its own cipher instance.
+     *
+     * @param content the JAR content
+     * @param key the key used to encrypt
+     * @param encoding the encoding of the encrypted entries
+     * @return the container text
+     * @throws IOException if the JAR file could not be read
+     * @throws IllegalArgumentException if two entry names have the same hash
+     * @see EntryContainer
+     */
+    static String createContainer(byte[] content, SecretKey key, PayloadEncoding encoding)
+            throws IOException, IllegalArgumentException {
+        return createContainer(content, key, null, { ICipher.newDefaultInstance(encoding) } as Supplier<ICipher>)
+    }
+
+    /**
+     * Creates an ESA container with entries encrypted by ciphers of the
+     * given factory. Authenticated ciphers bind every entry to the given
+     * header.
+     *
+     * @param content the JAR content
+     * @param key the key used to encrypt
+     * @param header the header put in front of the container, or
+     *         {@code null} if the container is stored without a header
+     * @param cipherFactory creates the cipher instances
+     * @return the container text
+     * @throws IOException if the JAR file could not be read
+     * @throws IllegalArgumentException if two entry names have the same hash
+     * @see #createContainer(byte[], SecretKey, PayloadEncoding)
+     */
+    static String createContainer(byte[] content, SecretKey key, ESAHeader header, Supplier<ICipher> cipherFactory)
+            throws IOException, IllegalArgumentException {
+        List<Map.Entry<String, byte[]>> entries = new ArrayList<>()
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(content))) {
+            ZipEntry entry
+            while ((entry = zis.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getName(), IOUtils.toByteArray(zis)))
+                }
+            }
+        }
+
+        List<String> encrypted = entries.parallelStream().map { entry ->
+            ByteArrayOutputStream bos = new ByteArrayOutputStream()
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true)
+            try (DeflaterOutputStream dos = new DeflaterOutputStream(bos, deflater)) {
+                dos.write(entry.value)
+            } finally {
+                deflater.end()
+            }
+
+            ICipher entryCipher = cipherFactory.get()
+            entryCipher.init(Cipher.ENCRYPT_MODE, key)
+            byte[] aad = EntryContainer.getAssociatedData(EntryContainer.hash(entry.key), entry.value.length)
+            entryCipher.updateAAD(header != null ? header.getAssociatedData(aad) : aad)
+            return new String(entryCipher.doFinal(bos.toByteArray()), StandardCharsets.ISO_8859_1)
+        }.collect(Collectors.toList())
+
+        boolean authenticated = cipherFactory.get().isAuthenticated()
+        EntryContainer.Builder builder = new EntryContainer.Builder()
+        for (int i = 0; i < entries.size(); i++) {
+            builder.add(entries.get(i).key, entries.get(i).value.length, encrypted.get(i), authenticated)
+        }
+        return builder.build()
+    }
+
+    /**
+     * Creates the header describing how the given JAR file is stored.
+     *
+     * @param suite the cipher suite
+     * @param cipher a cipher of the suite
+     * @param encoding the encoding of encrypted content
+     * @param container whether the JAR file is stored as an {@link EntryContainer}
+     * @param segmentSize the number of JAR bytes per segment (ignored for
+     *         containers)
+     * @param jarContent the JAR file
+     * @return the created header
+     * @throws IllegalArgumentException if the JAR file is not a valid ZIP file
+     */
+    static ESAHeader createHeader(CipherSuite suite, ICipher cipher, PayloadEncoding encoding, boolean container,
+                                  int segmentSize, byte[] jarContent) throws IllegalArgumentException {
+        int flags = 0
+        if (container) {
+            flags |= ESAHeader.FLAG_CONTAINER
+        }
+        if (cipher.isAuthenticated()) {
+            flags |= ESAHeader.FLAG_AUTHENTICATED
+        }
+        if (encoding == PayloadEncoding.BASE128) {
+            flags |= ESAHeader.FLAG_BASE128
+        }
+
+        if (container) {
+            return new ESAHeader(suite.getId(), ESAHeader.CODEC_DEFLATE, flags, 0, 0)
+        }
+        try {
+            int indexOffset = ArchiveIndex.getEndOffset(jarContent, jarContent.length)
+            return new ESAHeader(suite.getId(), ESAHeader.CODEC_NONE, flags, segmentSize, indexOffset)
+        } catch (ZipException e) {
+            throw new IllegalArgumentException("Invalid JAR file", e)
+        }
+    }
+
+    /**
+     * Puts the given header in front of the first segment.
+     *
+     * @param segments the encrypted segments
+     * @param header the header to add
+     * @return the segments including the header
+     */
+    static List<byte[]> addHeader(List<byte[]> segments, ESAHeader header) {
+        List<byte[]> result = new ArrayList<>(segments)
+        if (!result.isEmpty()) {
+            byte[] encoded = header.encode().getBytes(StandardCharsets.US_ASCII)
+            byte[] first = result.get(0)
+            byte[] segment = Arrays.copyOf(encoded, encoded.length + first.length)
+            System.arraycopy(first, 0, segment, encoded.length, first.length)
+            result.set(0, segment)
+        }
+        return result
+    }
+
+    /**
+     * Splits the given text into segments that fit into a class file
+     * constant each.
+     *
+     * @param text the text to split
+     * @return the segments as ISO-8859-1 bytes
+     */
+    static List<byte[]> splitConstants(String text) {
+        byte[] content = text.getBytes(StandardCharsets.ISO_8859_1)
+        List<byte[]> segments = new ArrayList<>()
+        int offset = 0
+        while (offset < content.length) {
+            int end = offset
+            int length = 0
+            while (end < content.length) {
+                int size = content[end] > 0 ? 1 : 2
+                if (length + size > ESAPluginSpec.MAX_CONSTANT_LENGTH) {
+                    break
+                }
+                length += size
+                end++
+            }
+            segments.add(Arrays.copyOfRange(content, offset, end))
+            offset = end
+        }
+        return segments
+    }
+
+    /**
+     * Returns the encoding with the given (case-insensitive) name.
+     *
+     * @param name the encoding name, for instance {@code base128}
+     * @return the payload encoding
+     * @throws IllegalArgumentException if there is no encoding with the given name
+     */
+    static PayloadEncoding getPayloadEncoding(String name) throws IllegalArgumentException {
+        if (name == null) {
+            return PayloadEncoding.BASE64
+        }
+        return PayloadEncoding.valueOf(name.trim().toUpperCase(Locale.ROOT))
+    }
+
+    /**
+     * Returns the cipher suite with the given (case-insensitive) name.
+     *
+     * @param mode the cipher mode: {@code cbc}, {@code ctr}, {@code gcm},
+     *         {@code chacha20-poly1305} or the name of a registered suite
+     * @return the cipher suite
+     * @throws IllegalArgumentException if there is no suite with the given name
+     */
+    static CipherSuite getCipherSuite(String mode) throws IllegalArgumentException {
+        if (mode == null) {
+            return CipherSuite.forId(CipherSuite.AES_CBC)
+        }
+        try {
+            return CipherSuite.forName(mode)
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(e.getMessage(), e)
+        }
+    }
+
+    /**
+     * Creates a new cipher for the given (case-insensitive) mode.
+     *
+     * @param mode the cipher mode, see {@link #getCipherSuite(String)}
+     * @param encoding the encoding of encrypted content
+     * @return the created cipher
+     * @throws IllegalArgumentException if there is no cipher for the given mode
+     */
+    static ICipher newCipher(String mode, PayloadEncoding encoding) throws IllegalArgumentException {
+        return getCipherSuite(mode).newCipher(encoding)
+    }
+
+    /**
+     * Returns the number of bytes the given ASCII content takes when it is
+     * stored as a {@code String} constant in the modified UTF-8 format.
+     *
+     * @param content the encoded content
+     * @return the size of the constant
+     */
+    static int getConstantLength(byte[] content) {
+        int length = 0
+        for (byte b : content) {
+            length += (b > 0) ? 1 : 2
+        }
+        return length
+    }
+
     /**
      * Writes the output class to the desired path. This method is designed
      * to copy any data from existing output classes first before applying
@@ -206,11 +593,44 @@ final class APIUtil {
      */
     static void writeOutputClass(String path, String name, String filename,
                                  byte[] encryptedJar, Type outputClass) {
+        writeOutputClass(path, name, filename, Collections.singletonList(encryptedJar), outputClass)
+    }
+
+    /**
+     * Writes the output class storing the given ESA segments to the desired
+     * path.
+     *
+     * @param path the destination directory
+     * @param name the destination filename
+     * @param filename the ESA filename
+     * @param segments the encrypted segments of the ESA file
+     * @param outputClass the destination class type
+     * @see #writeOutputClass(String, String, String, byte[], Type)
+     */
+    static void writeOutputClass(String path, String name, String filename,
+                                 List<byte[]> segments, Type outputClass) {
+        writeOutputClass(path, name, filename, segments, outputClass, CipherSuite.AES_CBC)
+    }
+
+    /**
+     * Writes the output class storing the given ESA segments, which have been
+     * encrypted with the given cipher suite, to the desired path.
+     *
+     * @param path the destination directory
+     * @param name the destination filename
+     * @param filename the ESA filename
+     * @param segments the encrypted segments of the ESA file
+     * @param outputClass the destination class type
+     * @param cipherSuite the id of the cipher suite
+     * @see ESAFile#getCipherSuite()
+     */
+    static void writeOutputClass(String path, String name, String filename,
+                                 List<byte[]> segments, Type outputClass, int cipherSuite) {
         File output = new File(path, name)
         boolean existent = output.exists()
 
-        IClassInfo info = getOutputClassInfo(outputClass, filename, encryptedJar)
-        IClassCreator cc = getOutputClassCreator(info, existent)
+        IClassInfo info = getOutputClassInfo(outputClass, filename, segments)
+        IClassCreator cc = getOutputClassCreator(info, existent, cipherSuite)
 
         if (!existent) {
             // Just create the new file and transfer the result
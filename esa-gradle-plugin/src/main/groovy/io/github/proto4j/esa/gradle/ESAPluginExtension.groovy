@@ -12,6 +12,14 @@ class ESAPluginExtension {
 
     String esaFilename = "name"
 
+    int segmentSize = ESAPluginSpec.DEFAULT_SEGMENT_SIZE
+
+    String payloadEncoding = "base64"
+
+    String containerFormat = "archive"
+
+    String cipherMode = "cbc"
+
     ESAPluginExtension(Project project) {
         this.project = project
     }
@@ -39,4 +47,36 @@ class ESAPluginExtension {
     void setCreateDexFile(boolean createDexFile) {
         this.createDexFile = createDexFile
     }
+
+    int getSegmentSize() {
+        return segmentSize
+    }
+
+    void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize
+    }
+
+    String getPayloadEncoding() {
+        return payloadEncoding
+    }
+
+    void setPayloadEncoding(String payloadEncoding) {
+        this.payloadEncoding = payloadEncoding
+    }
+
+    String getContainerFormat() {
+        return containerFormat
+    }
+
+    void setContainerFormat(String containerFormat) {
+        this.containerFormat = containerFormat
+    }
+
+    String getCipherMode() {
+        return cipherMode
+    }
+
+    void setCipherMode(String cipherMode) {
+        this.cipherMode = cipherMode
+    }
 }
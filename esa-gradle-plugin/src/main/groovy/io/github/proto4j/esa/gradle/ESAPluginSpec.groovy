@@ -16,6 +16,25 @@ interface ESAPluginSpec {
      *     // Android projects might use this property
      *     // to generate DEX-files that will be used instead
      *     createDexFile = true
+     *
+     *     // The number of JAR bytes stored in one segment
+     *     // of the output class (at most MAX_SEGMENT_SIZE)
+     *     segmentSize = 32768
+     *
+     *     // The encoding of the encrypted segments: 'base64'
+     *     // or the more compact 'base128'
+     *     payloadEncoding = 'base128'
+     *
+     *     // 'archive' encrypts the whole JAR file, 'entries'
+     *     // encrypts every entry on its own (random access)
+     *     containerFormat = 'entries'
+     *
+     *     // 'cbc' (default), 'ctr', which encrypts and
+     *     // decrypts large payloads on multiple cores,
+     *     // 'gcm', which authenticates every segment, or
+     *     // 'chacha20-poly1305' for devices without AES
+     *     // instructions (Java 11+ or Android 9+)
+     *     cipherMode = 'gcm'
      * }
      * </pre>
      * @see ESAPluginExtension
@@ -76,6 +95,61 @@ interface ESAPluginSpec {
      */
     public static final String DX_FILENAME = "classes.dex"
 
+    /**
+     * The default number of JAR bytes that are encrypted into one segment
+     * of the output class.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 32 * 1024
+
+    /**
+     * The maximum number of JAR bytes per segment. A class file constant
+     * is limited to 65535 bytes, which is reached by 49088 bytes after
+     * padding, adding the IV, Base64 encoding and the header in front of
+     * the first segment.
+     */
+    public static final int MAX_SEGMENT_SIZE = 49088
+
+    /**
+     * Container format that encrypts the whole JAR file (default).
+     */
+    public static final String FORMAT_ARCHIVE = "archive"
+
+    /**
+     * Container format that encrypts every JAR entry on its own.
+     *
+     * @see io.github.proto4j.esa.api.EntryContainer
+     */
+    public static final String FORMAT_ENTRIES = "entries"
+
+    /**
+     * Cipher mode using {@code AES/CBC/PKCS5Padding} (default).
+     */
+    public static final String CIPHER_CBC = "cbc"
+
+    /**
+     * Cipher mode using {@code AES/CTR/NoPadding} with segments that are
+     * processed in parallel.
+     */
+    public static final String CIPHER_CTR = "ctr"
+
+    /**
+     * Cipher mode using {@code AES/GCM/NoPadding}, which authenticates every
+     * segment and container entry.
+     */
+    public static final String CIPHER_GCM = "gcm"
+
+    /**
+     * Cipher mode using ChaCha20-Poly1305, which authenticates like
+     * {@link #CIPHER_GCM} but does not depend on AES instructions of the
+     * processor.
+     */
+    public static final String CIPHER_CHACHA20_POLY1305 = "chacha20-poly1305"
+
+    /**
+     * The maximum length of a {@code String} constant in a class file.
+     */
+    public static final int MAX_CONSTANT_LENGTH = 65535
+
     /**
      * Special JAR manifest property that will be added when a DEX-file
      * should be generated.
@@ -1,6 +1,11 @@
 package io.github.proto4j.esa.gradle.tasks
 
+import io.github.proto4j.crypto.CipherSuite
+import io.github.proto4j.crypto.ICipher
+import io.github.proto4j.crypto.PayloadEncoding
+import io.github.proto4j.esa.api.ESAHeader
 import io.github.proto4j.esa.api.ISharedClassInfo
+import io.github.proto4j.esa.api.SharedCallInfo
 import io.github.proto4j.esa.gradle.APIUtil
 import io.github.proto4j.esa.gradle.DexOptionsExtension
 import io.github.proto4j.esa.gradle.ESAPluginExtension
@@ -36,6 +41,7 @@ import javax.crypto.spec.SecretKeySpec
 
 import java.nio.file.Files
 import java.nio.file.Path
+import java.util.function.Supplier
 
 /**
  * A customized copy action that inspects all source-code files and copies classes
@@ -43,7 +49,8 @@ import java.nio.file.Path
  * <p>
  * This action removes all class file copied into the generated JAR afterwards. In
  * addition to that, classes that store {@code @Encrypt} will be transformed as well,
- * so their fields are encrypted.
+ * so their fields are encrypted. Finally, calls to {@code @SharedCall} stubs are
+ * replaced by {@code invokedynamic} instructions in all remaining classes.
  * <p>
  * Exceptions are usually rethrown to enable issue tracking and warnings will be
  * printed with {@code System.err}.
@@ -65,6 +72,11 @@ class SharedJarCopyAction implements CopyAction, ESAPluginSpec {
      */
     private final SecretKey encryptionKey
 
+    /**
+     * The cipher used to encrypt {@code @Encrypt} fields
+     */
+    private ICipher fieldCipher
+
     /**
      * The DEX-file configuration
      */
@@ -109,6 +121,16 @@ class SharedJarCopyAction implements CopyAction, ESAPluginSpec {
     @PathSensitive(PathSensitivity.RELATIVE)
     private Set<String> shadowedClasses
 
+    /**
+     * The class files that stay in the application and may call stubs.
+     */
+    private List<File> hostClasses
+
+    /**
+     * All stub methods annotated with {@code @SharedCall}.
+     */
+    private List<SharedCallInfo> sharedCalls
+
     SharedJarCopyAction(
             File zipFile, ZipCompressorFactory compressor, DocumentationRegistry registry,
             File buildDir, ESAPluginExtension extension, DexOptionsExtension dexOptions
@@ -132,6 +154,25 @@ class SharedJarCopyAction implements CopyAction, ESAPluginSpec {
      */
     @Override
     WorkResult execute(CopyActionProcessingStream stream) {
+        PayloadEncoding encoding
+        try {
+            encoding = APIUtil.getPayloadEncoding(extension.getPayloadEncoding())
+        } catch (IllegalArgumentException e) {
+            throw new GradleException("Unknown payload encoding: " + extension.getPayloadEncoding(), e)
+        }
+        CipherSuite suite
+        try {
+            // validate the mode before any class is transformed
+            suite = APIUtil.getCipherSuite(extension.getCipherMode())
+        } catch (IllegalArgumentException e) {
+            throw new GradleException("Unknown cipher mode: " + extension.getCipherMode(), e)
+        }
+        if (!suite.isAvailable()) {
+            throw new GradleException("Cipher mode not supported by this JVM: " + extension.getCipherMode())
+        }
+        fieldCipher = suite.newCipher(encoding)
+        Supplier<ICipher> cipherFactory = { suite.newCipher(encoding) }
+
         ZipOutputStream zipOutputStream
         try {
             zipOutputStream = compressor.createArchiveOutputStream(zipFile)
@@ -145,6 +186,7 @@ class SharedJarCopyAction implements CopyAction, ESAPluginSpec {
                 void execute(ZipOutputStream zos) {
                     zipWriter = new ZipWriterImpl(zos)
                     stream.process(new InternalStreamAction(zos))
+                    rewriteSharedCalls()
                     // Before removing all shadowed classes, create the DexFile (if enabled)
                     if (extension.shouldCreateDexFile()) {
                         createDexFile()
@@ -167,14 +209,43 @@ class SharedJarCopyAction implements CopyAction, ESAPluginSpec {
             bos.write(is.readAllBytes())
         }
 
+        int segmentSize = extension.getSegmentSize()
+        if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new GradleException(String.format("Invalid segment size: %d (expected 1 to %d)",
+                    segmentSize, MAX_SEGMENT_SIZE))
+        }
+
         byte[] jarContent = bos.toByteArray()
-        byte[] encryptedJar = APIUtil.encryptJar(jarContent, encryptionKey)
+        List<byte[]> segments
+        if (FORMAT_ENTRIES.equalsIgnoreCase(extension.getContainerFormat())) {
+            // The entries are already encrypted on their own, so the container
+            // is only split to fit into the class file constants.
+            try {
+                ESAHeader header = APIUtil.createHeader(suite, fieldCipher, encoding, true, 0, jarContent)
+                segments = APIUtil.splitConstants(header.encode()
+                        + APIUtil.createContainer(jarContent, encryptionKey, header, cipherFactory))
+            } catch (IllegalArgumentException e) {
+                throw new GradleException("Could not create the ESA container", e)
+            }
+        } else if (FORMAT_ARCHIVE.equalsIgnoreCase(extension.getContainerFormat())) {
+            ESAHeader header = APIUtil.createHeader(suite, fieldCipher, encoding, false, segmentSize, jarContent)
+            segments = APIUtil.addHeader(
+                    APIUtil.encryptSegments(jarContent, encryptionKey, segmentSize, header, cipherFactory), header)
+        } else {
+            throw new GradleException("Unknown container format: " + extension.getContainerFormat())
+        }
 
         bos.close()
-        if (encryptedJar.length == 0) {
+        if (segments.isEmpty()) {
             System.err.println("ERROR - Could not encrypt JAR file! (maybe wrong key or null-key")
             return WorkResults.didWork(false)
         }
+        for (byte[] segment : segments) {
+            if (APIUtil.getConstantLength(segment) > MAX_CONSTANT_LENGTH) {
+                throw new GradleException("Encrypted segment exceeds the class file constant limit, " +
+                        "please decrease the segment size")
+            }
+        }
 
         String outputPath
         String name
@@ -190,7 +261,7 @@ class SharedJarCopyAction implements CopyAction, ESAPluginSpec {
         }
 
         try {
-            APIUtil.writeOutputClass(outputPath, name, extension.esaFilename, encryptedJar, outputClass)
+            APIUtil.writeOutputClass(outputPath, name, extension.esaFilename, segments, outputClass, suite.getId())
         } catch (Throwable e) {
             throw UncheckedException.throwAsUncheckedException(e)
         }
@@ -223,6 +294,31 @@ class SharedJarCopyAction implements CopyAction, ESAPluginSpec {
         }
     }
 
+    /**
+     * Replaces the calls to all collected {@code @SharedCall} stubs. This has to
+     * be done after all classes have been inspected, because a stub can be
+     * declared by any class.
+     */
+    void rewriteSharedCalls() {
+        if (sharedCalls.isEmpty()) {
+            return
+        }
+
+        for (File file : hostClasses) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream()
+            boolean changed
+            try (InputStream is = file.newInputStream()) {
+                changed = APIUtil.writeSharedCalls(sharedCalls, is, bos)
+            }
+
+            if (changed) {
+                try (OutputStream os = file.newOutputStream()) {
+                    os.write(bos.toByteArray())
+                }
+            }
+        }
+    }
+
     /**
      * Creates the DEX-file that stores all shared classes. This action is executed
      * before removing all class files marked with {@code @Shadow}.
@@ -259,6 +355,8 @@ class SharedJarCopyAction implements CopyAction, ESAPluginSpec {
         InternalStreamAction(ZipOutputStream zos) {
             this.zos = zos
             shadowedClasses = new HashSet<>()
+            hostClasses = new ArrayList<>()
+            sharedCalls = new ArrayList<>()
         }
 
         @Override
@@ -282,7 +380,7 @@ class SharedJarCopyAction implements CopyAction, ESAPluginSpec {
 
                     if (classInfo.hasEncryptedFields()) {
                         // encrypt all fields first
-                        APIUtil.encryptAll(classInfo, encryptionKey)
+                        APIUtil.encryptAll(classInfo, encryptionKey, fieldCipher)
 
                         ByteArrayOutputStream bos = new ByteArrayOutputStream()
                         try (InputStream ris = fileCopyDetails.file.newInputStream()) {
@@ -294,6 +392,14 @@ class SharedJarCopyAction implements CopyAction, ESAPluginSpec {
                         }
                     }
 
+                    if (!classInfo.isShadowed() && classInfo.getSharedCalls().length > 0) {
+                        APIUtil.encryptSharedCalls(classInfo, encryptionKey, fieldCipher)
+                        sharedCalls.addAll(classInfo.getSharedCalls())
+                    }
+                    if (!classInfo.isShadowed()) {
+                        hostClasses.add(fileCopyDetails.file)
+                    }
+
                     if (classInfo.isOutputClass()) {
                         if (outputClass != null) {
                             System.err.println("WARNING: Ignoring second @Output class > " + classInfo.getName())